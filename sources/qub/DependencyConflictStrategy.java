@@ -0,0 +1,25 @@
+package qub;
+
+/**
+ * The ways that a project that appears in a dependency graph with more than one version can be
+ * resolved to a single version.
+ */
+public enum DependencyConflictStrategy
+{
+    /**
+     * Use the version that is the fewest dependency edges away from the project being published.
+     * If more than one version is the same distance away, then the version that comes first in
+     * classpath order is used.
+     */
+    Nearest,
+
+    /**
+     * Use the highest version.
+     */
+    Highest,
+
+    /**
+     * Don't resolve the conflict and fail instead.
+     */
+    Fail
+}
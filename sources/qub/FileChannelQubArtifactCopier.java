@@ -0,0 +1,231 @@
+package qub;
+
+/**
+ * A QubArtifactCopier that copies artifacts on the local disk with FileChannels. Large artifacts
+ * are copied with FileChannel.transferTo() so that the operating system can move the bytes without
+ * bringing them into the JVM, and small artifacts are copied through a pooled direct buffer. Copied
+ * files aren't forced to the disk until commit() is called. Artifacts that aren't on the local disk
+ * are copied through the qub file system abstraction instead.
+ */
+public class FileChannelQubArtifactCopier implements QubArtifactCopier
+{
+    /**
+     * The size in bytes at or above which artifacts will be copied with FileChannel.transferTo() if
+     * no threshold is specified.
+     */
+    public static final long defaultTransferToThreshold = 1024 * 1024;
+
+    /**
+     * The size in bytes of the pooled direct buffers that small artifacts are copied through.
+     */
+    public static final int bufferSize = 64 * 1024;
+
+    private final long transferToThreshold;
+    private final java.util.concurrent.ConcurrentLinkedQueue<java.nio.ByteBuffer> buffers;
+    private final java.util.LinkedHashSet<java.nio.file.Path> uncommittedPaths;
+    private final FileSystemQubArtifactCopier fileSystemCopier;
+
+    private FileChannelQubArtifactCopier(long transferToThreshold)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(transferToThreshold, 0, "transferToThreshold");
+
+        this.transferToThreshold = transferToThreshold;
+        this.buffers = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.uncommittedPaths = new java.util.LinkedHashSet<>();
+        this.fileSystemCopier = FileSystemQubArtifactCopier.create();
+    }
+
+    /**
+     * Create a new FileChannelQubArtifactCopier that copies artifacts that are at least
+     * {@link #defaultTransferToThreshold} bytes with FileChannel.transferTo().
+     * @return The new FileChannelQubArtifactCopier.
+     */
+    public static FileChannelQubArtifactCopier create()
+    {
+        return FileChannelQubArtifactCopier.create(FileChannelQubArtifactCopier.defaultTransferToThreshold);
+    }
+
+    /**
+     * Create a new FileChannelQubArtifactCopier that copies artifacts that are at least the
+     * provided number of bytes with FileChannel.transferTo().
+     * @param transferToThreshold The size in bytes at or above which artifacts will be copied with
+     *                            FileChannel.transferTo().
+     * @return The new FileChannelQubArtifactCopier.
+     */
+    public static FileChannelQubArtifactCopier create(long transferToThreshold)
+    {
+        return new FileChannelQubArtifactCopier(transferToThreshold);
+    }
+
+    /**
+     * Get the size in bytes at or above which artifacts will be copied with
+     * FileChannel.transferTo().
+     * @return The size in bytes at or above which artifacts will be copied with
+     * FileChannel.transferTo().
+     */
+    public long getTransferToThreshold()
+    {
+        return this.transferToThreshold;
+    }
+
+    @Override
+    public Result<Long> copy(File artifact, Folder destinationFolder)
+    {
+        PreCondition.assertNotNull(artifact, "artifact");
+        PreCondition.assertNotNull(destinationFolder, "destinationFolder");
+
+        final java.nio.file.Path sourcePath = QubPublishFiles.getJavaPath(artifact);
+        final java.nio.file.Path destinationFolderPath = QubPublishFiles.getJavaPath(destinationFolder);
+        final Result<Long> result;
+        if (sourcePath == null || destinationFolderPath == null)
+        {
+            result = this.fileSystemCopier.copy(artifact, destinationFolder);
+        }
+        else
+        {
+            result = Result.create(() ->
+            {
+                final java.nio.file.Path destinationPath = destinationFolderPath.resolve(artifact.getName());
+                try
+                {
+                    java.nio.file.Files.createDirectories(destinationFolderPath);
+                    final long copiedByteCount;
+                    try (final java.nio.channels.FileChannel source = java.nio.channels.FileChannel.open(sourcePath, java.nio.file.StandardOpenOption.READ);
+                         final java.nio.channels.FileChannel destination = java.nio.channels.FileChannel.open(destinationPath,
+                             java.nio.file.StandardOpenOption.CREATE,
+                             java.nio.file.StandardOpenOption.WRITE,
+                             java.nio.file.StandardOpenOption.TRUNCATE_EXISTING))
+                    {
+                        copiedByteCount = this.copy(source, destination);
+                    }
+                    synchronized (this.uncommittedPaths)
+                    {
+                        this.uncommittedPaths.add(destinationPath);
+                    }
+                    return copiedByteCount;
+                }
+                catch (java.nio.file.NoSuchFileException error)
+                {
+                    throw new FileNotFoundException(artifact);
+                }
+                catch (java.io.IOException error)
+                {
+                    throw Exceptions.asRuntime(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Copy the contents of the provided source channel to the provided destination channel. The
+     * source channel is copied with FileChannel.transferTo() if its size is at or above this
+     * copier's transferTo threshold, and through a pooled direct buffer otherwise.
+     * @param source The channel to copy from.
+     * @param destination The channel to copy to.
+     * @return The number of bytes that were copied.
+     */
+    long copy(java.nio.channels.FileChannel source, java.nio.channels.FileChannel destination) throws java.io.IOException
+    {
+        final long byteCount = source.size();
+        return byteCount >= this.transferToThreshold
+            ? FileChannelQubArtifactCopier.transfer(source, destination, byteCount)
+            : this.copyThroughBuffer(source, destination);
+    }
+
+    /**
+     * Transfer the first byteCount bytes of the provided source channel to the provided destination
+     * channel. If the source channel is truncated while it is transferred, then the transfer stops
+     * at the new end of the source channel instead of retrying forever.
+     * @param source The channel to transfer from.
+     * @param destination The channel to transfer to.
+     * @param byteCount The size of the source channel when the copy started.
+     * @return The number of bytes that were transferred.
+     */
+    static long transfer(java.nio.channels.FileChannel source, java.nio.channels.FileChannel destination, long byteCount) throws java.io.IOException
+    {
+        long position = 0;
+        while (position < byteCount)
+        {
+            final long transferredByteCount = source.transferTo(position, byteCount - position, destination);
+            if (transferredByteCount <= 0)
+            {
+                break;
+            }
+            position += transferredByteCount;
+        }
+        return position;
+    }
+
+    private long copyThroughBuffer(java.nio.channels.FileChannel source, java.nio.channels.FileChannel destination) throws java.io.IOException
+    {
+        java.nio.ByteBuffer buffer = this.buffers.poll();
+        if (buffer == null)
+        {
+            buffer = java.nio.ByteBuffer.allocateDirect(FileChannelQubArtifactCopier.bufferSize);
+        }
+        try
+        {
+            long result = 0;
+            while (source.read(buffer) != -1)
+            {
+                buffer.flip();
+                while (buffer.hasRemaining())
+                {
+                    result += destination.write(buffer);
+                }
+                buffer.clear();
+            }
+            return result;
+        }
+        finally
+        {
+            buffer.clear();
+            this.buffers.offer(buffer);
+        }
+    }
+
+    @Override
+    public Result<Void> commit()
+    {
+        return Result.create(() ->
+        {
+            final java.util.List<java.nio.file.Path> paths;
+            synchronized (this.uncommittedPaths)
+            {
+                paths = new java.util.ArrayList<>(this.uncommittedPaths);
+                this.uncommittedPaths.clear();
+            }
+
+            final java.util.LinkedHashSet<java.nio.file.Path> parentPaths = new java.util.LinkedHashSet<>();
+            try
+            {
+                for (final java.nio.file.Path path : paths)
+                {
+                    try (final java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(path, java.nio.file.StandardOpenOption.WRITE))
+                    {
+                        channel.force(true);
+                    }
+                    parentPaths.add(path.getParent());
+                }
+            }
+            catch (java.io.IOException error)
+            {
+                throw Exceptions.asRuntime(error);
+            }
+
+            // The new directory entries must also reach the disk for the files to survive a crash.
+            // Not every platform allows a directory to be opened, so this is best effort.
+            for (final java.nio.file.Path parentPath : parentPaths)
+            {
+                try (final java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(parentPath, java.nio.file.StandardOpenOption.READ))
+                {
+                    channel.force(true);
+                }
+                catch (java.io.IOException ignored)
+                {
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package qub;
+
+/**
+ * A QubProjectLocker that locks a "publish.lock" file in the QubProjectFolder's data folder so that
+ * concurrent publishes of the same project are prevented across all processes on the current
+ * machine. Publishes of different projects lock different files, so they can still run in
+ * parallel. Project folders that aren't on the local disk can only be reached from the current
+ * process, so they are only locked within the current process.
+ */
+public class FileChannelQubProjectLocker implements QubProjectLocker
+{
+    /**
+     * The name of the file within a QubProjectFolder's data folder that will be locked.
+     */
+    public static final String lockFileName = "publish.lock";
+
+    private final InProcessQubProjectLocker inProcessLocker;
+
+    private FileChannelQubProjectLocker()
+    {
+        this.inProcessLocker = InProcessQubProjectLocker.create();
+    }
+
+    /**
+     * Create a new FileChannelQubProjectLocker.
+     * @return The new FileChannelQubProjectLocker.
+     */
+    public static FileChannelQubProjectLocker create()
+    {
+        return new FileChannelQubProjectLocker();
+    }
+
+    @Override
+    public Result<Disposable> lock(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            // A FileChannel lock is held on behalf of the whole JVM, so threads within this process
+            // must also be serialized before they try to acquire the file lock.
+            final Disposable inProcessLock = this.inProcessLocker.lock(projectFolder).await();
+            try
+            {
+                final File lockFile = FileChannelQubProjectLocker.getLockFile(projectFolder);
+                final java.nio.file.Path lockFilePath = QubPublishFiles.getJavaPath(lockFile);
+                final Disposable result;
+                if (lockFilePath == null)
+                {
+                    if (!lockFile.exists().await())
+                    {
+                        lockFile.setContents(new byte[0]).await();
+                    }
+                    result = inProcessLock;
+                }
+                else
+                {
+                    java.nio.file.Files.createDirectories(lockFilePath.getParent());
+                    final java.nio.channels.FileChannel lockFileChannel = java.nio.channels.FileChannel.open(
+                        lockFilePath,
+                        java.nio.file.StandardOpenOption.CREATE,
+                        java.nio.file.StandardOpenOption.WRITE);
+                    final java.nio.channels.FileLock fileLock;
+                    try
+                    {
+                        fileLock = lockFileChannel.lock();
+                    }
+                    catch (Throwable error)
+                    {
+                        lockFileChannel.close();
+                        throw error;
+                    }
+                    result = new QubProjectLock(() ->
+                    {
+                        try
+                        {
+                            fileLock.release();
+                            lockFileChannel.close();
+                        }
+                        catch (java.io.IOException error)
+                        {
+                            throw Exceptions.asRuntime(error);
+                        }
+                        finally
+                        {
+                            inProcessLock.dispose().await();
+                        }
+                    });
+                }
+                return result;
+            }
+            catch (Throwable error)
+            {
+                inProcessLock.dispose().await();
+                throw Exceptions.asRuntime(error);
+            }
+        });
+    }
+
+    /**
+     * Get the file that will be locked to get exclusive access to the provided QubProjectFolder.
+     * @param projectFolder The QubProjectFolder to get the lock file of.
+     * @return The file that will be locked.
+     */
+    public static File getLockFile(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return projectFolder.getProjectDataFolder().await()
+            .getFile(FileChannelQubProjectLocker.lockFileName).await();
+    }
+}
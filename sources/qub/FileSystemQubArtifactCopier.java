@@ -0,0 +1,43 @@
+package qub;
+
+/**
+ * A QubArtifactCopier that copies artifacts through the qub file system abstraction. This works
+ * with any FileSystem, but it can't control how the bytes are transferred or when they are
+ * synchronized to the disk.
+ */
+public class FileSystemQubArtifactCopier implements QubArtifactCopier
+{
+    private FileSystemQubArtifactCopier()
+    {
+    }
+
+    /**
+     * Create a new FileSystemQubArtifactCopier.
+     * @return The new FileSystemQubArtifactCopier.
+     */
+    public static FileSystemQubArtifactCopier create()
+    {
+        return new FileSystemQubArtifactCopier();
+    }
+
+    @Override
+    public Result<Long> copy(File artifact, Folder destinationFolder)
+    {
+        PreCondition.assertNotNull(artifact, "artifact");
+        PreCondition.assertNotNull(destinationFolder, "destinationFolder");
+
+        return Result.create(() ->
+        {
+            artifact.copyToFolder(destinationFolder).await();
+            return artifact.getContentsByteCount().await();
+        });
+    }
+
+    @Override
+    public Result<Void> commit()
+    {
+        return Result.create(() ->
+        {
+        });
+    }
+}
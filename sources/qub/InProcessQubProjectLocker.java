@@ -0,0 +1,38 @@
+package qub;
+
+/**
+ * A QubProjectLocker that prevents concurrent publishes of the same project within the current
+ * process.
+ */
+public class InProcessQubProjectLocker implements QubProjectLocker
+{
+    private static final java.util.concurrent.ConcurrentHashMap<String,java.util.concurrent.locks.ReentrantLock> locks = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private InProcessQubProjectLocker()
+    {
+    }
+
+    /**
+     * Create a new InProcessQubProjectLocker.
+     * @return The new InProcessQubProjectLocker.
+     */
+    public static InProcessQubProjectLocker create()
+    {
+        return new InProcessQubProjectLocker();
+    }
+
+    @Override
+    public Result<Disposable> lock(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            final java.util.concurrent.locks.ReentrantLock lock = InProcessQubProjectLocker.locks.computeIfAbsent(
+                projectFolder.getPath().toString(),
+                (String path) -> new java.util.concurrent.locks.ReentrantLock());
+            lock.lock();
+            return new QubProjectLock(lock::unlock);
+        });
+    }
+}
@@ -0,0 +1,304 @@
+package qub;
+
+/**
+ * An index of the classes in a jar file and the classes that each of them references. The
+ * references are read from the constant pool of each class file, so the index can be built without
+ * loading any of the classes.
+ */
+public class JarClassIndex
+{
+    /**
+     * The kind of value that JarClassIndexes are cached as in a QubPublishArtifactCache.
+     */
+    public static final String artifactCacheValueKind = "jarClassIndex";
+
+    private final java.util.Map<String,java.util.Set<String>> classReferences;
+    private final boolean hasServiceProviders;
+
+    private JarClassIndex(java.util.Map<String,java.util.Set<String>> classReferences, boolean hasServiceProviders)
+    {
+        this.classReferences = classReferences;
+        this.hasServiceProviders = hasServiceProviders;
+    }
+
+    /**
+     * Create a new JarClassIndex from the provided jar file contents.
+     * @param jarBytes The contents of the jar file.
+     * @return The new JarClassIndex.
+     */
+    public static JarClassIndex parse(byte[] jarBytes)
+    {
+        PreCondition.assertNotNull(jarBytes, "jarBytes");
+
+        final java.util.Map<String,java.util.Set<String>> classReferences = new java.util.HashMap<>();
+        boolean hasServiceProviders = false;
+        try (final java.util.zip.ZipInputStream jarStream = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarBytes)))
+        {
+            java.util.zip.ZipEntry entry;
+            while ((entry = jarStream.getNextEntry()) != null)
+            {
+                final String entryName = entry.getName();
+                if (entryName.startsWith("META-INF/services/") && !entry.isDirectory())
+                {
+                    hasServiceProviders = true;
+                }
+                else if (entryName.endsWith(".class") && !entryName.endsWith("module-info.class"))
+                {
+                    final String className = entryName.substring(0, entryName.length() - ".class".length());
+                    classReferences.put(className, JarClassIndex.parseClassReferences(jarStream.readAllBytes()));
+                }
+            }
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+        return new JarClassIndex(classReferences, hasServiceProviders);
+    }
+
+    /**
+     * Get the internal names (such as "java/lang/String") of the classes that are referenced from
+     * the constant pool of the provided class file.
+     * @param classBytes The contents of the class file.
+     * @return The internal names of the classes that the class file references.
+     */
+    public static java.util.Set<String> parseClassReferences(byte[] classBytes)
+    {
+        PreCondition.assertNotNull(classBytes, "classBytes");
+
+        final java.util.Set<String> result = new java.util.HashSet<>();
+        final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(classBytes);
+        try
+        {
+            if (buffer.getInt() != 0xCAFEBABE)
+            {
+                throw new ParseException("Invalid class file magic number.");
+            }
+            buffer.getShort();
+            buffer.getShort();
+            final int constantPoolCount = Short.toUnsignedInt(buffer.getShort());
+            final String[] utf8Values = new String[constantPoolCount];
+            final List<Integer> classNameIndexes = List.create();
+            for (int i = 1; i < constantPoolCount; ++i)
+            {
+                final int tag = Byte.toUnsignedInt(buffer.get());
+                switch (tag)
+                {
+                    case 1:
+                        final byte[] utf8Bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                        buffer.get(utf8Bytes);
+                        utf8Values[i] = new String(utf8Bytes, java.nio.charset.StandardCharsets.UTF_8);
+                        break;
+
+                    case 7:
+                        classNameIndexes.add(Short.toUnsignedInt(buffer.getShort()));
+                        break;
+
+                    case 8:
+                    case 16:
+                    case 19:
+                    case 20:
+                        buffer.position(buffer.position() + 2);
+                        break;
+
+                    case 15:
+                        buffer.position(buffer.position() + 3);
+                        break;
+
+                    case 3:
+                    case 4:
+                    case 9:
+                    case 10:
+                    case 11:
+                    case 12:
+                    case 17:
+                    case 18:
+                        buffer.position(buffer.position() + 4);
+                        break;
+
+                    case 5:
+                    case 6:
+                        buffer.position(buffer.position() + 8);
+                        ++i;
+                        break;
+
+                    default:
+                        throw new ParseException("Unknown constant pool tag: " + tag);
+                }
+            }
+
+            for (final Integer classNameIndex : classNameIndexes)
+            {
+                final String className = utf8Values[classNameIndex];
+                if (className != null)
+                {
+                    if (className.startsWith("["))
+                    {
+                        JarClassIndex.addDescriptorClassNames(className, result);
+                    }
+                    else
+                    {
+                        result.add(className);
+                    }
+                }
+            }
+            for (final String utf8Value : utf8Values)
+            {
+                if (utf8Value != null)
+                {
+                    JarClassIndex.addDescriptorClassNames(utf8Value, result);
+                }
+            }
+        }
+        catch (java.nio.BufferUnderflowException | ArrayIndexOutOfBoundsException | IllegalArgumentException error)
+        {
+            throw new ParseException("Invalid class file.");
+        }
+        return result;
+    }
+
+    private static void addDescriptorClassNames(String text, java.util.Set<String> classNames)
+    {
+        int index = text.indexOf('L');
+        while (index != -1)
+        {
+            final int endIndex = text.indexOf(';', index + 1);
+            if (endIndex == -1)
+            {
+                break;
+            }
+            final String className = text.substring(index + 1, endIndex);
+            if (JarClassIndex.isInternalClassName(className))
+            {
+                classNames.add(className);
+                index = text.indexOf('L', endIndex + 1);
+            }
+            else
+            {
+                index = text.indexOf('L', index + 1);
+            }
+        }
+    }
+
+    private static boolean isInternalClassName(String text)
+    {
+        boolean result = !text.isEmpty();
+        for (int i = 0; result && i < text.length(); ++i)
+        {
+            final char c = text.charAt(i);
+            result = c == '/' || c == '$' || Character.isJavaIdentifierPart(c);
+        }
+        return result;
+    }
+
+    /**
+     * Get the internal names of the classes in this jar.
+     * @return The internal names of the classes in this jar.
+     */
+    public java.util.Set<String> getClassNames()
+    {
+        return java.util.Collections.unmodifiableSet(this.classReferences.keySet());
+    }
+
+    /**
+     * Get the internal names of the classes that the provided class in this jar references, or
+     * null if this jar doesn't contain the provided class.
+     * @param className The internal name of the class.
+     * @return The internal names of the classes that the provided class references.
+     */
+    public java.util.Set<String> getClassReferences(String className)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+
+        final java.util.Set<String> result = this.classReferences.get(className);
+        return result == null ? null : java.util.Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Get whether or not this jar registers service providers in META-INF/services. Service
+     * providers are loaded by name at runtime, so they can't be found by following class references.
+     * @return Whether or not this jar registers service providers.
+     */
+    public boolean hasServiceProviders()
+    {
+        return this.hasServiceProviders;
+    }
+
+    /**
+     * Get the classpath files that can be reached from the provided main class by following class
+     * references, in their original order. The first classpath file and any classpath file that
+     * can't be read or that registers service providers are always kept. If the main class can't
+     * be found in any of the classpath files, then every classpath file is kept.
+     * @param classpathFiles The classpath files, in classpath order.
+     * @param mainClass The fully qualified name of the main class.
+     * @param artifactCache The cache that each jar's JarClassIndex will be stored in.
+     * @return The classpath files that can be reached from the main class.
+     */
+    public static Result<Iterable<File>> getReachableFiles(Iterable<File> classpathFiles, String mainClass, QubPublishArtifactCache artifactCache)
+    {
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+
+        return Result.create(() ->
+        {
+            final List<File> files = List.create();
+            final List<JarClassIndex> indexes = List.create();
+            final java.util.Map<String,Integer> classFileIndexes = new java.util.HashMap<>();
+            final boolean[] reachable = new boolean[classpathFiles.getCount()];
+            for (final File classpathFile : classpathFiles)
+            {
+                final int fileIndex = files.getCount();
+                files.add(classpathFile);
+                final JarClassIndex index = artifactCache.getValue(classpathFile, JarClassIndex.artifactCacheValueKind, () -> JarClassIndex.parse(classpathFile.getContents().await()))
+                    .catchError()
+                    .await();
+                indexes.add(index);
+                if (index == null || index.hasServiceProviders() || fileIndex == 0)
+                {
+                    reachable[fileIndex] = true;
+                }
+                if (index != null)
+                {
+                    for (final String className : index.getClassNames())
+                    {
+                        classFileIndexes.putIfAbsent(className, fileIndex);
+                    }
+                }
+            }
+
+            Iterable<File> result = classpathFiles;
+            final String mainClassName = mainClass.replace('.', '/');
+            if (classFileIndexes.containsKey(mainClassName))
+            {
+                final java.util.Set<String> visitedClassNames = new java.util.HashSet<>();
+                final java.util.ArrayDeque<String> classNamesToVisit = new java.util.ArrayDeque<>();
+                classNamesToVisit.add(mainClassName);
+                while (!classNamesToVisit.isEmpty())
+                {
+                    final String className = classNamesToVisit.removeFirst();
+                    if (visitedClassNames.add(className))
+                    {
+                        final Integer fileIndex = classFileIndexes.get(className);
+                        if (fileIndex != null)
+                        {
+                            reachable[fileIndex] = true;
+                            classNamesToVisit.addAll(indexes.get(fileIndex).getClassReferences(className));
+                        }
+                    }
+                }
+
+                final List<File> reachableFiles = List.create();
+                for (int i = 0; i < reachable.length; ++i)
+                {
+                    if (reachable[i])
+                    {
+                        reachableFiles.add(files.get(i));
+                    }
+                }
+                result = reachableFiles;
+            }
+            return result;
+        });
+    }
+}
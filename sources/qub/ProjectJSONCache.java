@@ -0,0 +1,165 @@
+package qub;
+
+/**
+ * A bounded cache of parsed project.json files. Entries are keyed by the file's path and are only
+ * reused while the file's last modified time and size are unchanged. When the cache is full, the
+ * least recently used entry is evicted.
+ */
+public class ProjectJSONCache
+{
+    /**
+     * The maximum number of entries that a ProjectJSONCache will hold if no maximum is specified.
+     */
+    public static final int defaultMaximumEntryCount = 256;
+
+    private final int maximumEntryCount;
+    private final java.util.LinkedHashMap<String,Entry> entries;
+    private final java.util.concurrent.atomic.LongAdder hitCount;
+    private final java.util.concurrent.atomic.LongAdder missCount;
+
+    private ProjectJSONCache(int maximumEntryCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(maximumEntryCount, 1, "maximumEntryCount");
+
+        this.maximumEntryCount = maximumEntryCount;
+        this.entries = new java.util.LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String,Entry> eldest)
+            {
+                return this.size() > ProjectJSONCache.this.maximumEntryCount;
+            }
+        };
+        this.hitCount = new java.util.concurrent.atomic.LongAdder();
+        this.missCount = new java.util.concurrent.atomic.LongAdder();
+    }
+
+    /**
+     * Create a new ProjectJSONCache that will hold at most
+     * {@link #defaultMaximumEntryCount} entries.
+     * @return The new ProjectJSONCache.
+     */
+    public static ProjectJSONCache create()
+    {
+        return ProjectJSONCache.create(ProjectJSONCache.defaultMaximumEntryCount);
+    }
+
+    /**
+     * Create a new ProjectJSONCache that will hold at most the provided number of entries.
+     * @param maximumEntryCount The maximum number of entries that the cache will hold.
+     * @return The new ProjectJSONCache.
+     */
+    public static ProjectJSONCache create(int maximumEntryCount)
+    {
+        return new ProjectJSONCache(maximumEntryCount);
+    }
+
+    /**
+     * Get the maximum number of entries that this cache will hold.
+     * @return The maximum number of entries that this cache will hold.
+     */
+    public int getMaximumEntryCount()
+    {
+        return this.maximumEntryCount;
+    }
+
+    /**
+     * Get the number of entries that are currently in this cache.
+     * @return The number of entries that are currently in this cache.
+     */
+    public synchronized int getEntryCount()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the number of times that a parse request was answered from this cache.
+     * @return The number of times that a parse request was answered from this cache.
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Get the number of times that a parse request had to parse the project.json file.
+     * @return The number of times that a parse request had to parse the project.json file.
+     */
+    public long getMissCount()
+    {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Remove all of the entries from this cache.
+     * @return This object for method chaining.
+     */
+    public synchronized ProjectJSONCache clear()
+    {
+        this.entries.clear();
+
+        return this;
+    }
+
+    /**
+     * Parse the provided project.json file, or return the previously parsed ProjectJSON object if
+     * the file hasn't changed since it was last parsed.
+     * @param projectJsonFile The project.json file to parse.
+     * @return The parsed ProjectJSON object.
+     */
+    public Result<ProjectJSON> parse(File projectJsonFile)
+    {
+        PreCondition.assertNotNull(projectJsonFile, "projectJsonFile");
+
+        return Result.create(() ->
+        {
+            final String key = projectJsonFile.getPath().toString();
+            final DateTime lastModified = projectJsonFile.getLastModified().await();
+            final long byteCount = projectJsonFile.getContentsByteCount().await();
+
+            ProjectJSON result;
+            synchronized (this)
+            {
+                final Entry entry = this.entries.get(key);
+                result = entry != null && entry.matches(lastModified, byteCount) ? entry.projectJson : null;
+            }
+
+            if (result != null)
+            {
+                this.hitCount.increment();
+            }
+            else
+            {
+                this.missCount.increment();
+                result = ProjectJSON.parse(projectJsonFile).await();
+                synchronized (this)
+                {
+                    this.entries.put(key, new Entry(lastModified, byteCount, result));
+                }
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    private static class Entry
+    {
+        private final DateTime lastModified;
+        private final long byteCount;
+        private final ProjectJSON projectJson;
+
+        private Entry(DateTime lastModified, long byteCount, ProjectJSON projectJson)
+        {
+            this.lastModified = lastModified;
+            this.byteCount = byteCount;
+            this.projectJson = projectJson;
+        }
+
+        private boolean matches(DateTime lastModified, long byteCount)
+        {
+            return this.byteCount == byteCount && Comparer.equal(this.lastModified, lastModified);
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package qub;
+
+/**
+ * A pull parser that scans the UTF-8 bytes of a project.json file for its signature and the
+ * entries in its "java"."dependencies" array. Unlike ProjectJSON.parse(), it doesn't decode the
+ * document into characters, it doesn't build a tree of the document, and it doesn't allocate
+ * strings for the keys that it reads. Keys and the values that it compares are matched against
+ * their UTF-8 encodings byte by byte, and a string is only allocated for a value that is returned.
+ */
+public class ProjectJSONDependencyScanner
+{
+    private static final byte[] javaKey = ProjectJSONDependencyScanner.getUtf8Bytes("java");
+    private static final byte[] dependenciesKey = ProjectJSONDependencyScanner.getUtf8Bytes("dependencies");
+    private static final byte[] publisherKey = ProjectJSONDependencyScanner.getUtf8Bytes("publisher");
+    private static final byte[] projectKey = ProjectJSONDependencyScanner.getUtf8Bytes("project");
+    private static final byte[] versionKey = ProjectJSONDependencyScanner.getUtf8Bytes("version");
+
+    private final byte[] bytes;
+    private final int length;
+    private int index;
+
+    private ProjectJSONDependencyScanner(byte[] bytes)
+    {
+        this.bytes = bytes;
+        this.length = bytes.length;
+
+        // Skip a UTF-8 byte order mark.
+        if (this.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF)
+        {
+            this.index = 3;
+        }
+    }
+
+    private static byte[] getUtf8Bytes(String value)
+    {
+        return value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get whether or not the provided project.json text has a dependency on the provided project.
+     * Any version of the project counts as a dependency. Text that isn't a valid project.json
+     * document doesn't have any dependencies.
+     * @param projectJsonText The text of the project.json file.
+     * @param publisher The publisher of the dependency to look for.
+     * @param project The name of the dependency to look for.
+     * @return Whether or not the project.json text has a dependency on the provided project.
+     */
+    public static boolean dependsOn(CharSequence projectJsonText, String publisher, String project)
+    {
+        PreCondition.assertNotNull(projectJsonText, "projectJsonText");
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+
+        return ProjectJSONDependencyScanner.dependsOn(ProjectJSONDependencyScanner.getUtf8Bytes(projectJsonText.toString()), publisher, project);
+    }
+
+    /**
+     * Get whether or not the provided UTF-8 encoded project.json bytes have a dependency on the
+     * provided project. Any version of the project counts as a dependency. Bytes that aren't a
+     * valid project.json document don't have any dependencies.
+     * @param projectJsonBytes The UTF-8 encoded bytes of the project.json file.
+     * @param publisher The publisher of the dependency to look for.
+     * @param project The name of the dependency to look for.
+     * @return Whether or not the project.json bytes have a dependency on the provided project.
+     */
+    public static boolean dependsOn(byte[] projectJsonBytes, String publisher, String project)
+    {
+        PreCondition.assertNotNull(projectJsonBytes, "projectJsonBytes");
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+
+        final ProjectJSONDependencyScanner scanner = new ProjectJSONDependencyScanner(projectJsonBytes);
+        boolean result;
+        try
+        {
+            result = scanner.scanRoot(ProjectJSONDependencyScanner.getUtf8Bytes(publisher), ProjectJSONDependencyScanner.getUtf8Bytes(project));
+        }
+        catch (ParseException error)
+        {
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Read the publisher, project, version, and direct dependencies of the provided UTF-8 encoded
+     * project.json bytes.
+     * @param projectJsonBytes The UTF-8 encoded bytes of the project.json file.
+     * @return The summary of the project.json file.
+     * @throws ParseException If the bytes aren't a valid JSON object.
+     */
+    public static ProjectJSONSummary summarize(byte[] projectJsonBytes)
+    {
+        PreCondition.assertNotNull(projectJsonBytes, "projectJsonBytes");
+
+        final ProjectJSONSummary result = new ProjectJSONDependencyScanner(projectJsonBytes).scanSummary();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private boolean scanRoot(byte[] publisher, byte[] project)
+    {
+        boolean result = false;
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final boolean isJava = this.readStringAndMatch(ProjectJSONDependencyScanner.javaKey) == 0;
+                this.expect(':');
+                if (isJava && this.peek() == '{')
+                {
+                    result = this.scanJava(publisher, project);
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (!result && this.tryRead(','));
+            if (!result)
+            {
+                this.expect('}');
+            }
+        }
+        return result;
+    }
+
+    private boolean scanJava(byte[] publisher, byte[] project)
+    {
+        boolean result = false;
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final boolean isDependencies = this.readStringAndMatch(ProjectJSONDependencyScanner.dependenciesKey) == 0;
+                this.expect(':');
+                if (isDependencies && this.peek() == '[')
+                {
+                    result = this.scanDependencies(publisher, project);
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (!result && this.tryRead(','));
+            if (!result)
+            {
+                this.expect('}');
+            }
+        }
+        return result;
+    }
+
+    private boolean scanDependencies(byte[] publisher, byte[] project)
+    {
+        boolean result = false;
+        this.expect('[');
+        if (!this.tryRead(']'))
+        {
+            do
+            {
+                if (this.peek() == '{')
+                {
+                    result = this.scanDependency(publisher, project);
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (!result && this.tryRead(','));
+            if (!result)
+            {
+                this.expect(']');
+            }
+        }
+        return result;
+    }
+
+    private boolean scanDependency(byte[] publisher, byte[] project)
+    {
+        boolean publisherMatches = false;
+        boolean projectMatches = false;
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final int key = this.readStringAndMatch(ProjectJSONDependencyScanner.publisherKey, ProjectJSONDependencyScanner.projectKey);
+                this.expect(':');
+                if (key == 0 && this.peek() == '"')
+                {
+                    publisherMatches = this.readStringAndMatch(publisher) == 0;
+                }
+                else if (key == 1 && this.peek() == '"')
+                {
+                    projectMatches = this.readStringAndMatch(project) == 0;
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (this.tryRead(','));
+            this.expect('}');
+        }
+        return publisherMatches && projectMatches;
+    }
+
+    private ProjectJSONSummary scanSummary()
+    {
+        final String[] signature = new String[3];
+        final List<ProjectSignature> dependencies = List.create();
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final int key = this.readStringAndMatch(
+                    ProjectJSONDependencyScanner.publisherKey,
+                    ProjectJSONDependencyScanner.projectKey,
+                    ProjectJSONDependencyScanner.versionKey,
+                    ProjectJSONDependencyScanner.javaKey);
+                this.expect(':');
+                if (0 <= key && key < signature.length && this.peek() == '"')
+                {
+                    signature[key] = this.readString();
+                }
+                else if (key == 3 && this.peek() == '{')
+                {
+                    this.scanJavaSummary(dependencies);
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (this.tryRead(','));
+            this.expect('}');
+        }
+        return new ProjectJSONSummary(signature[0], signature[1], signature[2], dependencies);
+    }
+
+    private void scanJavaSummary(List<ProjectSignature> dependencies)
+    {
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final boolean isDependencies = this.readStringAndMatch(ProjectJSONDependencyScanner.dependenciesKey) == 0;
+                this.expect(':');
+                if (isDependencies && this.peek() == '[')
+                {
+                    this.expect('[');
+                    if (!this.tryRead(']'))
+                    {
+                        do
+                        {
+                            if (this.peek() == '{')
+                            {
+                                this.scanDependencySummary(dependencies);
+                            }
+                            else
+                            {
+                                this.skipValue();
+                            }
+                        }
+                        while (this.tryRead(','));
+                        this.expect(']');
+                    }
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (this.tryRead(','));
+            this.expect('}');
+        }
+    }
+
+    private void scanDependencySummary(List<ProjectSignature> dependencies)
+    {
+        final String[] signature = new String[3];
+        this.expect('{');
+        if (!this.tryRead('}'))
+        {
+            do
+            {
+                final int key = this.readStringAndMatch(
+                    ProjectJSONDependencyScanner.publisherKey,
+                    ProjectJSONDependencyScanner.projectKey,
+                    ProjectJSONDependencyScanner.versionKey);
+                this.expect(':');
+                if (key >= 0 && this.peek() == '"')
+                {
+                    signature[key] = this.readString();
+                }
+                else
+                {
+                    this.skipValue();
+                }
+            }
+            while (this.tryRead(','));
+            this.expect('}');
+        }
+        if (!Strings.isNullOrEmpty(signature[0]) && !Strings.isNullOrEmpty(signature[1]) && !Strings.isNullOrEmpty(signature[2]))
+        {
+            dependencies.add(ProjectSignature.create(signature[0], signature[1], signature[2]));
+        }
+    }
+
+    /**
+     * Read a string and return the index of the first candidate that it is equal to, or -1 if it
+     * isn't equal to any of them. Strings without escape sequences are compared without decoding
+     * them.
+     */
+    private int readStringAndMatch(byte[]... candidates)
+    {
+        this.expect('"');
+        final int start = this.index;
+        final boolean hasEscapes = this.skipStringContents();
+        final int end = this.index - 1;
+
+        final String decoded = hasEscapes ? this.decodeString(start, end) : null;
+        int result = -1;
+        for (int i = 0; result == -1 && i < candidates.length; ++i)
+        {
+            final byte[] candidate = candidates[i];
+            if (decoded == null
+                ? java.util.Arrays.equals(this.bytes, start, end, candidate, 0, candidate.length)
+                : decoded.equals(new String(candidate, java.nio.charset.StandardCharsets.UTF_8)))
+            {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private String readString()
+    {
+        this.expect('"');
+        final int start = this.index;
+        final boolean hasEscapes = this.skipStringContents();
+        final int end = this.index - 1;
+        return hasEscapes
+            ? this.decodeString(start, end)
+            : new String(this.bytes, start, end - start, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Move past the contents and the end quote of a string whose start quote has already been
+     * read. Bytes that are part of a multi-byte UTF-8 sequence are always 0x80 or greater, so they
+     * can never be mistaken for a quote or a backslash.
+     * @return Whether or not the string contains any escape sequences.
+     */
+    private boolean skipStringContents()
+    {
+        boolean result = false;
+        while (true)
+        {
+            if (this.index >= this.length)
+            {
+                throw new ParseException("Missing end quote.");
+            }
+            final byte b = this.bytes[this.index++];
+            if (b == '"')
+            {
+                break;
+            }
+            else if (b == '\\')
+            {
+                result = true;
+                if (this.index >= this.length)
+                {
+                    throw new ParseException("Missing escaped character.");
+                }
+                if (this.bytes[this.index++] == 'u')
+                {
+                    if (this.index + 4 > this.length)
+                    {
+                        throw new ParseException("Invalid unicode escape sequence.");
+                    }
+                    for (int i = 0; i < 4; ++i)
+                    {
+                        if (Character.digit(this.bytes[this.index++], 16) < 0)
+                        {
+                            throw new ParseException("Invalid unicode escape sequence.");
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private String decodeString(int start, int end)
+    {
+        final StringBuilder result = new StringBuilder(end - start);
+        int runStart = start;
+        int i = start;
+        while (i < end)
+        {
+            if (this.bytes[i] != '\\')
+            {
+                ++i;
+            }
+            else
+            {
+                result.append(new String(this.bytes, runStart, i - runStart, java.nio.charset.StandardCharsets.UTF_8));
+                final byte escaped = this.bytes[i + 1];
+                i += 2;
+                switch (escaped)
+                {
+                    case 'b':
+                        result.append('\b');
+                        break;
+
+                    case 'f':
+                        result.append('\f');
+                        break;
+
+                    case 'n':
+                        result.append('\n');
+                        break;
+
+                    case 'r':
+                        result.append('\r');
+                        break;
+
+                    case 't':
+                        result.append('\t');
+                        break;
+
+                    case 'u':
+                        int value = 0;
+                        for (int j = 0; j < 4; ++j)
+                        {
+                            value = (value << 4) | Character.digit(this.bytes[i++], 16);
+                        }
+                        result.append((char)value);
+                        break;
+
+                    default:
+                        result.append((char)escaped);
+                        break;
+                }
+                runStart = i;
+            }
+        }
+        result.append(new String(this.bytes, runStart, end - runStart, java.nio.charset.StandardCharsets.UTF_8));
+        return result.toString();
+    }
+
+    private void skipValue()
+    {
+        final byte b = this.peek();
+        if (b == '"')
+        {
+            ++this.index;
+            this.skipStringContents();
+        }
+        else if (b == '{' || b == '[')
+        {
+            this.skipContainer();
+        }
+        else
+        {
+            final int start = this.index;
+            while (this.index < this.length && !ProjectJSONDependencyScanner.isValueEnd(this.bytes[this.index]))
+            {
+                ++this.index;
+            }
+            if (start == this.index)
+            {
+                throw new ParseException("Missing value.");
+            }
+        }
+    }
+
+    private static boolean isValueEnd(byte b)
+    {
+        return b == ',' || b == '}' || b == ']' || ProjectJSONDependencyScanner.isWhitespace(b);
+    }
+
+    private void skipContainer()
+    {
+        int depth = 0;
+        do
+        {
+            if (this.index >= this.length)
+            {
+                throw new ParseException("Missing closing bracket.");
+            }
+            final byte b = this.bytes[this.index++];
+            if (b == '"')
+            {
+                this.skipStringContents();
+            }
+            else if (b == '{' || b == '[')
+            {
+                ++depth;
+            }
+            else if (b == '}' || b == ']')
+            {
+                --depth;
+            }
+        }
+        while (depth > 0);
+    }
+
+    private byte peek()
+    {
+        this.skipWhitespace();
+        if (this.index >= this.length)
+        {
+            throw new ParseException("Unexpected end of text.");
+        }
+        return this.bytes[this.index];
+    }
+
+    private boolean tryRead(char expected)
+    {
+        final boolean result = this.peek() == expected;
+        if (result)
+        {
+            ++this.index;
+        }
+        return result;
+    }
+
+    private void expect(char expected)
+    {
+        if (!this.tryRead(expected))
+        {
+            throw new ParseException("Expected '" + expected + "'.");
+        }
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private void skipWhitespace()
+    {
+        while (this.index < this.length && ProjectJSONDependencyScanner.isWhitespace(this.bytes[this.index]))
+        {
+            ++this.index;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package qub;
+
+/**
+ * The fields of a project.json file that are needed to find a project's dependencies and
+ * dependents: its signature and its direct dependencies. A ProjectJSONSummary is much cheaper to
+ * read than a full ProjectJSON object. See {@link ProjectJSONDependencyScanner#summarize(byte[])}.
+ */
+public class ProjectJSONSummary
+{
+    private final String publisher;
+    private final String project;
+    private final String version;
+    private final Iterable<ProjectSignature> dependencies;
+
+    ProjectJSONSummary(String publisher, String project, String version, Iterable<ProjectSignature> dependencies)
+    {
+        PreCondition.assertNotNull(dependencies, "dependencies");
+
+        this.publisher = publisher;
+        this.project = project;
+        this.version = version;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Get the publisher of the project, or null if the project.json file doesn't have one.
+     * @return The publisher of the project.
+     */
+    public String getPublisher()
+    {
+        return this.publisher;
+    }
+
+    /**
+     * Get the name of the project, or null if the project.json file doesn't have one.
+     * @return The name of the project.
+     */
+    public String getProject()
+    {
+        return this.project;
+    }
+
+    /**
+     * Get the version of the project, or null if the project.json file doesn't have one.
+     * @return The version of the project.
+     */
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Get the direct dependencies in the project.json file's "java"."dependencies" array.
+     * Dependencies that don't have a publisher, project, and version are left out.
+     * @return The direct dependencies of the project.
+     */
+    public Iterable<ProjectSignature> getDependencies()
+    {
+        return this.dependencies;
+    }
+}
@@ -0,0 +1,19 @@
+package qub;
+
+/**
+ * The sets of artifacts that can be copied into a published version folder.
+ */
+public enum PublishProfile
+{
+    /**
+     * Publish the project.json file, the compiled sources jar, the sources jar, and the compiled
+     * tests jar.
+     */
+    Full,
+
+    /**
+     * Publish only the artifacts that are needed to run the project: the project.json file and the
+     * compiled sources jar.
+     */
+    Runtime
+}
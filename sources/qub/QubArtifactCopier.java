@@ -0,0 +1,42 @@
+package qub;
+
+/**
+ * An object that copies published artifacts into a QubProjectVersionFolder. Copies don't have to
+ * be durable until commit() is called, so that a publish only has to wait for its artifacts to
+ * reach the disk once instead of once per artifact.
+ */
+public interface QubArtifactCopier
+{
+    /**
+     * Create a new QubArtifactCopier that copies artifacts through the qub file system abstraction.
+     * @return The new QubArtifactCopier.
+     */
+    static FileSystemQubArtifactCopier create()
+    {
+        return FileSystemQubArtifactCopier.create();
+    }
+
+    /**
+     * Create a new QubArtifactCopier that copies artifacts on the local disk with FileChannels.
+     * @return The new QubArtifactCopier.
+     */
+    static FileChannelQubArtifactCopier createFileChannel()
+    {
+        return FileChannelQubArtifactCopier.create();
+    }
+
+    /**
+     * Copy the provided artifact into the provided folder. If the folder already contains a file
+     * with the artifact's name, then that file will be overwritten.
+     * @param artifact The artifact to copy.
+     * @param destinationFolder The folder to copy the artifact into.
+     * @return The number of bytes that were copied.
+     */
+    Result<Long> copy(File artifact, Folder destinationFolder);
+
+    /**
+     * Make every artifact that has been copied since the last commit durable.
+     * @return The result of committing the copied artifacts.
+     */
+    Result<Void> commit();
+}
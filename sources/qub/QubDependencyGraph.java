@@ -0,0 +1,411 @@
+package qub;
+
+/**
+ * The transitive dependency graph of a project. The graph is resolved one level at a time, and the
+ * project.json files of every project in a level are read at the same time, so resolving a wide
+ * graph on a slow qub folder takes one round of reads per level instead of one per project.
+ * Projects that were published with a metadata file have their dependencies read from it instead
+ * of from their project.json file, and the dependencies of every project in their recorded
+ * transitive closure are read without waiting for the levels that those projects are in. Each
+ * project is only visited once, and projects that appear in the graph with more than one version
+ * are recorded as conflicts while the graph is resolved.
+ */
+public class QubDependencyGraph
+{
+    private final Iterable<ProjectSignature> rootDependencies;
+    private final java.util.Map<String,Iterable<ProjectSignature>> dependencies;
+    private final java.util.Map<String,Integer> depths;
+    private final java.util.Map<String,java.util.Set<String>> versions;
+
+    private QubDependencyGraph(Iterable<ProjectSignature> rootDependencies)
+    {
+        this.rootDependencies = rootDependencies;
+        this.dependencies = new java.util.concurrent.ConcurrentHashMap<>();
+        this.depths = new java.util.concurrent.ConcurrentHashMap<>();
+        this.versions = new java.util.concurrent.ConcurrentHashMap<>();
+    }
+
+    /**
+     * Resolve the transitive dependency graph of the provided dependencies.
+     * @param rootDependencies The direct dependencies of the project whose graph will be resolved.
+     * @param qubFolder The qub folder that the dependencies are published to.
+     * @param executor The executor that will read the project.json files of each level.
+     * @return The resolved graph.
+     */
+    public static Result<QubDependencyGraph> resolve(Iterable<ProjectSignature> rootDependencies, QubFolder qubFolder, java.util.concurrent.Executor executor)
+    {
+        return QubDependencyGraph.resolve(rootDependencies, qubFolder, executor, new java.util.concurrent.ConcurrentHashMap<>());
+    }
+
+    /**
+     * Resolve the transitive dependency graph of the provided dependencies.
+     * @param rootDependencies The direct dependencies of the project whose graph will be resolved.
+     * @param qubFolder The qub folder that the dependencies are published to.
+     * @param executor The executor that will read the project.json files of each level.
+     * @param dependencyCache The direct dependencies of projects that have already been read, keyed
+     *                        by project signature. Projects that are in this cache won't have their
+     *                        project.json files read again, and projects that are read will be added
+     *                        to it. The cache is read and written from the executor's threads, so
+     *                        it must be safe to use from more than one thread.
+     * @return The resolved graph.
+     */
+    public static Result<QubDependencyGraph> resolve(Iterable<ProjectSignature> rootDependencies, QubFolder qubFolder, java.util.concurrent.Executor executor, java.util.Map<String,Iterable<ProjectSignature>> dependencyCache)
+    {
+        PreCondition.assertNotNull(rootDependencies, "rootDependencies");
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(executor, "executor");
+        PreCondition.assertNotNull(dependencyCache, "dependencyCache");
+
+        return Result.create(() ->
+        {
+            final QubDependencyGraph result = new QubDependencyGraph(rootDependencies);
+            final java.util.Set<String> visited = java.util.concurrent.ConcurrentHashMap.newKeySet();
+            final java.util.concurrent.ConcurrentMap<String,java.util.concurrent.CompletableFuture<Iterable<ProjectSignature>>> reads = new java.util.concurrent.ConcurrentHashMap<>();
+
+            java.util.Queue<ProjectSignature> level = new java.util.concurrent.ConcurrentLinkedQueue<>();
+            for (final ProjectSignature dependency : rootDependencies)
+            {
+                result.visit(dependency, 1, visited, level);
+            }
+
+            int depth = 1;
+            while (!level.isEmpty())
+            {
+                final int nextDepth = depth + 1;
+                final java.util.Queue<ProjectSignature> nextLevel = new java.util.concurrent.ConcurrentLinkedQueue<>();
+                final List<java.util.concurrent.CompletableFuture<Void>> levelReads = List.create();
+                for (final ProjectSignature dependency : level)
+                {
+                    final Iterable<ProjectSignature> cachedDependencies = dependencyCache.get(dependency.toString());
+                    if (cachedDependencies != null)
+                    {
+                        result.addDependencies(dependency, cachedDependencies, nextDepth, visited, nextLevel);
+                    }
+                    else
+                    {
+                        levelReads.add(QubDependencyGraph.read(dependency, qubFolder, executor, dependencyCache, reads)
+                            .thenAccept((Iterable<ProjectSignature> dependencyDependencies) ->
+                            {
+                                result.addDependencies(dependency, dependencyDependencies == null ? Iterable.create() : dependencyDependencies, nextDepth, visited, nextLevel);
+                            }));
+                    }
+                }
+
+                for (final java.util.concurrent.CompletableFuture<Void> levelRead : levelReads)
+                {
+                    try
+                    {
+                        levelRead.join();
+                    }
+                    catch (java.util.concurrent.CompletionException error)
+                    {
+                        throw Exceptions.asRuntime(error.getCause());
+                    }
+                }
+
+                level = nextLevel;
+                depth = nextDepth;
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Start reading the direct dependencies of the provided dependency if they aren't already being
+     * read. When the dependency was published with a metadata file, the dependencies of every
+     * project in its recorded transitive closure are read at the same time instead of waiting for
+     * the levels that they are in, and are added to the provided dependency cache.
+     * @param dependency The dependency to read the direct dependencies of.
+     * @param qubFolder The qub folder that the dependency is published to.
+     * @param executor The executor that will read the dependencies.
+     * @param dependencyCache The cache that the read dependencies will be added to.
+     * @param reads The reads that have already been started, keyed by project signature.
+     * @return The read of the provided dependency's direct dependencies. The read completes with
+     * null if the dependency isn't published.
+     */
+    private static java.util.concurrent.CompletableFuture<Iterable<ProjectSignature>> read(ProjectSignature dependency, QubFolder qubFolder, java.util.concurrent.Executor executor, java.util.Map<String,Iterable<ProjectSignature>> dependencyCache, java.util.concurrent.ConcurrentMap<String,java.util.concurrent.CompletableFuture<Iterable<ProjectSignature>>> reads)
+    {
+        final String dependencyString = dependency.toString();
+        final java.util.concurrent.CompletableFuture<Iterable<ProjectSignature>> newRead = new java.util.concurrent.CompletableFuture<>();
+        java.util.concurrent.CompletableFuture<Iterable<ProjectSignature>> result = reads.putIfAbsent(dependencyString, newRead);
+        if (result == null)
+        {
+            result = newRead;
+            executor.execute(() ->
+            {
+                try
+                {
+                    final QubProjectVersionFolder dependencyVersionFolder = qubFolder.getProjectVersionFolder(
+                        dependency.getPublisher(),
+                        dependency.getProject(),
+                        dependency.getVersion()).await();
+                    final QubPublishMetadata metadata = QubPublishMetadata.read(dependencyVersionFolder)
+                        .catchError()
+                        .await();
+                    final Iterable<ProjectSignature> dependencyDependencies;
+                    if (metadata != null)
+                    {
+                        for (final ProjectSignature transitiveDependency : metadata.getTransitiveDependencies())
+                        {
+                            if (!dependencyCache.containsKey(transitiveDependency.toString()))
+                            {
+                                QubDependencyGraph.read(transitiveDependency, qubFolder, executor, dependencyCache, reads);
+                            }
+                        }
+                        dependencyDependencies = metadata.getDependencies();
+                    }
+                    else
+                    {
+                        dependencyDependencies = QubPublishMetadata.readDependencies(dependencyVersionFolder)
+                            .catchError(FileNotFoundException.class)
+                            .await();
+                    }
+
+                    if (dependencyDependencies != null)
+                    {
+                        dependencyCache.putIfAbsent(dependencyString, dependencyDependencies);
+                    }
+                    newRead.complete(dependencyDependencies);
+                }
+                catch (Throwable error)
+                {
+                    newRead.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private void addDependencies(ProjectSignature dependency, Iterable<ProjectSignature> dependencyDependencies, int depth, java.util.Set<String> visited, java.util.Queue<ProjectSignature> level)
+    {
+        this.dependencies.put(dependency.toString(), dependencyDependencies);
+        for (final ProjectSignature dependencyDependency : dependencyDependencies)
+        {
+            this.visit(dependencyDependency, depth, visited, level);
+        }
+    }
+
+    private void visit(ProjectSignature dependency, int depth, java.util.Set<String> visited, java.util.Queue<ProjectSignature> level)
+    {
+        final String dependencyString = dependency.toString();
+        if (visited.add(dependencyString))
+        {
+            this.depths.put(dependencyString, depth);
+            this.versions.computeIfAbsent(QubDependencyGraph.getProjectKey(dependency), (String projectKey) -> java.util.concurrent.ConcurrentHashMap.newKeySet())
+                .add(dependency.getVersion().toString());
+            level.add(dependency);
+        }
+    }
+
+    private static String getProjectKey(ProjectSignature dependency)
+    {
+        return dependency.getPublisher() + "/" + dependency.getProject();
+    }
+
+    /**
+     * Get every project in this graph in classpath order. The order is the same as the order that
+     * a depth-first walk of the graph that visits each dependency's last dependency first would
+     * produce, so it doesn't depend on the order that the project.json files were read in.
+     * @return Every project in this graph in classpath order.
+     */
+    public Iterable<ProjectSignature> getTransitiveDependencies()
+    {
+        final Iterable<ProjectSignature> result = this.walk(new java.util.TreeMap<>(), new java.util.HashSet<>(), new java.util.HashSet<>());
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    /**
+     * Walk this graph in classpath order. A dependency whose project has an entry in the provided
+     * conflict resolutions but a different version is a losing version, and the projects that only
+     * it depends on aren't walked. If the losing version's project is in the provided substituted
+     * projects, then the resolved version is walked in its place.
+     * @param conflictResolutions The version that each conflicting project resolves to.
+     * @param substitutedProjects The projects whose resolved version replaces their losing
+     *                            versions.
+     * @param skippedProjects The projects that had a losing version skipped during the walk. This
+     *                        will be populated by the walk.
+     * @return Every walked project in classpath order.
+     */
+    private List<ProjectSignature> walk(java.util.Map<String,String> conflictResolutions, java.util.Set<String> substitutedProjects, java.util.Set<String> skippedProjects)
+    {
+        final List<ProjectSignature> result = List.create();
+        final java.util.Set<String> visited = new java.util.HashSet<>();
+        final List<ProjectSignature> toVisit = List.create();
+        toVisit.addAll(this.rootDependencies);
+        while (toVisit.any())
+        {
+            ProjectSignature dependency = toVisit.removeLast();
+            final String projectKey = QubDependencyGraph.getProjectKey(dependency);
+            final String resolvedVersion = conflictResolutions.get(projectKey);
+            if (resolvedVersion != null && !resolvedVersion.equals(dependency.getVersion().toString()))
+            {
+                if (substitutedProjects.contains(projectKey))
+                {
+                    dependency = ProjectSignature.create(dependency.getPublisher(), dependency.getProject(), resolvedVersion);
+                }
+                else
+                {
+                    skippedProjects.add(projectKey);
+                    dependency = null;
+                }
+            }
+
+            if (dependency != null)
+            {
+                final String dependencyString = dependency.toString();
+                if (visited.add(dependencyString))
+                {
+                    result.add(dependency);
+
+                    final Iterable<ProjectSignature> dependencyDependencies = this.dependencies.get(dependencyString);
+                    if (dependencyDependencies != null)
+                    {
+                        toVisit.addAll(dependencyDependencies);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of dependency edges between the root project and the provided dependency
+     * along the shortest path. The root project's direct dependencies have a depth of 1.
+     * @param dependency The dependency to get the depth of.
+     * @return The depth of the provided dependency, or -1 if it isn't in this graph.
+     */
+    public int getDepth(ProjectSignature dependency)
+    {
+        PreCondition.assertNotNull(dependency, "dependency");
+
+        final Integer result = this.depths.get(dependency.toString());
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Get whether or not any project appears in this graph with more than one version.
+     * @return Whether or not any project appears in this graph with more than one version.
+     */
+    public boolean hasConflicts()
+    {
+        return !this.getConflicts().isEmpty();
+    }
+
+    /**
+     * Get the projects that appear in this graph with more than one version, sorted by publisher and
+     * project. The value of each entry is the versions of that project in the graph, from oldest to
+     * newest.
+     * @return The projects that appear in this graph with more than one version.
+     */
+    public java.util.SortedMap<String,Iterable<String>> getConflicts()
+    {
+        final java.util.SortedMap<String,Iterable<String>> result = new java.util.TreeMap<>();
+        for (final java.util.Map.Entry<String,java.util.Set<String>> entry : this.versions.entrySet())
+        {
+            if (entry.getValue().size() > 1)
+            {
+                result.put(entry.getKey(), QubProjectVersionIndex.create(Iterable.create(entry.getValue().toArray(new String[0]))).getVersions());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the version of each conflicting project that the provided strategy resolves to, sorted by
+     * publisher and project.
+     * @param strategy The strategy that will be used to resolve each conflict.
+     * @return The version of each conflicting project that the provided strategy resolves to.
+     */
+    public java.util.SortedMap<String,String> getConflictResolutions(DependencyConflictStrategy strategy)
+    {
+        PreCondition.assertNotNull(strategy, "strategy");
+
+        final java.util.SortedMap<String,Iterable<String>> conflicts = this.getConflicts();
+        if (strategy == DependencyConflictStrategy.Fail && !conflicts.isEmpty())
+        {
+            final List<String> conflictDescriptions = List.create();
+            for (final java.util.Map.Entry<String,Iterable<String>> conflict : conflicts.entrySet())
+            {
+                conflictDescriptions.add(conflict.getKey() + " (" + String.join(", ", conflict.getValue()) + ")");
+            }
+            throw new RuntimeException("Found conflicting versions in the dependency graph: " + String.join(", ", conflictDescriptions) + ".");
+        }
+
+        final java.util.SortedMap<String,String> result = new java.util.TreeMap<>();
+        if (!conflicts.isEmpty())
+        {
+            if (strategy == DependencyConflictStrategy.Highest)
+            {
+                for (final java.util.Map.Entry<String,Iterable<String>> conflict : conflicts.entrySet())
+                {
+                    result.put(conflict.getKey(), conflict.getValue().last());
+                }
+            }
+            else
+            {
+                final java.util.Map<String,Integer> resolvedDepths = new java.util.HashMap<>();
+                for (final ProjectSignature dependency : this.getTransitiveDependencies())
+                {
+                    final String projectKey = QubDependencyGraph.getProjectKey(dependency);
+                    if (conflicts.containsKey(projectKey))
+                    {
+                        final int depth = this.getDepth(dependency);
+                        final Integer resolvedDepth = resolvedDepths.get(projectKey);
+                        if (resolvedDepth == null || depth < resolvedDepth)
+                        {
+                            resolvedDepths.put(projectKey, depth);
+                            result.put(projectKey, dependency.getVersion().toString());
+                        }
+                    }
+                }
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    /**
+     * Get every project in this graph in classpath order with each conflicting project resolved
+     * to a single version by the provided strategy. The projects that only a losing version depends
+     * on aren't included.
+     * @param strategy The strategy that will be used to resolve each conflict.
+     * @return Every project in this graph in classpath order with each project appearing once.
+     */
+    public Iterable<ProjectSignature> getTransitiveDependencies(DependencyConflictStrategy strategy)
+    {
+        PreCondition.assertNotNull(strategy, "strategy");
+
+        final java.util.SortedMap<String,String> conflictResolutions = this.getConflictResolutions(strategy);
+
+        // Losing versions are left out along with everything that only they depend on. If a
+        // resolved version could only be reached through a losing version of its own project, then
+        // walk the graph again with the resolved version in the losing version's place.
+        final java.util.Set<String> substitutedProjects = new java.util.HashSet<>();
+        List<ProjectSignature> result;
+        while (true)
+        {
+            final java.util.Set<String> skippedProjects = new java.util.HashSet<>();
+            result = this.walk(conflictResolutions, substitutedProjects, skippedProjects);
+
+            for (final ProjectSignature dependency : result)
+            {
+                skippedProjects.remove(QubDependencyGraph.getProjectKey(dependency));
+            }
+            if (skippedProjects.isEmpty())
+            {
+                break;
+            }
+            substitutedProjects.addAll(skippedProjects);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package qub;
+
+/**
+ * A lock that was acquired by a QubProjectLocker. The lock is released when this object is
+ * disposed.
+ */
+public class QubProjectLock implements Disposable
+{
+    private final Action0 releaseAction;
+    private boolean disposed;
+
+    QubProjectLock(Action0 releaseAction)
+    {
+        PreCondition.assertNotNull(releaseAction, "releaseAction");
+
+        this.releaseAction = releaseAction;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.releaseAction.run();
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package qub;
+
+/**
+ * An object that can acquire exclusive access to a QubProjectFolder so that only one publish can
+ * allocate and commit a version of a project at a time.
+ */
+public interface QubProjectLocker
+{
+    /**
+     * Create a new QubProjectLocker that only prevents concurrent publishes of the same project
+     * within the current process.
+     * @return The new QubProjectLocker.
+     */
+    static InProcessQubProjectLocker create()
+    {
+        return InProcessQubProjectLocker.create();
+    }
+
+    /**
+     * Create a new QubProjectLocker that uses lock files in the qub folder to prevent concurrent
+     * publishes of the same project across all processes on the current machine.
+     * @return The new QubProjectLocker.
+     */
+    static FileChannelQubProjectLocker createFileChannel()
+    {
+        return FileChannelQubProjectLocker.create();
+    }
+
+    /**
+     * Acquire exclusive access to the provided QubProjectFolder. This will block until any other
+     * holder of the lock releases it. The lock is released when the returned Disposable is
+     * disposed.
+     * @param projectFolder The QubProjectFolder to lock.
+     * @return The Disposable that will release the lock when it is disposed.
+     */
+    Result<Disposable> lock(QubProjectFolder projectFolder);
+}
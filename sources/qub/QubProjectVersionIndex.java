@@ -0,0 +1,396 @@
+package qub;
+
+/**
+ * A sorted index of the versions of a project that have been published to a qub folder. The index
+ * is stored in a "versions.json" file in the project's folder and is updated when a new version is
+ * published, so that finding the latest version or the versions within a range doesn't require
+ * sorting every version folder. The stored index is the source of truth for the project's
+ * versions, so reading it doesn't list the version folders. It is only rebuilt from them when it is
+ * missing, can't be parsed, or is clearly stale because its latest version folder no longer exists
+ * or the next major version folder already does. Versions are ordered numerically, so "7.10" comes
+ * after "7.9".
+ */
+public class QubProjectVersionIndex
+{
+    /**
+     * The name of the file within a QubProjectFolder that the version index is written to.
+     */
+    public static final String fileName = "versions.json";
+
+    private static final String versionsPropertyName = "versions";
+
+    private final java.util.TreeSet<String> versions;
+
+    private QubProjectVersionIndex()
+    {
+        this.versions = new java.util.TreeSet<>(QubProjectVersionIndex::compareVersions);
+    }
+
+    /**
+     * Create a new QubProjectVersionIndex that contains the provided versions.
+     * @param versions The versions that the index will contain.
+     * @return The new QubProjectVersionIndex.
+     */
+    public static QubProjectVersionIndex create(Iterable<String> versions)
+    {
+        PreCondition.assertNotNull(versions, "versions");
+
+        final QubProjectVersionIndex result = new QubProjectVersionIndex();
+        for (final String version : versions)
+        {
+            result.add(version);
+        }
+        return result;
+    }
+
+    /**
+     * Get the version index of the provided project folder. If the project folder doesn't have a
+     * version index file, the file can't be parsed, or the index is stale, then the index will be
+     * built from the project's version folders.
+     * @param projectFolder The project folder to get the version index of.
+     * @return The version index of the provided project folder.
+     */
+    public static Result<QubProjectVersionIndex> get(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            final String indexText = QubProjectVersionIndex.getFile(projectFolder).await()
+                .getContentsAsString()
+                .catchError(FileNotFoundException.class)
+                .await();
+
+            QubProjectVersionIndex result = null;
+            if (indexText != null)
+            {
+                final JSONArray versionsJson = JSON.parseObject(indexText)
+                    .then((JSONObject indexJson) -> indexJson.getArray(QubProjectVersionIndex.versionsPropertyName).await())
+                    .catchError()
+                    .await();
+                if (versionsJson != null)
+                {
+                    result = new QubProjectVersionIndex();
+                    for (final JSONSegment element : versionsJson)
+                    {
+                        if (element instanceof JSONString)
+                        {
+                            result.add(((JSONString)element).getValue());
+                        }
+                    }
+                }
+            }
+
+            if (result == null || result.isStale(projectFolder))
+            {
+                result = QubProjectVersionIndex.build(projectFolder).await();
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    /**
+     * Build the version index of the provided project folder from its version folders.
+     * @param projectFolder The project folder to build the version index of.
+     * @return The built version index.
+     */
+    public static Result<QubProjectVersionIndex> build(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            final QubProjectVersionIndex result = new QubProjectVersionIndex();
+            if (projectFolder.exists().await())
+            {
+                for (final QubProjectVersionFolder versionFolder : projectFolder.iterateProjectVersionFolders())
+                {
+                    final VersionNumber version = versionFolder.getVersion().catchError().await();
+                    if (version != null && version.any())
+                    {
+                        result.add(version.toString());
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Get whether this index is out of date with the provided project folder's version folders.
+     * This only checks the folders of the latest indexed version and the next major version, so
+     * it doesn't need to list every version folder.
+     * @param projectFolder The project folder that this index was read from.
+     * @return Whether this index should be rebuilt from the project's version folders.
+     */
+    private boolean isStale(QubProjectFolder projectFolder)
+    {
+        boolean result = false;
+
+        final String latestVersion = this.getLatestVersion();
+        if (latestVersion != null && !projectFolder.getProjectVersionFolder(latestVersion).await().exists().await())
+        {
+            result = true;
+        }
+        else
+        {
+            final Integer latestMajor = this.getLatestMajor();
+            if (latestVersion == null || latestMajor != null)
+            {
+                final String nextMajor = Integer.toString(latestMajor == null ? 1 : latestMajor + 1);
+                result = projectFolder.getProjectVersionFolder(nextMajor).await().exists().await();
+            }
+        }
+
+        return result;
+    }
+
+    private static Result<File> getFile(QubProjectFolder projectFolder)
+    {
+        return projectFolder.getFile(QubProjectVersionIndex.fileName);
+    }
+
+    /**
+     * Compare the provided versions numerically. Runs of digits are compared by their numeric
+     * value and everything else is compared by character. Versions that are only numerically equal,
+     * such as "07" and "7", are ordered by character so that they remain different versions.
+     * @param lhs The first version to compare.
+     * @param rhs The second version to compare.
+     * @return A negative number if lhs comes before rhs, zero if they are equal, or a positive
+     * number if lhs comes after rhs.
+     */
+    public static int compareVersions(String lhs, String rhs)
+    {
+        PreCondition.assertNotNull(lhs, "lhs");
+        PreCondition.assertNotNull(rhs, "rhs");
+
+        int result = 0;
+        int lhsIndex = 0;
+        int rhsIndex = 0;
+        while (result == 0 && lhsIndex < lhs.length() && rhsIndex < rhs.length())
+        {
+            final char lhsCharacter = lhs.charAt(lhsIndex);
+            final char rhsCharacter = rhs.charAt(rhsIndex);
+            if (QubProjectVersionIndex.isDigit(lhsCharacter) && QubProjectVersionIndex.isDigit(rhsCharacter))
+            {
+                while (lhsIndex < lhs.length() - 1 && lhs.charAt(lhsIndex) == '0' && QubProjectVersionIndex.isDigit(lhs.charAt(lhsIndex + 1)))
+                {
+                    ++lhsIndex;
+                }
+                while (rhsIndex < rhs.length() - 1 && rhs.charAt(rhsIndex) == '0' && QubProjectVersionIndex.isDigit(rhs.charAt(rhsIndex + 1)))
+                {
+                    ++rhsIndex;
+                }
+                final int lhsDigitsEnd = QubProjectVersionIndex.getDigitsEnd(lhs, lhsIndex);
+                final int rhsDigitsEnd = QubProjectVersionIndex.getDigitsEnd(rhs, rhsIndex);
+                result = Integer.compare(lhsDigitsEnd - lhsIndex, rhsDigitsEnd - rhsIndex);
+                while (result == 0 && lhsIndex < lhsDigitsEnd)
+                {
+                    result = Character.compare(lhs.charAt(lhsIndex++), rhs.charAt(rhsIndex++));
+                }
+                lhsIndex = lhsDigitsEnd;
+                rhsIndex = rhsDigitsEnd;
+            }
+            else
+            {
+                result = Character.compare(lhsCharacter, rhsCharacter);
+                ++lhsIndex;
+                ++rhsIndex;
+            }
+        }
+        if (result == 0)
+        {
+            result = Integer.compare(lhs.length() - lhsIndex, rhs.length() - rhsIndex);
+        }
+        if (result == 0)
+        {
+            result = lhs.compareTo(rhs);
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char character)
+    {
+        return '0' <= character && character <= '9';
+    }
+
+    private static int getDigitsEnd(String text, int startIndex)
+    {
+        int result = startIndex;
+        while (result < text.length() && QubProjectVersionIndex.isDigit(text.charAt(result)))
+        {
+            ++result;
+        }
+        return result;
+    }
+
+    /**
+     * Add the provided version to this index.
+     * @param version The version to add.
+     * @return This object for method chaining.
+     */
+    public QubProjectVersionIndex add(String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        this.versions.add(version);
+
+        return this;
+    }
+
+    /**
+     * Get whether or not this index contains the provided version.
+     * @param version The version to look for.
+     * @return Whether or not this index contains the provided version.
+     */
+    public boolean contains(String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        return this.versions.contains(version);
+    }
+
+    /**
+     * Get the number of versions in this index.
+     * @return The number of versions in this index.
+     */
+    public int getCount()
+    {
+        return this.versions.size();
+    }
+
+    /**
+     * Get all of the versions in this index, from oldest to newest.
+     * @return All of the versions in this index, from oldest to newest.
+     */
+    public Iterable<String> getVersions()
+    {
+        return QubProjectVersionIndex.toList(this.versions);
+    }
+
+    /**
+     * Get the latest version in this index, or null if this index is empty.
+     * @return The latest version in this index, or null if this index is empty.
+     */
+    public String getLatestVersion()
+    {
+        return this.versions.isEmpty() ? null : this.versions.last();
+    }
+
+    /**
+     * Get the latest version in this index that has the provided major version number, or null if
+     * this index doesn't contain any versions with the provided major version number.
+     * @param major The major version number.
+     * @return The latest version with the provided major version number.
+     */
+    public String getLatestVersion(int major)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(major, 0, "major");
+
+        final String result = this.versions.lower(Integer.toString(major + 1));
+        return result != null && QubProjectVersionIndex.getMajor(result) == major ? result : null;
+    }
+
+    /**
+     * Get the major version number of the latest version in this index, or null if this index
+     * doesn't contain any versions that start with a major version number.
+     * @return The major version number of the latest version in this index.
+     */
+    public Integer getLatestMajor()
+    {
+        Integer result = null;
+        final String latestVersion = this.getLatestVersion();
+        if (latestVersion != null)
+        {
+            final int major = QubProjectVersionIndex.getMajor(latestVersion);
+            if (major >= 0)
+            {
+                result = major;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the newest version in this index that is older than the provided version, or null if
+     * this index doesn't contain any versions that are older than the provided version.
+     * @param version The version that the returned version will be older than.
+     * @return The newest version in this index that is older than the provided version.
+     */
+    public String getPreviousVersion(String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        return this.versions.lower(version);
+    }
+
+    /**
+     * Get the versions in this index that are newer than the provided version, from oldest to
+     * newest. The provided version doesn't need to be in this index.
+     * @param version The version that the returned versions will be newer than.
+     * @return The versions in this index that are newer than the provided version.
+     */
+    public Iterable<String> getVersionsNewerThan(String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        return QubProjectVersionIndex.toList(this.versions.tailSet(version, false));
+    }
+
+    private static List<String> toList(java.util.SortedSet<String> versions)
+    {
+        final List<String> result = List.create();
+        for (final String version : versions)
+        {
+            result.add(version);
+        }
+        return result;
+    }
+
+    private static int getMajor(String version)
+    {
+        final int digitsEnd = QubProjectVersionIndex.getDigitsEnd(version, 0);
+        return digitsEnd == 0 || digitsEnd > 9 ? -1 : Integer.parseInt(version.substring(0, digitsEnd));
+    }
+
+    /**
+     * Write this index to the provided project folder's version index file.
+     * @param projectFolder The project folder to write this index to.
+     * @return The result of writing this index.
+     */
+    public Result<Void> writeTo(QubProjectFolder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return Result.create(() ->
+        {
+            QubProjectVersionIndex.getFile(projectFolder).await()
+                .setContentsAsString(this.toJson().toString())
+                .await();
+        });
+    }
+
+    /**
+     * Get the JSON representation of this index.
+     * @return The JSON representation of this index.
+     */
+    public JSONObject toJson()
+    {
+        final JSONArray versionsJson = JSONArray.create();
+        for (final String version : this.versions)
+        {
+            versionsJson.add(JSONString.get(version));
+        }
+        return JSONObject.create()
+            .setArray(QubProjectVersionIndex.versionsPropertyName, versionsJson);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.toJson().toString();
+    }
+}
@@ -17,6 +17,125 @@ public interface QubPublish
             .setDescription("The folder to publish. Defaults to the current folder.");
     }
 
+    static CommandLineParameter<String> addEventsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addString("events")
+            .setValueName("<events-file>")
+            .setDescription("The file that newline-delimited JSON progress events will be written to.");
+    }
+
+    static CommandLineParameter<String> addMetricsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addString("metrics")
+            .setValueName("<metrics-file>")
+            .setDescription("The file that publish metrics will be written to in the Prometheus text format.");
+    }
+
+    static CommandLineParameterBoolean addDeferDependentsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("deferdependents")
+            .setDescription("Whether or not to finish as soon as the project is published and write the projects that depend on it to a file in the background.");
+    }
+
+    static CommandLineParameterBoolean addTrustTestJsonParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("trusttestjson")
+            .setDescription("Whether or not to skip packing when an existing test.json file shows that the current compiled outputs already passed their tests.");
+    }
+
+    static CommandLineParameterBoolean addNativeImageParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("nativeimage")
+            .setDescription("Whether or not to build a native executable with GraalVM's native-image tool for projects that have a main class.");
+    }
+
+    static CommandLineParameterBoolean addJlinkParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("jlink")
+            .setDescription("Whether or not to run projects that have a main class on a minimal runtime image that is created with jdeps and jlink.");
+    }
+
+    static CommandLineParameterBoolean addDryRunParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("dryrun")
+            .setDescription("Whether or not to only show the version, artifacts, shortcut, classpath, and dependent projects that would be published without packing or publishing anything.");
+    }
+
+    static CommandLineParameter<DependencyConflictStrategy> addConflictsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addEnum("conflicts", DependencyConflictStrategy.Nearest)
+            .setValueName("<nearest|highest|fail>")
+            .setDescription("How to handle a dependency that appears in the dependency graph with more than one version. Can be either \"nearest\", \"highest\", or \"fail\". Defaults to \"nearest\".");
+    }
+
+    static CommandLineParameterBoolean addPruneParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("prune")
+            .setDescription("Whether or not to leave dependency jars that the main class can't reach off of the shortcut's classpath.");
+    }
+
+    static CommandLineParameterBoolean addAllShortcutsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("allshortcuts")
+            .setDescription("Whether or not to regenerate the shortcuts of the latest version of every published project that has a main class instead of publishing.");
+    }
+
+    static CommandLineParameter<PublishProfile> addProfileParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addEnum("profile", PublishProfile.Full)
+            .setValueName("<full|runtime>")
+            .setDescription("Which artifacts to publish. \"runtime\" only publishes the project.json file and the compiled sources jar. Defaults to \"full\".");
+    }
+
+    static CommandLineParameterBoolean addClassDataParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("classdata")
+            .setDescription("Whether or not to record a class data sharing archive with a training run for projects that have a main class and have the shortcut use it.");
+    }
+
+    static CommandLineParameterBoolean addVirtualThreadsParameter(CommandLineParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        return parameters.addBoolean("virtualthreads")
+            .setDescription("Whether or not to run the artifact copies, the dependent project scan, and the dependency lookups on virtual threads. Falls back to platform threads if the Java runtime doesn't have virtual threads.");
+    }
+
+    static File getFile(DesktopProcess process, String filePath)
+    {
+        PreCondition.assertNotNull(process, "process");
+        PreCondition.assertNotNullAndNotEmpty(filePath, "filePath");
+
+        final Path path = Path.parse(filePath);
+        return path.isRooted()
+            ? process.getFileSystem().getFile(path).await()
+            : process.getCurrentFolder().getFile(path).await();
+    }
+
     static QubPublishParameters getParameters(DesktopProcess process)
     {
         PreCondition.assertNotNull(process, "process");
@@ -30,6 +149,19 @@ public interface QubPublish
         final CommandLineParameter<Coverage> coverageParameter = QubTestRun.addCoverageParameter(parameters);
         final CommandLineParameterBoolean buildJsonParameter = QubBuildCompile.addBuildJsonParameter(parameters);
         final CommandLineParameter<Warnings> warningsParameter = QubBuildCompile.addWarningsParameter(parameters);
+        final CommandLineParameter<String> eventsParameter = QubPublish.addEventsParameter(parameters);
+        final CommandLineParameter<String> metricsParameter = QubPublish.addMetricsParameter(parameters);
+        final CommandLineParameterBoolean deferDependentsParameter = QubPublish.addDeferDependentsParameter(parameters);
+        final CommandLineParameterBoolean trustTestJsonParameter = QubPublish.addTrustTestJsonParameter(parameters);
+        final CommandLineParameterBoolean nativeImageParameter = QubPublish.addNativeImageParameter(parameters);
+        final CommandLineParameterBoolean jlinkParameter = QubPublish.addJlinkParameter(parameters);
+        final CommandLineParameterBoolean dryRunParameter = QubPublish.addDryRunParameter(parameters);
+        final CommandLineParameter<DependencyConflictStrategy> conflictsParameter = QubPublish.addConflictsParameter(parameters);
+        final CommandLineParameterBoolean pruneParameter = QubPublish.addPruneParameter(parameters);
+        final CommandLineParameterBoolean allShortcutsParameter = QubPublish.addAllShortcutsParameter(parameters);
+        final CommandLineParameterBoolean classDataParameter = QubPublish.addClassDataParameter(parameters);
+        final CommandLineParameter<PublishProfile> profileParameter = QubPublish.addProfileParameter(parameters);
+        final CommandLineParameterBoolean virtualThreadsParameter = QubPublish.addVirtualThreadsParameter(parameters);
         final CommandLineParameterVerbose verboseParameter = parameters.addVerbose(process);
         final CommandLineParameterProfiler profilerParameter = parameters.addProfiler(process, QubPublish.class);
         final CommandLineParameterHelp helpParameter = parameters.addHelp();
@@ -51,13 +183,66 @@ public interface QubPublish
             final QubFolder qubFolder = process.getQubFolder().await();
 
             result = new QubPublishParameters(output, error, folderToPublish, environmentVariables, processFactory, defaultApplicationLauncher, jvmClassPath, typeLoader, qubFolder)
+                .setProjectLocker(QubProjectLocker.createFileChannel())
+                .setArtifactCopier(QubArtifactCopier.createFileChannel())
+                .setArtifactCache(QubPublishArtifactCache.getShared())
+                .setDependencyExecutor(java.util.concurrent.ForkJoinPool.commonPool())
+                .setMetrics(QubPublishMetrics.getShared())
                 .setPackJson(packJsonParameter.removeValue().await())
                 .setTestJson(testJsonParameter.removeValue().await())
                 .setCoverage(coverageParameter.removeValue().await())
                 .setBuildJson(buildJsonParameter.removeValue().await())
                 .setWarnings(warningsParameter.removeValue().await())
                 .setVerbose(verboseParameter.getVerboseCharacterToByteWriteStream().await())
-                .setProfiler(profilerParameter.removeValue().await());
+                .setProfiler(profilerParameter.removeValue().await())
+                .setDeferDependents(deferDependentsParameter.removeValue().await())
+                .setTrustTestJson(trustTestJsonParameter.removeValue().await())
+                .setNativeImage(nativeImageParameter.removeValue().await())
+                .setJlink(jlinkParameter.removeValue().await())
+                .setDryRun(dryRunParameter.removeValue().await())
+                .setConflictStrategy(conflictsParameter.removeValue().await())
+                .setPrune(pruneParameter.removeValue().await())
+                .setAllShortcuts(allShortcutsParameter.removeValue().await())
+                .setClassData(classDataParameter.removeValue().await())
+                .setProfile(profileParameter.removeValue().await())
+                .setVirtualThreads(virtualThreadsParameter.removeValue().await());
+
+            if (result.getVirtualThreads())
+            {
+                final VerboseCharacterToByteWriteStream verbose = result.getVerbose();
+                final java.util.concurrent.ExecutorService virtualThreadExecutor = VirtualThreads.createExecutor()
+                    .catchError((Throwable error) ->
+                    {
+                        verbose.writeLine(Exceptions.unwrap(error).getMessage() + " Falling back to platform threads.").await();
+                    })
+                    .await();
+                if (virtualThreadExecutor != null)
+                {
+                    result.setOwnedExecutor(virtualThreadExecutor)
+                        .setDependencyExecutor(virtualThreadExecutor)
+                        .setFileExecutor(virtualThreadExecutor);
+                }
+                else
+                {
+                    // The blocking file work gets its own bounded pool so that it never waits on
+                    // dependency lookups that are queued behind it in the common pool.
+                    final java.util.concurrent.ExecutorService fileExecutor = java.util.concurrent.Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                    result.setOwnedExecutor(fileExecutor)
+                        .setFileExecutor(fileExecutor);
+                }
+            }
+
+            final String eventsFilePath = eventsParameter.removeValue().await();
+            if (!Strings.isNullOrEmpty(eventsFilePath))
+            {
+                result.setEventsFile(QubPublish.getFile(process, eventsFilePath));
+            }
+
+            final String metricsFilePath = metricsParameter.removeValue().await();
+            if (!Strings.isNullOrEmpty(metricsFilePath))
+            {
+                result.setMetricsFile(QubPublish.getFile(process, metricsFilePath));
+            }
         }
 
         return result;
@@ -67,159 +252,1234 @@ public interface QubPublish
     {
         PreCondition.assertNotNull(parameters, "parameters");
 
+        final CharacterWriteStream output = parameters.getOutputWriteStream();
+        final boolean publishing = !parameters.getDryRun() && !parameters.getAllShortcuts();
+
+        int exitCode = 0;
+        try (final QubPublishEvents events = QubPublish.createEvents(parameters).await())
+        {
+            if (parameters.getDryRun())
+            {
+                QubPublish.runDryRun(parameters);
+            }
+            else if (parameters.getAllShortcuts())
+            {
+                exitCode = QubPublish.regenerateAllShortcuts(parameters);
+            }
+            else
+            {
+                exitCode = QubPublish.publish(parameters, events);
+            }
+        }
+        catch (Throwable error)
+        {
+            final Throwable unwrappedError = Exceptions.unwrap(error);
+            if (unwrappedError instanceof PreConditionFailure ||
+                unwrappedError instanceof PostConditionFailure ||
+                unwrappedError instanceof NullPointerException)
+            {
+                throw error;
+            }
+            final String message = unwrappedError.getMessage();
+            output.writeLine("ERROR: " + message).await();
+            ++exitCode;
+        }
+        finally
+        {
+            final java.util.concurrent.ExecutorService ownedExecutor = parameters.getOwnedExecutor();
+            if (ownedExecutor != null)
+            {
+                ownedExecutor.shutdown();
+            }
+
+            if (publishing)
+            {
+                parameters.getMetrics().publishCompleted(exitCode == 0);
+            }
+            QubPublish.writeMetrics(parameters);
+        }
+
+        return exitCode;
+    }
+
+    static int publish(QubPublishParameters parameters, QubPublishEvents events)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(events, "events");
+
         final CharacterWriteStream output = parameters.getOutputWriteStream();
         final Folder folderToPublish = parameters.getFolderToPublish();
         final QubFolder qubFolder = parameters.getQubFolder();
+        final ProjectJSONCache projectJSONCache = parameters.getProjectJSONCache();
+        final QubPublishArtifactCache artifactCache = parameters.getArtifactCache();
 
         int exitCode = 0;
-        try
+        final Folder outputFolder = folderToPublish.getFolder("outputs").await();
+        QubPublishJournal journal = QubPublishJournal.get(outputFolder).await();
+
+        events.phaseStarted("pack");
+        if (QubPublish.isPackJournaled(folderToPublish, journal, projectJSONCache, artifactCache))
         {
-            exitCode = QubPack.run(parameters);
-            if (exitCode == 0)
+            output.writeLine("Skipping pack because the publish journal shows that the current outputs were already packed.").await();
+        }
+        else
+        {
+            if (parameters.getTrustTestJson() && QubPublish.isTestJsonTrusted(parameters))
             {
-                final Folder outputFolder = folderToPublish.getFolder("outputs").await();
+                output.writeLine("Skipping pack because test.json shows that the current compiled outputs already passed their tests.").await();
+            }
+            else
+            {
+                exitCode = QubPack.run(parameters);
+            }
 
-                final File projectJsonFile = folderToPublish.getFile("project.json").await();
-                final ProjectJSON projectJSON = ProjectJSON.parse(projectJsonFile).await();
-                final String publisher = projectJSON.getPublisher();
-                final String project = projectJSON.getProject();
-                VersionNumber version = projectJSON.getVersion();
-                final QubProjectFolder projectFolder = qubFolder.getProjectFolder(publisher, project).await();
-                if (version == null || !version.any())
+            if (exitCode == 0)
+            {
+                journal = QubPublishJournal.create()
+                    .completeStage(QubPublishJournal.packStage);
+                final ProjectJSON packedProjectJSON = projectJSONCache.parse(folderToPublish.getFile("project.json").await()).await();
+                for (final File artifact : QubPublish.getArtifacts(folderToPublish, packedProjectJSON.getProject()))
                 {
-                    final QubProjectVersionFolder latestVersionFolder = projectFolder.getLatestProjectVersionFolder().catchError().await();
-                    if (latestVersionFolder != null)
+                    final String contentHash = artifactCache.getContentHash(artifact)
+                        .catchError(FileNotFoundException.class)
+                        .await();
+                    if (contentHash != null)
                     {
-                        final VersionNumber latestVersion = latestVersionFolder.getVersion().catchError().await();
-                        if (latestVersion != null && latestVersion.hasMajor())
-                        {
-                            version = VersionNumber.create().setMajor(latestVersion.getMajor() + 1);
-                        }
+                        journal.setArtifactHash(artifact.getName(), contentHash);
                     }
-                    if (version == null || !version.any())
+                }
+                journal.writeTo(outputFolder).await();
+            }
+        }
+        events.phaseCompleted("pack");
+        if (exitCode == 0)
+        {
+            final File projectJsonFile = folderToPublish.getFile("project.json").await();
+            final ProjectJSON projectJSON = projectJSONCache.parse(projectJsonFile).await();
+            final String publisher = projectJSON.getPublisher();
+            final String project = projectJSON.getProject();
+            final QubProjectFolder projectFolder = qubFolder.getProjectFolder(publisher, project).await();
+
+            final File compiledSourcesJarFile = outputFolder.getFile(project + ".jar").await();
+            final File sourcesJarFile = outputFolder.getFile(project + ".sources.jar").await();
+            final File compiledTestsJarFile = outputFolder.getFile(project + ".tests.jar").await();
+
+            // Resolve the dependency graph before a version is allocated so that a conflict that
+            // the conflict strategy rejects fails the publish before anything is written to the
+            // qub folder.
+            final Iterable<ProjectSignature> transitiveDependencies = QubPublish.resolveDependencies(parameters, projectJSON);
+
+            final VersionNumber version;
+            final QubProjectVersionFolder versionFolder;
+            try (final Disposable projectLock = parameters.getProjectLocker().lock(projectFolder).await())
+            {
+                events.phaseStarted("version");
+                final QubProjectVersionIndex versionIndex = QubProjectVersionIndex.get(projectFolder).await();
+                final boolean resuming = journal.getVersion() != null;
+                if (resuming)
+                {
+                    versionFolder = projectFolder.getProjectVersionFolder(journal.getVersion()).await();
+                    version = versionFolder.getVersion().await();
+                }
+                else
+                {
+                    version = QubPublish.getVersionToPublish(projectJSON, versionIndex);
+                    versionFolder = projectFolder.getProjectVersionFolder(version).await();
+                    if (versionFolder.exists().await())
                     {
-                        version = VersionNumber.create().setMajor(1);
+                        throw new AlreadyExistsException("This package (" + publisher + "/" + project + ":" + version + ") can't be published because a package with that signature already exists.");
                     }
+                    journal.setVersion(version.toString()).writeTo(outputFolder).await();
                 }
+                events.phaseCompleted("version");
 
-                final QubProjectVersionFolder versionFolder = projectFolder.getProjectVersionFolder(version).await();
-                if (versionFolder.exists().await())
+                output.writeLine((resuming ? "Resuming the publish of " : "Publishing ") + publisher + "/" + project + "@" + version + "...").await();
+                if (!journal.isStageCompleted(QubPublishJournal.copyStage))
                 {
-                    throw new AlreadyExistsException("This package (" + publisher + "/" + project + ":" + version + ") can't be published because a package with that signature already exists.");
+                    events.phaseStarted("copy");
+                    final QubArtifactCopier artifactCopier = parameters.getArtifactCopier();
+                    final long copyStartTime = System.nanoTime();
+                    final List<File> requiredArtifacts = List.create(projectJsonFile, compiledSourcesJarFile);
+                    final List<File> optionalArtifacts = List.create();
+                    if (parameters.getProfile() == PublishProfile.Full)
+                    {
+                        requiredArtifacts.add(sourcesJarFile);
+                        optionalArtifacts.add(compiledTestsJarFile);
+                    }
+                    final long copiedByteCount = QubPublish.copyArtifacts(requiredArtifacts, optionalArtifacts, versionFolder, journal, artifactCopier, artifactCache, events, parameters.getFileExecutor()).await();
+                    // Make all of the copied artifacts durable at once before the version index
+                    // makes the new version visible.
+                    artifactCopier.commit().await();
+                    final long copyDurationNanoseconds = System.nanoTime() - copyStartTime;
+                    parameters.getVerbose().writeLine("Copied " + copiedByteCount + " bytes in " + (copyDurationNanoseconds / 1_000_000) + " milliseconds (" + QubPublish.getMegabytesPerSecond(copiedByteCount, copyDurationNanoseconds) + " MB/s).").await();
+                    // Readers that find the new version in the version index can rely on its
+                    // metadata file already being there.
+                    QubPublish.writeMetadata(parameters, versionFolder, projectJSON, transitiveDependencies, QubPublish.getArtifacts(folderToPublish, project, parameters.getProfile()), journal).await();
+                    versionIndex.add(version.toString()).writeTo(projectFolder).await();
+                    journal.completeStage(QubPublishJournal.copyStage).writeTo(outputFolder).await();
+                    events.phaseCompleted("copy");
                 }
+            }
+            events.committed(ProjectSignature.create(publisher, project, version));
 
-                final File compiledSourcesJarFile = outputFolder.getFile(project + ".jar").await();
-                final File sourcesJarFile = outputFolder.getFile(project + ".sources.jar").await();
-                final File compiledTestsJarFile = outputFolder.getFile(project + ".tests.jar").await();
-
-                output.writeLine("Publishing " + publisher + "/" + project + "@" + version + "...").await();
-                projectJsonFile.copyToFolder(versionFolder).await();
-                compiledSourcesJarFile.copyToFolder(versionFolder).await();
-                sourcesJarFile.copyToFolder(versionFolder).await();
-                compiledTestsJarFile.copyToFolder(versionFolder)
-                    .catchError(FileNotFoundException.class)
-                    .await();
+            events.phaseStarted("shortcut");
+            QubPublish.writeProjectShortcut(parameters, versionFolder, projectJSON, transitiveDependencies).await();
+            events.phaseCompleted("shortcut");
 
-                final ProjectJSONJava projectJsonJava = projectJSON.getJava();
-                if (projectJsonJava != null)
+            if (parameters.getDeferDependents())
+            {
+                final File dependentsFile = projectFolder.getProjectDataFolder().await()
+                    .getFile("dependents/" + version + ".txt").await();
+                output.writeLine("The projects that should be updated to use " + publisher + "/" + project + "@" + version + " will be written to " + dependentsFile + ".").await();
+                parameters.getBackgroundExecutor().execute(() ->
                 {
-                    final String mainClass = projectJsonJava.getMainClass();
-                    if (mainClass != null)
+                    // The dependents are written to a temporary file that is moved into place
+                    // when the scan finishes, so the dependents file only exists once it is
+                    // complete.
+                    final File temporaryDependentsFile = QubPublishFiles.getTemporaryFile(dependentsFile);
+                    try
                     {
-                        String shortcutName = projectJsonJava.getShortcutName();
-                        if (Strings.isNullOrEmpty(shortcutName))
-                        {
-                            shortcutName = projectJSON.getProject();
-                        }
-
-                        final CharacterList classpath = CharacterList.create()
-                            .addAll("%~dp0").addAll(versionFolder.getCompiledSourcesFile().await().relativeTo(qubFolder).toString());
-                        Iterable<ProjectSignature> dependencies = projectJsonJava.getDependencies();
-                        if (!Iterable.isNullOrEmpty(dependencies))
+                        try (final CharacterWriteStream dependentsFileStream = temporaryDependentsFile.getContentsCharacterWriteStream().await())
                         {
-                            dependencies = projectJsonJava.getTransitiveDependencies(qubFolder);
-
-                            for (final ProjectSignature dependency : dependencies)
+                            // The background scan doesn't use the file executor because the file
+                            // executor may be shut down when this publish finishes.
+                            QubPublish.findDependents(qubFolder, publisher, project, Runnable::run, (ProjectSignature projectToUpdate) ->
                             {
-                                final File dependencyCompiledSourcesJarFile = qubFolder.getCompiledSourcesFile(
-                                    dependency.getPublisher(),
-                                    dependency.getProject(),
-                                    dependency.getVersion()).await();
-                                final Path dependencyCompiledSourcesJarFileRelativePath = dependencyCompiledSourcesJarFile.relativeTo(qubFolder);
-                                classpath.addAll(";%~dp0").addAll(dependencyCompiledSourcesJarFileRelativePath.toString());
-                            }
-                        }
-
-                        final File shortcutFile = qubFolder.getFile(shortcutName + ".cmd").await();
-                        try (final CharacterWriteStream shortcutFileStream = shortcutFile.getContentsCharacterWriteStream().await())
-                        {
-                            shortcutFileStream.writeLine("@echo OFF").await();
-                            shortcutFileStream.writeLine("java -classpath " + classpath + " " + mainClass + " %*").await();
+                                dependentsFileStream.writeLine(projectToUpdate.toString()).await();
+                            });
                         }
+                        QubPublishFiles.move(temporaryDependentsFile, dependentsFile).await();
                     }
-                }
-
-                final List<String> projectsToUpdate = List.create();
-                for (final QubPublisherFolder publisherFolder : qubFolder.iteratePublisherFolders())
+                    catch (Throwable error)
+                    {
+                        temporaryDependentsFile.delete().catchError().await();
+                        parameters.getErrorWriteStream().writeLine("ERROR: The projects that should be updated to use " + publisher + "/" + project + "@" + version + " couldn't be written to " + dependentsFile + ": " + Exceptions.unwrap(error).getMessage())
+                            .catchError()
+                            .await();
+                    }
+                });
+            }
+            else
+            {
+                events.phaseStarted("dependents");
+                final java.util.concurrent.atomic.AtomicInteger projectsToUpdateCount = new java.util.concurrent.atomic.AtomicInteger();
+                QubPublish.findDependents(qubFolder, publisher, project, parameters.getFileExecutor(), (ProjectSignature projectToUpdate) ->
                 {
-                    for (final QubProjectFolder projectFolder2 : publisherFolder.iterateProjectFolders())
+                    if (projectsToUpdateCount.getAndIncrement() == 0)
                     {
-                        final QubProjectVersionFolder latestVersionFolder = projectFolder2.getLatestProjectVersionFolder().catchError().await();
-                        if (latestVersionFolder != null)
-                        {
-                            final File publishedProjectJsonFile = latestVersionFolder.getProjectJSONFile().await();
-                            final ProjectJSON publishedProjectJson = ProjectJSON.parse(publishedProjectJsonFile)
-                                .catchError(FileNotFoundException.class)
-                                .await();
-                            if (publishedProjectJson != null)
-                            {
-                                final ProjectJSONJava publishedProjectJsonJava = publishedProjectJson.getJava();
-                                if (publishedProjectJsonJava != null)
-                                {
-                                    final Iterable<ProjectSignature> dependencies = publishedProjectJsonJava.getDependencies();
-                                    if (!Iterable.isNullOrEmpty(dependencies))
-                                    {
-                                        final ProjectSignature dependency = dependencies.first((ProjectSignature d) ->
-                                            Comparer.equal(d.getPublisher(), publisher) &&
-                                            Comparer.equal(d.getProject(), project));
-                                        if (dependency != null)
-                                        {
-                                            final ProjectSignature publishedProjectSignature = ProjectSignature.create(
-                                                publishedProjectJson.getPublisher(),
-                                                publishedProjectJson.getProject(),
-                                                publishedProjectJson.getVersion());
-                                            projectsToUpdate.add(publishedProjectSignature.toString());
-                                        }
-                                    }
-                                }
-                            }
-                        }
+                        output.writeLine("The following projects should be updated to use " + publisher + "/" + project + "@" + version + ":").await();
                     }
-                }
-                if (!Iterable.isNullOrEmpty(projectsToUpdate))
+                    output.writeLine("  " + projectToUpdate).await();
+                    events.dependentFound(projectToUpdate);
+                });
+                events.phaseCompleted("dependents");
+            }
+
+            QubPublishJournal.getFile(outputFolder).await().delete().await();
+        }
+        return exitCode;
+    }
+
+    static void writeMetrics(QubPublishParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        // The metrics file is written after every run, including dry runs and shortcut
+        // regenerations, so that scrapers always see the current totals. Each run is its own
+        // process, so this run's metrics are added to the totals that are already in the file.
+        // A metrics file that can't be written doesn't change the result of the run.
+        final File metricsFile = parameters.getMetricsFile();
+        if (metricsFile != null)
+        {
+            Result.create(() ->
+                {
+                    final String previousMetricsText = metricsFile.getContentsAsString()
+                        .catchError(FileNotFoundException.class)
+                        .await();
+                    final String metricsText = parameters.getMetrics().toPrometheusText(parameters.getArtifactCache(), previousMetricsText == null ? "" : previousMetricsText);
+                    QubPublishFiles.setContentsAsString(metricsFile, metricsText).await();
+                })
+                .catchError((Throwable error) ->
+                {
+                    parameters.getErrorWriteStream().writeLine("ERROR: The metrics couldn't be written to " + metricsFile + ": " + Exceptions.unwrap(error).getMessage())
+                        .catchError()
+                        .await();
+                })
+                .await();
+        }
+    }
+
+    static void runDryRun(QubPublishParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        final CharacterWriteStream output = parameters.getOutputWriteStream();
+        final Folder folderToPublish = parameters.getFolderToPublish();
+        final QubFolder qubFolder = parameters.getQubFolder();
+        final ProjectJSONCache projectJSONCache = parameters.getProjectJSONCache();
+
+        final File projectJsonFile = folderToPublish.getFile("project.json").await();
+        final ProjectJSON projectJSON = projectJSONCache.parse(projectJsonFile).await();
+        final String publisher = projectJSON.getPublisher();
+        final String project = projectJSON.getProject();
+        final QubProjectFolder projectFolder = qubFolder.getProjectFolder(publisher, project).await();
+
+        final VersionNumber version = QubPublish.getVersionToPublish(projectJSON, QubProjectVersionIndex.get(projectFolder).await());
+        final QubProjectVersionFolder versionFolder = projectFolder.getProjectVersionFolder(version).await();
+        if (versionFolder.exists().await())
+        {
+            throw new AlreadyExistsException("This package (" + publisher + "/" + project + ":" + version + ") can't be published because a package with that signature already exists.");
+        }
+        output.writeLine("Dry run: " + publisher + "/" + project + "@" + version + " would be published to " + versionFolder + ".").await();
+
+        output.writeLine("Artifacts:").await();
+        for (final File artifact : QubPublish.getArtifacts(folderToPublish, project, parameters.getProfile()))
+        {
+            final Long byteCount = artifact.getContentsByteCount()
+                .catchError(FileNotFoundException.class)
+                .await();
+            output.writeLine("  " + artifact.relativeTo(folderToPublish) + " (" + (byteCount == null ? "not packed yet" : byteCount + " bytes") + ")").await();
+        }
+
+        final ProjectJSONJava projectJsonJava = projectJSON.getJava();
+        if (projectJsonJava != null && projectJsonJava.getMainClass() != null)
+        {
+            output.writeLine("Shortcut: " + qubFolder.getFile(QubPublish.getShortcutName(projectJSON) + ".cmd").await()).await();
+
+            output.writeLine("Classpath:").await();
+            final QubPublishClasspath classpath = QubPublishClasspath.create(qubFolder,
+                QubPublish.getClasspathFiles(parameters, versionFolder, QubPublish.resolveDependencies(parameters, projectJSON)));
+            for (final String classpathEntry : classpath.getRelativePaths())
+            {
+                output.writeLine("  " + classpathEntry).await();
+            }
+        }
+
+        final java.util.concurrent.atomic.AtomicInteger projectsToUpdateCount = new java.util.concurrent.atomic.AtomicInteger();
+        QubPublish.findDependents(qubFolder, publisher, project, parameters.getFileExecutor(), (ProjectSignature projectToUpdate) ->
+        {
+            if (projectsToUpdateCount.getAndIncrement() == 0)
+            {
+                output.writeLine("Dependents:").await();
+            }
+            output.writeLine("  " + projectToUpdate).await();
+        });
+    }
+
+    static int regenerateAllShortcuts(QubPublishParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        final CharacterWriteStream output = parameters.getOutputWriteStream();
+        final QubFolder qubFolder = parameters.getQubFolder();
+        final ProjectJSONCache projectJSONCache = parameters.getProjectJSONCache();
+
+        final List<QubProjectVersionFolder> versionFolders = List.create();
+        final List<ProjectJSON> projectJsons = List.create();
+        for (final QubPublisherFolder publisherFolder : qubFolder.iteratePublisherFolders())
+        {
+            for (final QubProjectFolder projectFolder : publisherFolder.iterateProjectFolders())
+            {
+                final String latestVersion = QubProjectVersionIndex.get(projectFolder).await().getLatestVersion();
+                if (latestVersion != null)
                 {
-                    output.writeLine("The following projects should be updated to use " + publisher + "/" + project + "@" + version + ":").await();
-                    for (final String projectToUpdate : projectsToUpdate)
+                    final QubProjectVersionFolder latestVersionFolder = projectFolder.getProjectVersionFolder(latestVersion).await();
+                    final ProjectJSON projectJSON = projectJSONCache.parse(latestVersionFolder.getProjectJSONFile().await())
+                        .catchError()
+                        .await();
+                    if (projectJSON != null && projectJSON.getJava() != null && projectJSON.getJava().getMainClass() != null)
                     {
-                        output.writeLine("  " + projectToUpdate).await();
+                        versionFolders.add(latestVersionFolder);
+                        projectJsons.add(projectJSON);
                     }
                 }
             }
         }
-        catch (Throwable error)
+
+        output.writeLine("Regenerating shortcuts for " + versionFolders.getCount() + " project" + (versionFolders.getCount() == 1 ? "" : "s") + "...").await();
+
+        final java.util.SortedMap<String,String> results = new java.util.concurrent.ConcurrentSkipListMap<>();
+        final List<java.util.concurrent.CompletableFuture<Void>> shortcutWrites = List.create();
+        for (int i = 0; i < versionFolders.getCount(); ++i)
         {
-            final Throwable unwrappedError = Exceptions.unwrap(error);
-            if (unwrappedError instanceof PreConditionFailure ||
-                unwrappedError instanceof PostConditionFailure ||
-                unwrappedError instanceof NullPointerException)
+            final QubProjectVersionFolder versionFolder = versionFolders.get(i);
+            final ProjectJSON projectJSON = projectJsons.get(i);
+            shortcutWrites.add(java.util.concurrent.CompletableFuture.runAsync(() ->
             {
-                throw error;
+                final String shortcutDescription = QubPublish.getShortcutName(projectJSON) + ".cmd (" + projectJSON.getPublisher() + "/" + projectJSON.getProject() + "@" + projectJSON.getVersion() + ")";
+                // The previous version's classpath isn't reused here because regenerating every
+                // shortcut is how a classpath picks up a dependency that has moved. These tasks run
+                // on the file executor so that they don't block the dependency executor that
+                // resolves their dependencies.
+                final String shortcutResult = QubPublish.writeProjectShortcut(parameters, versionFolder, projectJSON, null, false)
+                    .then((Boolean changed) -> changed ? "updated" : "unchanged")
+                    .catchError((Throwable error) -> "ERROR: " + Exceptions.unwrap(error).getMessage())
+                    .await();
+                results.put(shortcutDescription, shortcutResult);
+            }, parameters.getFileExecutor()));
+        }
+        java.util.concurrent.CompletableFuture.allOf(shortcutWrites.toArray(new java.util.concurrent.CompletableFuture[0])).join();
+
+        int result = 0;
+        for (final java.util.Map.Entry<String,String> entry : results.entrySet())
+        {
+            output.writeLine("  " + entry.getKey() + ": " + entry.getValue()).await();
+            if (entry.getValue().startsWith("ERROR: "))
+            {
+                ++result;
             }
-            final String message = unwrappedError.getMessage();
-            output.writeLine("ERROR: " + message).await();
-            ++exitCode;
         }
+        return result;
+    }
 
-        return exitCode;
+    static Iterable<ProjectSignature> resolveDependencies(QubPublishParameters parameters, ProjectJSON projectJSON)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+
+        Iterable<ProjectSignature> result = Iterable.create();
+        final Iterable<ProjectSignature> dependencies = QubPublish.getDependencies(projectJSON);
+        if (dependencies.any())
+        {
+            final QubDependencyGraph dependencyGraph = QubDependencyGraph.resolve(dependencies, parameters.getQubFolder(), parameters.getDependencyExecutor(), parameters.getArtifactCache().getDependencyCache()).await();
+            final DependencyConflictStrategy conflictStrategy = parameters.getConflictStrategy();
+            final java.util.SortedMap<String,String> conflictResolutions = dependencyGraph.getConflictResolutions(conflictStrategy);
+            if (!conflictResolutions.isEmpty())
+            {
+                final VerboseCharacterToByteWriteStream verbose = parameters.getVerbose();
+                verbose.writeLine("Resolved dependency version conflicts (" + conflictStrategy.toString().toLowerCase() + "):").await();
+                for (final java.util.Map.Entry<String,Iterable<String>> conflict : dependencyGraph.getConflicts().entrySet())
+                {
+                    verbose.writeLine("  " + conflict.getKey() + ": " + String.join(", ", conflict.getValue()) + " -> " + conflictResolutions.get(conflict.getKey())).await();
+                }
+            }
+            result = dependencyGraph.getTransitiveDependencies(conflictStrategy);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    static Iterable<File> getClasspathFiles(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, Iterable<ProjectSignature> transitiveDependencies)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(transitiveDependencies, "transitiveDependencies");
+
+        final QubFolder qubFolder = parameters.getQubFolder();
+        final List<File> result = List.create(versionFolder.getCompiledSourcesFile().await());
+        for (final ProjectSignature dependency : transitiveDependencies)
+        {
+            result.add(qubFolder.getCompiledSourcesFile(
+                dependency.getPublisher(),
+                dependency.getProject(),
+                dependency.getVersion()).await());
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    static String getShortcutName(ProjectJSON projectJSON)
+    {
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+
+        final ProjectJSONJava projectJsonJava = projectJSON.getJava();
+        String result = projectJsonJava == null ? null : projectJsonJava.getShortcutName();
+        if (Strings.isNullOrEmpty(result))
+        {
+            result = projectJSON.getProject();
+        }
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    static Result<Boolean> writeProjectShortcut(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, ProjectJSON projectJSON, Iterable<ProjectSignature> transitiveDependencies)
+    {
+        return QubPublish.writeProjectShortcut(parameters, versionFolder, projectJSON, transitiveDependencies, true);
+    }
+
+    static Result<Boolean> writeProjectShortcut(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, ProjectJSON projectJSON, Iterable<ProjectSignature> transitiveDependencies, boolean reusePreviousClasspath)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+
+        return Result.create(() ->
+        {
+            final CharacterWriteStream output = parameters.getOutputWriteStream();
+            final QubFolder qubFolder = parameters.getQubFolder();
+
+            boolean result = false;
+            final ProjectJSONJava projectJsonJava = projectJSON.getJava();
+            if (projectJsonJava != null)
+            {
+                final String mainClass = projectJsonJava.getMainClass();
+                if (mainClass != null)
+                {
+                    final String shortcutName = QubPublish.getShortcutName(projectJSON);
+
+                    // The transitive dependencies are only resolved if they weren't provided and
+                    // the previous version's classpath can't be reused.
+                    QubPublishClasspath classpath = !reusePreviousClasspath || parameters.getPrune()
+                        ? null
+                        : QubPublish.getPreviousClasspath(parameters, versionFolder, projectJSON);
+                    if (classpath == null)
+                    {
+                        final Iterable<File> classpathFiles = QubPublish.getClasspathFiles(parameters, versionFolder,
+                            transitiveDependencies != null ? transitiveDependencies : QubPublish.resolveDependencies(parameters, projectJSON));
+                        if (parameters.getPrune())
+                        {
+                            classpath = QubPublishClasspath.create(qubFolder, QubPublish.pruneClasspathFiles(parameters, classpathFiles, mainClass));
+                        }
+                        else
+                        {
+                            classpath = QubPublishClasspath.create(qubFolder, classpathFiles)
+                                .setConflictStrategy(parameters.getConflictStrategy());
+                        }
+                    }
+                    classpath.writeTo(versionFolder).await();
+
+                    File nativeImageFile = null;
+                    if (parameters.getNativeImage())
+                    {
+                        nativeImageFile = QubPublish.buildNativeImage(parameters, versionFolder, shortcutName, mainClass, classpath)
+                            .catchError((Throwable error) ->
+                            {
+                                parameters.getVerbose().writeLine("Native image build failed: " + Exceptions.unwrap(error).getMessage()).await();
+                            })
+                            .await();
+                        if (nativeImageFile == null)
+                        {
+                            output.writeLine("Falling back to a java shortcut because the native image couldn't be built.").await();
+                        }
+                    }
+
+                    String java = "java";
+                    Folder runtimeFolder = null;
+                    if (nativeImageFile == null && parameters.getJlink())
+                    {
+                        runtimeFolder = QubPublish.getJlinkRuntime(parameters, classpath)
+                            .catchError((Throwable error) ->
+                            {
+                                parameters.getVerbose().writeLine("Runtime image creation failed: " + Exceptions.unwrap(error).getMessage()).await();
+                            })
+                            .await();
+                        if (runtimeFolder == null)
+                        {
+                            output.writeLine("Falling back to the java on the PATH because a runtime image couldn't be created.").await();
+                        }
+                        else
+                        {
+                            java = "\"%~dp0" + runtimeFolder.relativeTo(qubFolder) + "/bin/java\"";
+                        }
+                    }
+
+                    if (nativeImageFile == null && parameters.getClassData())
+                    {
+                        final File classDataFile = QubPublish.recordClassData(parameters, versionFolder, shortcutName, mainClass, classpath, runtimeFolder)
+                            .catchError((Throwable error) ->
+                            {
+                                parameters.getVerbose().writeLine("Class data recording failed: " + Exceptions.unwrap(error).getMessage()).await();
+                            })
+                            .await();
+                        if (classDataFile == null)
+                        {
+                            output.writeLine("Falling back to a shortcut without class data because it couldn't be recorded.").await();
+                        }
+                        else
+                        {
+                            java += " -XX:SharedArchiveFile=\"%~dp0" + classDataFile.relativeTo(qubFolder) + "\" -Xshare:auto";
+                        }
+                    }
+
+                    final String shortcutCommand = nativeImageFile != null
+                        ? "\"%~dp0" + nativeImageFile.relativeTo(qubFolder) + "\" %*"
+                        : java + " -classpath " + classpath.getShortcutClasspath() + " " + mainClass + " %*";
+                    result = QubPublish.writeShortcut(qubFolder, shortcutName, Iterable.create(
+                        "@echo OFF",
+                        shortcutCommand)).await();
+                }
+            }
+            return result;
+        });
+    }
+
+    static QubPublishClasspath getPreviousClasspath(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, ProjectJSON projectJSON)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+
+        final QubFolder qubFolder = parameters.getQubFolder();
+        final QubProjectFolder projectFolder = qubFolder.getProjectFolder(projectJSON.getPublisher(), projectJSON.getProject()).await();
+        final QubProjectVersionIndex versionIndex = QubProjectVersionIndex.get(projectFolder).await();
+        final String previousVersion = versionIndex.getPreviousVersion(versionFolder.getVersion().await().toString());
+
+        QubPublishClasspath result = null;
+        if (previousVersion != null)
+        {
+            final QubProjectVersionFolder previousVersionFolder = projectFolder.getProjectVersionFolder(previousVersion).await();
+            final Iterable<ProjectSignature> previousDependencies = QubPublishMetadata.readDependencies(previousVersionFolder)
+                .catchError()
+                .await();
+            final QubPublishClasspath previousClasspath = QubPublishClasspath.parse(previousVersionFolder.getFile(QubPublishClasspath.fileName).await())
+                .catchError()
+                .await();
+            if (previousDependencies != null &&
+                previousClasspath != null &&
+                previousClasspath.getConflictStrategy() == parameters.getConflictStrategy() &&
+                previousClasspath.getRelativePaths().any() &&
+                previousClasspath.getRelativePaths().first().equals(previousVersionFolder.getCompiledSourcesFile().await().relativeTo(qubFolder).toString()) &&
+                QubPublish.getDependencyNames(projectJSON).equals(QubPublish.getDependencyNames(previousDependencies)))
+            {
+                result = previousClasspath.withProjectFile(qubFolder, versionFolder.getCompiledSourcesFile().await());
+                parameters.getVerbose().writeLine("Reusing the classpath of " + previousVersionFolder.getProjectSignature().await() + " because the dependencies haven't changed.").await();
+            }
+        }
+        return result;
+    }
+
+    private static java.util.List<String> getDependencyNames(ProjectJSON projectJSON)
+    {
+        return QubPublish.getDependencyNames(QubPublish.getDependencies(projectJSON));
+    }
+
+    private static java.util.List<String> getDependencyNames(Iterable<ProjectSignature> dependencies)
+    {
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        for (final ProjectSignature dependency : dependencies)
+        {
+            result.add(dependency.toString());
+        }
+        return result;
+    }
+
+    private static Iterable<ProjectSignature> getDependencies(ProjectJSON projectJSON)
+    {
+        final ProjectJSONJava projectJsonJava = projectJSON.getJava();
+        return projectJsonJava == null || Iterable.isNullOrEmpty(projectJsonJava.getDependencies())
+            ? Iterable.create()
+            : projectJsonJava.getDependencies();
+    }
+
+    static Result<QubPublishMetadata> writeMetadata(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, ProjectJSON projectJSON, Iterable<ProjectSignature> transitiveDependencies, Iterable<File> artifacts, QubPublishJournal journal)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+        PreCondition.assertNotNull(transitiveDependencies, "transitiveDependencies");
+        PreCondition.assertNotNull(artifacts, "artifacts");
+        PreCondition.assertNotNull(journal, "journal");
+
+        return Result.create(() ->
+        {
+            final QubPublishMetadata result = QubPublishMetadata.create(versionFolder.getProjectSignature().await(), QubPublish.getDependencies(projectJSON), transitiveDependencies);
+            for (final File artifact : artifacts)
+            {
+                // The copies in the version folder have the same contents as the artifacts that the
+                // journal hashed, so they are only hashed when the journal doesn't have a hash.
+                String contentHash = journal.getArtifactHash(artifact.getName());
+                if (contentHash == null)
+                {
+                    contentHash = parameters.getArtifactCache().getContentHash(versionFolder.getFile(artifact.getName()).await())
+                        .catchError(FileNotFoundException.class)
+                        .await();
+                }
+                if (contentHash != null)
+                {
+                    result.setArtifactHash(artifact.getName(), contentHash);
+                }
+            }
+            result.writeTo(versionFolder).await();
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    static Iterable<File> pruneClasspathFiles(QubPublishParameters parameters, Iterable<File> classpathFiles, String mainClass)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+
+        final Iterable<File> result = JarClassIndex.getReachableFiles(classpathFiles, mainClass, parameters.getArtifactCache()).await();
+        final VerboseCharacterToByteWriteStream verbose = parameters.getVerbose();
+        for (final File classpathFile : classpathFiles)
+        {
+            if (!result.contains(classpathFile))
+            {
+                verbose.writeLine("Pruned " + classpathFile.relativeTo(parameters.getQubFolder()) + " from the classpath because " + mainClass + " can't reach it.").await();
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    static Iterable<File> getArtifacts(Folder folderToPublish, String project)
+    {
+        return QubPublish.getArtifacts(folderToPublish, project, PublishProfile.Full);
+    }
+
+    static Iterable<File> getArtifacts(Folder folderToPublish, String project, PublishProfile profile)
+    {
+        PreCondition.assertNotNull(folderToPublish, "folderToPublish");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+        PreCondition.assertNotNull(profile, "profile");
+
+        final Folder outputFolder = folderToPublish.getFolder("outputs").await();
+        final List<File> result = List.create(
+            folderToPublish.getFile("project.json").await(),
+            outputFolder.getFile(project + ".jar").await());
+        if (profile == PublishProfile.Full)
+        {
+            result.add(outputFolder.getFile(project + ".sources.jar").await());
+            result.add(outputFolder.getFile(project + ".tests.jar").await());
+        }
+        return result;
+    }
+
+    static boolean isPackJournaled(Folder folderToPublish, QubPublishJournal journal, ProjectJSONCache projectJSONCache, QubPublishArtifactCache artifactCache)
+    {
+        PreCondition.assertNotNull(folderToPublish, "folderToPublish");
+        PreCondition.assertNotNull(journal, "journal");
+        PreCondition.assertNotNull(projectJSONCache, "projectJSONCache");
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+
+        boolean result = journal.isStageCompleted(QubPublishJournal.packStage);
+        if (result)
+        {
+            final ProjectJSON projectJSON = projectJSONCache.parse(folderToPublish.getFile("project.json").await())
+                .catchError()
+                .await();
+            result = projectJSON != null &&
+                journal.artifactsMatch(QubPublish.getArtifacts(folderToPublish, projectJSON.getProject()), artifactCache).await();
+        }
+        if (result)
+        {
+            final DateTime journalLastModified = QubPublishJournal.getFile(folderToPublish.getFolder("outputs").await()).await()
+                .getLastModified()
+                .catchError()
+                .await();
+            result = journalLastModified != null &&
+                !QubPublish.hasSourceFilesModifiedAfter(folderToPublish, journalLastModified);
+        }
+        return result;
+    }
+
+    private static boolean hasSourceFilesModifiedAfter(Folder folderToPublish, DateTime dateTime)
+    {
+        boolean result = false;
+        for (final String sourceFolderName : Iterable.create("sources", "tests"))
+        {
+            final Folder sourceFolder = folderToPublish.getFolder(sourceFolderName).await();
+            if (!result && sourceFolder.exists().await())
+            {
+                for (final File sourceFile : sourceFolder.iterateFilesRecursively())
+                {
+                    if (sourceFile.getLastModified().await().compareTo(dateTime) > 0)
+                    {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    static boolean isTestJsonTrusted(QubPublishParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        final Folder folderToPublish = parameters.getFolderToPublish();
+        final File projectJsonFile = folderToPublish.getFile("project.json").await();
+        final Folder outputFolder = folderToPublish.getFolder("outputs").await();
+        final File testJsonFile = outputFolder.getFile("test.json").await();
+
+        // test.json doesn't record the arguments that the tests were run with, so it can only be
+        // trusted when this publish would run the tests the same way that qub-test does by default.
+        boolean result = parameters.getCoverage() == Coverage.None &&
+            Strings.isNullOrEmpty(parameters.getPattern()) &&
+            !parameters.getProfiler();
+
+        ProjectJSON projectJSON = null;
+        TestJSON testJson = null;
+        if (result)
+        {
+            projectJSON = parameters.getProjectJSONCache().parse(projectJsonFile)
+                .catchError()
+                .await();
+            testJson = TestJSON.parse(testJsonFile)
+                .catchError()
+                .await();
+            result = projectJSON != null && testJson != null && !Iterable.isNullOrEmpty(testJson.getClassFiles());
+        }
+
+        if (result)
+        {
+            final DateTime testJsonLastModified = testJsonFile.getLastModified().await();
+
+            // A project.json that changed after the tests ran may have changed the dependencies
+            // that the tests ran against.
+            if (projectJsonFile.getLastModified().await().compareTo(testJsonLastModified) > 0)
+            {
+                result = false;
+            }
+
+            if (result)
+            {
+                for (final TestJSONClassFile classFile : testJson.getClassFiles())
+                {
+                    final DateTime classFileLastModified = outputFolder.getFile(classFile.getRelativePath()).await()
+                        .getLastModified()
+                        .catchError()
+                        .await();
+                    if (classFile.getFailedTestCount() > 0 || !Comparer.equal(classFileLastModified, classFile.getLastModified()))
+                    {
+                        result = false;
+                        break;
+                    }
+                }
+            }
+
+            if (result && QubPublish.hasSourceFilesModifiedAfter(folderToPublish, testJsonLastModified))
+            {
+                result = false;
+            }
+
+            final String project = projectJSON.getProject();
+            for (final String jarFileName : Iterable.create(project + ".jar", project + ".sources.jar"))
+            {
+                final DateTime jarFileLastModified = outputFolder.getFile(jarFileName).await()
+                    .getLastModified()
+                    .catchError()
+                    .await();
+                if (result && (jarFileLastModified == null || jarFileLastModified.compareTo(testJsonLastModified) < 0))
+                {
+                    result = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    static VersionNumber getVersionToPublish(ProjectJSON projectJSON, QubProjectVersionIndex versionIndex)
+    {
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+        PreCondition.assertNotNull(versionIndex, "versionIndex");
+
+        VersionNumber result = projectJSON.getVersion();
+        if (result == null || !result.any())
+        {
+            result = VersionNumber.create().setMajor(QubPublish.getNextMajor(versionIndex));
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static int getNextMajor(QubProjectVersionIndex versionIndex)
+    {
+        final Integer latestMajor = versionIndex.getLatestMajor();
+        return latestMajor == null ? 1 : latestMajor + 1;
+    }
+
+    static Result<QubPublishEvents> createEvents(QubPublishParameters parameters)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+
+        final File eventsFile = parameters.getEventsFile();
+        final Result<QubPublishEvents> result = eventsFile == null
+            ? Result.success(QubPublishEvents.create())
+            : eventsFile.getContentsCharacterWriteStream().then(QubPublishEvents::create);
+        return result.then((QubPublishEvents events) -> events.setMetrics(parameters.getMetrics()));
+    }
+
+    static Result<Long> copyArtifact(File artifact, Folder versionFolder, QubPublishJournal journal, QubArtifactCopier artifactCopier, QubPublishArtifactCache artifactCache, QubPublishEvents events)
+    {
+        PreCondition.assertNotNull(artifact, "artifact");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(journal, "journal");
+        PreCondition.assertNotNull(artifactCopier, "artifactCopier");
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+        PreCondition.assertNotNull(events, "events");
+
+        return Result.create(() ->
+        {
+            final String journalHash = journal.getArtifactHash(artifact.getName());
+            final String publishedHash = journalHash == null
+                ? null
+                : artifactCache.getContentHash(versionFolder.getFile(artifact.getName()).await())
+                    .catchError(FileNotFoundException.class)
+                    .await();
+
+            long result = 0;
+            if (publishedHash == null || !publishedHash.equals(journalHash))
+            {
+                final long startTime = System.nanoTime();
+                result = artifactCopier.copy(artifact, versionFolder).await();
+                final long durationNanoseconds = System.nanoTime() - startTime;
+                // The journal's hash was computed from the artifact when it was packed, so the
+                // artifact only has to be hashed again if the journal doesn't have it.
+                final String contentHash = journalHash != null
+                    ? journalHash
+                    : artifactCache.getContentHash(artifact).await();
+                events.artifactCopied(artifact.getName(), contentHash, result, durationNanoseconds);
+            }
+            return result;
+        });
+    }
+
+    static Result<Long> copyArtifacts(Iterable<File> requiredArtifacts, Iterable<File> optionalArtifacts, Folder versionFolder, QubPublishJournal journal, QubArtifactCopier artifactCopier, QubPublishArtifactCache artifactCache, QubPublishEvents events, java.util.concurrent.Executor fileExecutor)
+    {
+        PreCondition.assertNotNull(requiredArtifacts, "requiredArtifacts");
+        PreCondition.assertNotNull(optionalArtifacts, "optionalArtifacts");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNull(journal, "journal");
+        PreCondition.assertNotNull(artifactCopier, "artifactCopier");
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+        PreCondition.assertNotNull(events, "events");
+        PreCondition.assertNotNull(fileExecutor, "fileExecutor");
+
+        return Result.create(() ->
+        {
+            final List<java.util.concurrent.CompletableFuture<Long>> copies = List.create();
+            for (final File artifact : requiredArtifacts)
+            {
+                copies.add(java.util.concurrent.CompletableFuture.supplyAsync(() ->
+                {
+                    return QubPublish.copyArtifact(artifact, versionFolder, journal, artifactCopier, artifactCache, events).await();
+                }, fileExecutor));
+            }
+            for (final File artifact : optionalArtifacts)
+            {
+                copies.add(java.util.concurrent.CompletableFuture.supplyAsync(() ->
+                {
+                    final Long byteCount = QubPublish.copyArtifact(artifact, versionFolder, journal, artifactCopier, artifactCache, events)
+                        .catchError(FileNotFoundException.class)
+                        .await();
+                    return byteCount == null ? 0L : byteCount;
+                }, fileExecutor));
+            }
+
+            long result = 0;
+            for (final java.util.concurrent.CompletableFuture<Long> copy : copies)
+            {
+                result += QubPublish.join(copy);
+            }
+            return result;
+        });
+    }
+
+    private static <T> T join(java.util.concurrent.CompletableFuture<T> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (java.util.concurrent.CompletionException error)
+        {
+            throw Exceptions.asRuntime(error.getCause());
+        }
+    }
+
+    static String getMegabytesPerSecond(long byteCount, long durationNanoseconds)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(byteCount, 0, "byteCount");
+        PreCondition.assertGreaterThanOrEqualTo(durationNanoseconds, 0, "durationNanoseconds");
+
+        return durationNanoseconds == 0
+            ? "0.0"
+            : String.format(java.util.Locale.ROOT, "%.1f", byteCount * 1_000_000_000.0 / durationNanoseconds / (1024 * 1024));
+    }
+
+    static Result<File> buildNativeImage(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, String imageName, String mainClass, QubPublishClasspath classpath)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNullAndNotEmpty(imageName, "imageName");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(classpath, "classpath");
+
+        return Result.create(() ->
+        {
+            parameters.getOutputWriteStream().writeLine("Building native image...").await();
+
+            final ProcessBuilder nativeImage = parameters.getProcessFactory().getProcessBuilder("native-image").await()
+                .setWorkingFolder(versionFolder)
+                .addArguments(
+                    "--no-fallback",
+                    "-cp", String.join(java.io.File.pathSeparator, classpath.getAbsolutePaths()),
+                    "-o", versionFolder.getFile(imageName).await().toString(),
+                    mainClass);
+            final int exitCode = nativeImage.run().await();
+            if (exitCode != 0)
+            {
+                throw new RuntimeException("native-image exited with exit code " + exitCode + ".");
+            }
+
+            File result = null;
+            for (final String imageFileName : Iterable.create(imageName + ".exe", imageName))
+            {
+                final File imageFile = versionFolder.getFile(imageFileName).await();
+                if (result == null && imageFile.exists().await())
+                {
+                    result = imageFile;
+                }
+            }
+            if (result == null)
+            {
+                throw new FileNotFoundException(versionFolder.getFile(imageName).await());
+            }
+            return result;
+        });
+    }
+
+    static Result<File> recordClassData(QubPublishParameters parameters, QubProjectVersionFolder versionFolder, String archiveName, String mainClass, QubPublishClasspath classpath, Folder runtimeFolder)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+        PreCondition.assertNotNullAndNotEmpty(archiveName, "archiveName");
+        PreCondition.assertNotNullAndNotEmpty(mainClass, "mainClass");
+        PreCondition.assertNotNull(classpath, "classpath");
+
+        return Result.create(() ->
+        {
+            parameters.getOutputWriteStream().writeLine("Recording class data...").await();
+
+            // The archive can only be used by the same JVM that recorded it, so the training run has
+            // to use the runtime image when the shortcut will use one. Every qub application
+            // supports -?, which exercises its startup path without doing any work.
+            final String javaPath = runtimeFolder == null
+                ? "java"
+                : runtimeFolder.getFile("bin/java").await().toString();
+            final File result = versionFolder.getFile(archiveName + ".jsa").await();
+            final ProcessBuilder trainingRun = parameters.getProcessFactory().getProcessBuilder(javaPath).await()
+                .setWorkingFolder(versionFolder)
+                .addArguments(
+                    "-XX:ArchiveClassesAtExit=" + result.toString(),
+                    "-classpath", String.join(java.io.File.pathSeparator, classpath.getAbsolutePaths()),
+                    mainClass,
+                    "-?")
+                .redirectOutput(InMemoryCharacterToByteStream.create());
+            final int exitCode = trainingRun.run().await();
+            if (!result.exists().await())
+            {
+                throw new RuntimeException("java exited with exit code " + exitCode + " without creating " + result + ".");
+            }
+            return result;
+        });
+    }
+
+    static Result<Folder> getJlinkRuntime(QubPublishParameters parameters, QubPublishClasspath classpath)
+    {
+        PreCondition.assertNotNull(parameters, "parameters");
+        PreCondition.assertNotNull(classpath, "classpath");
+
+        return Result.create(() ->
+        {
+            final ProcessFactory processFactory = parameters.getProcessFactory();
+            final String classpathString = String.join(java.io.File.pathSeparator, classpath.getAbsolutePaths());
+
+            final InMemoryCharacterToByteStream jdepsOutput = InMemoryCharacterToByteStream.create();
+            final ProcessBuilder jdeps = processFactory.getProcessBuilder("jdeps").await()
+                .addArguments("--print-module-deps", "--ignore-missing-deps", "--class-path", classpathString)
+                .addArguments(classpath.getAbsolutePaths())
+                .redirectOutput(jdepsOutput);
+            final int jdepsExitCode = jdeps.run().await();
+            if (jdepsExitCode != 0)
+            {
+                throw new RuntimeException("jdeps exited with exit code " + jdepsExitCode + ".");
+            }
+
+            final java.util.TreeSet<String> modules = new java.util.TreeSet<>();
+            for (final String module : jdepsOutput.getText().await().trim().split(","))
+            {
+                if (!Strings.isNullOrEmpty(module.trim()))
+                {
+                    modules.add(module.trim());
+                }
+            }
+            modules.add("java.base");
+            final String modulesString = String.join(",", modules);
+
+            // Runtime images are kept in qub-publish's data folder instead of directly in the qub
+            // folder so that they aren't mistaken for a publisher's folder.
+            final QubFolder qubFolder = parameters.getQubFolder();
+            final QubProjectFolder publishProjectFolder = qubFolder.getProjectFolder("qub", "publish-java").await();
+            final Folder runtimesFolder = publishProjectFolder.getProjectDataFolder().await()
+                .getFolder("runtimes").await();
+            final String runtimeName = QubPublishArtifactCache.getHash(modulesString.getBytes(java.nio.charset.StandardCharsets.UTF_8)).substring(0, 16);
+            final Folder result = runtimesFolder.getFolder(runtimeName).await();
+            if (!result.exists().await())
+            {
+                // jlink writes into a temporary folder that is only moved into place once it is
+                // complete, so an interrupted jlink never leaves a runtime image that looks usable.
+                // Holding the lock means that a temporary folder that already exists was left behind
+                // by an interrupted jlink and can be deleted.
+                try (final Disposable runtimesLock = parameters.getProjectLocker().lock(publishProjectFolder).await())
+                {
+                    if (!result.exists().await())
+                    {
+                        parameters.getOutputWriteStream().writeLine("Creating runtime image with modules " + modulesString + "...").await();
+                        final Folder temporaryFolder = runtimesFolder.getFolder(runtimeName + ".tmp").await();
+                        if (temporaryFolder.exists().await())
+                        {
+                            temporaryFolder.delete().await();
+                        }
+                        try
+                        {
+                            final ProcessBuilder jlink = processFactory.getProcessBuilder("jlink").await()
+                                .addArguments(
+                                    "--add-modules", modulesString,
+                                    "--output", temporaryFolder.toString(),
+                                    "--strip-debug",
+                                    "--no-header-files",
+                                    "--no-man-pages");
+                            final int jlinkExitCode = jlink.run().await();
+                            if (jlinkExitCode != 0)
+                            {
+                                throw new RuntimeException("jlink exited with exit code " + jlinkExitCode + ".");
+                            }
+                            if (!temporaryFolder.fileExists("bin/java").await() && !temporaryFolder.fileExists("bin/java.exe").await())
+                            {
+                                throw new RuntimeException("jlink exited without creating " + temporaryFolder.getFile("bin/java").await() + ".");
+                            }
+
+                            try
+                            {
+                                QubPublishFiles.move(temporaryFolder, result).await();
+                            }
+                            catch (AlreadyExistsException alreadyExists)
+                            {
+                                // A publish that doesn't share this lock created the same runtime
+                                // image first, so use that one instead.
+                                temporaryFolder.delete().await();
+                            }
+                        }
+                        catch (Throwable error)
+                        {
+                            temporaryFolder.delete().catchError().await();
+                            throw error;
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    static Result<Boolean> writeShortcut(QubFolder qubFolder, String shortcutName, Iterable<String> shortcutLines)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNullAndNotEmpty(shortcutName, "shortcutName");
+        PreCondition.assertNotNullAndNotEmpty(shortcutLines, "shortcutLines");
+
+        return Result.create(() ->
+        {
+            final File shortcutFile = qubFolder.getFile(shortcutName + ".cmd").await();
+            final String existingContents = shortcutFile.getContentsAsString()
+                .catchError(FileNotFoundException.class)
+                .await();
+            final boolean result = existingContents == null ||
+                !String.join("\n", Strings.getLines(existingContents)).equals(String.join("\n", shortcutLines));
+            if (result)
+            {
+                try (final CharacterWriteStream shortcutFileStream = shortcutFile.getContentsCharacterWriteStream().await())
+                {
+                    for (final String shortcutLine : shortcutLines)
+                    {
+                        shortcutFileStream.writeLine(shortcutLine).await();
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    static void findDependents(QubFolder qubFolder, String publisher, String project, java.util.concurrent.Executor fileExecutor, Action1<ProjectSignature> onDependentFound)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+        PreCondition.assertNotNull(fileExecutor, "fileExecutor");
+        PreCondition.assertNotNull(onDependentFound, "onDependentFound");
+
+        // Each project folder is scanned on the file executor, but the dependents are reported in
+        // the order that the project folders were iterated in. Only a window of scans is in flight
+        // at a time, and the scans at the front of the window are reported as soon as they finish,
+        // so dependents are reported while the qub folder is still being iterated.
+        final int maximumScansInFlight = 64;
+        final java.util.ArrayDeque<java.util.concurrent.CompletableFuture<ProjectSignature>> scans = new java.util.ArrayDeque<>();
+        for (final QubPublisherFolder publisherFolder : qubFolder.iteratePublisherFolders())
+        {
+            for (final QubProjectFolder projectFolder : publisherFolder.iterateProjectFolders())
+            {
+                scans.addLast(java.util.concurrent.CompletableFuture.supplyAsync(() ->
+                {
+                    return QubPublish.getDependent(projectFolder, publisher, project);
+                }, fileExecutor));
+
+                while (!scans.isEmpty() && (scans.size() >= maximumScansInFlight || scans.peekFirst().isDone()))
+                {
+                    QubPublish.reportDependent(scans.removeFirst(), onDependentFound);
+                }
+            }
+        }
+
+        while (!scans.isEmpty())
+        {
+            QubPublish.reportDependent(scans.removeFirst(), onDependentFound);
+        }
+    }
+
+    private static void reportDependent(java.util.concurrent.CompletableFuture<ProjectSignature> scan, Action1<ProjectSignature> onDependentFound)
+    {
+        final ProjectSignature dependent = QubPublish.join(scan);
+        if (dependent != null)
+        {
+            onDependentFound.run(dependent);
+        }
+    }
+
+    private static ProjectSignature getDependent(QubProjectFolder projectFolder, String publisher, String project)
+    {
+        ProjectSignature result = null;
+        final String latestVersion = QubProjectVersionIndex.get(projectFolder).await().getLatestVersion();
+        if (latestVersion != null)
+        {
+            final QubProjectVersionFolder latestVersionFolder = projectFolder.getProjectVersionFolder(latestVersion).await();
+            final QubPublishMetadata metadata = QubPublishMetadata.read(latestVersionFolder)
+                .catchError()
+                .await();
+            final boolean dependsOn;
+            if (metadata != null)
+            {
+                dependsOn = metadata.dependsOn(publisher, project);
+            }
+            else
+            {
+                final byte[] publishedProjectJsonBytes = latestVersionFolder.getProjectJSONFile().await()
+                    .getContents()
+                    .catchError(FileNotFoundException.class)
+                    .await();
+                dependsOn = publishedProjectJsonBytes != null && ProjectJSONDependencyScanner.dependsOn(publishedProjectJsonBytes, publisher, project);
+            }
+            if (dependsOn)
+            {
+                result = latestVersionFolder.getProjectSignature().await();
+            }
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
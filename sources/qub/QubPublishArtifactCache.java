@@ -0,0 +1,258 @@
+package qub;
+
+/**
+ * A cache of the artifacts that are read while publishing projects. A single QubPublishArtifactCache
+ * can be shared by every publish that runs in the same process, so that a batch or daemon process
+ * doesn't read, hash, and parse the same files again for each publish.
+ */
+public class QubPublishArtifactCache
+{
+    /**
+     * The maximum number of entries that each of a QubPublishArtifactCache's internal caches will
+     * hold if no maximum is specified.
+     */
+    public static final int defaultMaximumEntryCount = 1024;
+
+    private static final QubPublishArtifactCache shared = QubPublishArtifactCache.create();
+
+    private final int maximumEntryCount;
+    private final ProjectJSONCache projectJSONCache;
+    private final java.util.LinkedHashMap<String,ContentHashEntry> contentHashes;
+    private final java.util.LinkedHashMap<String,Object> values;
+    private final java.util.concurrent.atomic.LongAdder contentHashHitCount;
+    private final java.util.concurrent.atomic.LongAdder contentHashMissCount;
+    private final java.util.Map<String,Iterable<ProjectSignature>> dependencyCache;
+
+    private QubPublishArtifactCache(int maximumEntryCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(maximumEntryCount, 1, "maximumEntryCount");
+
+        this.maximumEntryCount = maximumEntryCount;
+        this.projectJSONCache = ProjectJSONCache.create(maximumEntryCount);
+        this.contentHashes = QubPublishArtifactCache.createLRUMap(maximumEntryCount);
+        this.values = QubPublishArtifactCache.createLRUMap(maximumEntryCount);
+        this.contentHashHitCount = new java.util.concurrent.atomic.LongAdder();
+        this.contentHashMissCount = new java.util.concurrent.atomic.LongAdder();
+        this.dependencyCache = java.util.Collections.synchronizedMap(QubPublishArtifactCache.createLRUMap(maximumEntryCount));
+    }
+
+    private static <T> java.util.LinkedHashMap<String,T> createLRUMap(int maximumEntryCount)
+    {
+        return new java.util.LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String,T> eldest)
+            {
+                return this.size() > maximumEntryCount;
+            }
+        };
+    }
+
+    /**
+     * Create a new QubPublishArtifactCache.
+     * @return The new QubPublishArtifactCache.
+     */
+    public static QubPublishArtifactCache create()
+    {
+        return QubPublishArtifactCache.create(QubPublishArtifactCache.defaultMaximumEntryCount);
+    }
+
+    /**
+     * Create a new QubPublishArtifactCache whose internal caches will each hold at most the provided
+     * number of entries.
+     * @param maximumEntryCount The maximum number of entries that each internal cache will hold.
+     * @return The new QubPublishArtifactCache.
+     */
+    public static QubPublishArtifactCache create(int maximumEntryCount)
+    {
+        return new QubPublishArtifactCache(maximumEntryCount);
+    }
+
+    /**
+     * Get the QubPublishArtifactCache that is shared by every publish in the current process.
+     * @return The QubPublishArtifactCache that is shared by every publish in the current process.
+     */
+    public static QubPublishArtifactCache getShared()
+    {
+        return QubPublishArtifactCache.shared;
+    }
+
+    /**
+     * Get the maximum number of entries that each of this cache's internal caches will hold.
+     * @return The maximum number of entries that each of this cache's internal caches will hold.
+     */
+    public int getMaximumEntryCount()
+    {
+        return this.maximumEntryCount;
+    }
+
+    /**
+     * Get the cache of parsed project.json files.
+     * @return The cache of parsed project.json files.
+     */
+    public ProjectJSONCache getProjectJSONCache()
+    {
+        return this.projectJSONCache;
+    }
+
+    /**
+     * Get the direct dependencies of published projects, keyed by project signature. A published
+     * version's project.json file never changes, so the dependencies that are read from it can be
+     * shared by every dependency graph that is resolved in the same process. Like this cache's
+     * other internal caches, it holds at most the maximum entry count and evicts the least recently
+     * used entries first.
+     * @return The direct dependencies of published projects, keyed by project signature.
+     */
+    public java.util.Map<String,Iterable<ProjectSignature>> getDependencyCache()
+    {
+        return this.dependencyCache;
+    }
+
+    /**
+     * Get the number of times that a content hash was answered from this cache.
+     * @return The number of times that a content hash was answered from this cache.
+     */
+    public long getContentHashHitCount()
+    {
+        return this.contentHashHitCount.sum();
+    }
+
+    /**
+     * Get the number of times that a file's contents had to be read and hashed.
+     * @return The number of times that a file's contents had to be read and hashed.
+     */
+    public long getContentHashMissCount()
+    {
+        return this.contentHashMissCount.sum();
+    }
+
+    /**
+     * Get the SHA-256 hash of the provided file's contents. The hash is only computed again if the
+     * file's last modified time or size has changed since it was last hashed.
+     * @param file The file to get the content hash of.
+     * @return The lowercase hexadecimal SHA-256 hash of the file's contents.
+     */
+    public Result<String> getContentHash(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        return Result.create(() ->
+        {
+            final String key = file.getPath().toString();
+            final DateTime lastModified = file.getLastModified().await();
+            final long byteCount = file.getContentsByteCount().await();
+
+            String result;
+            synchronized (this.contentHashes)
+            {
+                final ContentHashEntry entry = this.contentHashes.get(key);
+                result = entry != null && entry.byteCount == byteCount && Comparer.equal(entry.lastModified, lastModified)
+                    ? entry.contentHash
+                    : null;
+            }
+
+            if (result != null)
+            {
+                this.contentHashHitCount.increment();
+            }
+            else
+            {
+                this.contentHashMissCount.increment();
+                result = QubPublishArtifactCache.getHash(file.getContents().await());
+                synchronized (this.contentHashes)
+                {
+                    this.contentHashes.put(key, new ContentHashEntry(lastModified, byteCount, result));
+                }
+            }
+
+            PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+            return result;
+        });
+    }
+
+    /**
+     * Get the value of the provided kind that was derived from the contents of the provided file. If
+     * no value has been derived from the file's current contents yet, then the provided function
+     * will be run to create it. Because values are keyed by content hash, identical files at
+     * different paths share the same value.
+     * @param file The file that the value is derived from.
+     * @param valueKind The kind of value to get. Different kinds of values can be derived from the
+     *                  same file contents.
+     * @param createValue The function that will create the value if it isn't already cached.
+     * @param <T> The type of value to get.
+     * @return The cached or created value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> getValue(File file, String valueKind, Function0<T> createValue)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNullAndNotEmpty(valueKind, "valueKind");
+        PreCondition.assertNotNull(createValue, "createValue");
+
+        return Result.create(() ->
+        {
+            final String key = valueKind + ":" + this.getContentHash(file).await();
+
+            T result;
+            synchronized (this.values)
+            {
+                result = (T)this.values.get(key);
+            }
+
+            if (result == null)
+            {
+                result = createValue.run();
+                if (result != null)
+                {
+                    synchronized (this.values)
+                    {
+                        this.values.put(key, result);
+                    }
+                }
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Get the lowercase hexadecimal SHA-256 hash of the provided bytes.
+     * @param bytes The bytes to hash.
+     * @return The lowercase hexadecimal SHA-256 hash of the provided bytes.
+     */
+    public static String getHash(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        try
+        {
+            final byte[] digest = java.security.MessageDigest.getInstance("SHA-256").digest(bytes);
+            final StringBuilder result = new StringBuilder(digest.length * 2);
+            for (final byte digestByte : digest)
+            {
+                result.append(Character.forDigit((digestByte >> 4) & 0xF, 16));
+                result.append(Character.forDigit(digestByte & 0xF, 16));
+            }
+            return result.toString();
+        }
+        catch (java.security.NoSuchAlgorithmException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+
+    private static class ContentHashEntry
+    {
+        private final DateTime lastModified;
+        private final long byteCount;
+        private final String contentHash;
+
+        private ContentHashEntry(DateTime lastModified, long byteCount, String contentHash)
+        {
+            this.lastModified = lastModified;
+            this.byteCount = byteCount;
+            this.contentHash = contentHash;
+        }
+    }
+}
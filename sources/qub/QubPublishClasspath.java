@@ -0,0 +1,250 @@
+package qub;
+
+/**
+ * The resolved classpath of a published project. The classpath is written to a "classpath.json"
+ * file in the published project's version folder so that other tools and launchers can use it
+ * without resolving the project's transitive dependencies again.
+ */
+public class QubPublishClasspath
+{
+    /**
+     * The name of the file within a QubProjectVersionFolder that the classpath is written to.
+     */
+    public static final String fileName = "classpath.json";
+
+    private static final String relativePropertyName = "relative";
+    private static final String absolutePropertyName = "absolute";
+    private static final String conflictsPropertyName = "conflicts";
+
+    private final Iterable<String> relativePaths;
+    private final Iterable<String> absolutePaths;
+    private DependencyConflictStrategy conflictStrategy;
+
+    private QubPublishClasspath(Iterable<String> relativePaths, Iterable<String> absolutePaths)
+    {
+        PreCondition.assertNotNull(relativePaths, "relativePaths");
+        PreCondition.assertNotNull(absolutePaths, "absolutePaths");
+        PreCondition.assertEqual(relativePaths.getCount(), absolutePaths.getCount(), "absolutePaths.getCount()");
+
+        this.relativePaths = relativePaths;
+        this.absolutePaths = absolutePaths;
+    }
+
+    /**
+     * Create a new QubPublishClasspath from the provided classpath files.
+     * @param qubFolder The qub folder that the relative paths will be relative to.
+     * @param classpathFiles The files that make up the classpath, in classpath order.
+     * @return The new QubPublishClasspath.
+     */
+    public static QubPublishClasspath create(QubFolder qubFolder, Iterable<File> classpathFiles)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(classpathFiles, "classpathFiles");
+
+        final List<String> relativePaths = List.create();
+        final List<String> absolutePaths = List.create();
+        for (final File classpathFile : classpathFiles)
+        {
+            relativePaths.add(classpathFile.relativeTo(qubFolder).toString());
+            absolutePaths.add(classpathFile.toString());
+        }
+        return new QubPublishClasspath(relativePaths, absolutePaths);
+    }
+
+    /**
+     * Parse a QubPublishClasspath from the provided classpath.json file.
+     * @param classpathJsonFile The classpath.json file to parse.
+     * @return The parsed QubPublishClasspath.
+     */
+    public static Result<QubPublishClasspath> parse(File classpathJsonFile)
+    {
+        PreCondition.assertNotNull(classpathJsonFile, "classpathJsonFile");
+
+        return Result.create(() ->
+        {
+            final JSONObject json = JSON.parseObject(classpathJsonFile.getContentsAsString().await()).await();
+            final QubPublishClasspath result = new QubPublishClasspath(
+                QubPublishClasspath.getStrings(json.getArray(QubPublishClasspath.relativePropertyName).await()),
+                QubPublishClasspath.getStrings(json.getArray(QubPublishClasspath.absolutePropertyName).await()));
+            final String conflicts = json.getString(QubPublishClasspath.conflictsPropertyName)
+                .catchError()
+                .await();
+            if (!Strings.isNullOrEmpty(conflicts))
+            {
+                for (final DependencyConflictStrategy conflictStrategy : DependencyConflictStrategy.values())
+                {
+                    if (conflictStrategy.toString().equalsIgnoreCase(conflicts))
+                    {
+                        result.setConflictStrategy(conflictStrategy);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private static Iterable<String> getStrings(JSONArray array)
+    {
+        final List<String> result = List.create();
+        for (final JSONSegment element : array)
+        {
+            result.add(((JSONString)element).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get the paths of the classpath files relative to the qub folder.
+     * @return The paths of the classpath files relative to the qub folder.
+     */
+    public Iterable<String> getRelativePaths()
+    {
+        return this.relativePaths;
+    }
+
+    /**
+     * Get the absolute paths of the classpath files.
+     * @return The absolute paths of the classpath files.
+     */
+    public Iterable<String> getAbsolutePaths()
+    {
+        return this.absolutePaths;
+    }
+
+    /**
+     * Get the strategy that was used to resolve dependency version conflicts when this classpath
+     * was resolved, or null if it isn't known.
+     * @return The strategy that was used to resolve dependency version conflicts.
+     */
+    public DependencyConflictStrategy getConflictStrategy()
+    {
+        return this.conflictStrategy;
+    }
+
+    /**
+     * Set the strategy that was used to resolve dependency version conflicts when this classpath
+     * was resolved.
+     * @param conflictStrategy The strategy that was used to resolve dependency version conflicts.
+     * @return This object for method chaining.
+     */
+    public QubPublishClasspath setConflictStrategy(DependencyConflictStrategy conflictStrategy)
+    {
+        this.conflictStrategy = conflictStrategy;
+
+        return this;
+    }
+
+    /**
+     * Create a copy of this classpath where the first classpath file, which is the compiled sources
+     * file of the project that the classpath belongs to, is replaced with the provided file. The
+     * rest of the classpath only depends on the project's dependencies, so a version of a project
+     * whose dependencies haven't changed can reuse the classpath of a previous version this way.
+     * @param qubFolder The qub folder that the relative paths are relative to.
+     * @param projectFile The compiled sources file that will be first in the new classpath.
+     * @return The new classpath.
+     */
+    public QubPublishClasspath withProjectFile(QubFolder qubFolder, File projectFile)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(projectFile, "projectFile");
+        PreCondition.assertTrue(this.relativePaths.any(), "this.getRelativePaths().any()");
+
+        return new QubPublishClasspath(
+                QubPublishClasspath.replaceFirst(this.relativePaths, projectFile.relativeTo(qubFolder).toString()),
+                QubPublishClasspath.replaceFirst(this.absolutePaths, projectFile.toString()))
+            .setConflictStrategy(this.conflictStrategy);
+    }
+
+    private static Iterable<String> replaceFirst(Iterable<String> values, String firstValue)
+    {
+        final List<String> result = List.create(firstValue);
+        boolean first = true;
+        for (final String value : values)
+        {
+            if (first)
+            {
+                first = false;
+            }
+            else
+            {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the classpath argument that a shortcut file in the root of the qub folder should pass to
+     * java.
+     * @return The classpath argument for a shortcut file in the root of the qub folder.
+     */
+    public String getShortcutClasspath()
+    {
+        final CharacterList result = CharacterList.create();
+        for (final String relativePath : this.relativePaths)
+        {
+            if (result.any())
+            {
+                result.add(';');
+            }
+            result.addAll("%~dp0").addAll(relativePath);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Write this classpath to the classpath.json file in the provided version folder. The file
+     * isn't rewritten if it already contains this classpath.
+     * @param versionFolder The version folder to write this classpath to.
+     * @return The result of writing this classpath.
+     */
+    public Result<Void> writeTo(QubProjectVersionFolder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        return Result.create(() ->
+        {
+            final File classpathJsonFile = versionFolder.getFile(QubPublishClasspath.fileName).await();
+            final String classpathJsonText = this.toJson().toString();
+            final String existingClasspathJsonText = classpathJsonFile.getContentsAsString()
+                .catchError(FileNotFoundException.class)
+                .await();
+            if (!classpathJsonText.equals(existingClasspathJsonText))
+            {
+                classpathJsonFile.setContentsAsString(classpathJsonText).await();
+            }
+        });
+    }
+
+    /**
+     * Get the JSON representation of this classpath.
+     * @return The JSON representation of this classpath.
+     */
+    public JSONObject toJson()
+    {
+        final JSONObject result = JSONObject.create()
+            .setArray(QubPublishClasspath.relativePropertyName, QubPublishClasspath.toJsonArray(this.relativePaths))
+            .setArray(QubPublishClasspath.absolutePropertyName, QubPublishClasspath.toJsonArray(this.absolutePaths));
+        if (this.conflictStrategy != null)
+        {
+            result.setString(QubPublishClasspath.conflictsPropertyName, this.conflictStrategy.toString().toLowerCase());
+        }
+        return result;
+    }
+
+    private static JSONArray toJsonArray(Iterable<String> values)
+    {
+        final JSONArray result = JSONArray.create();
+        for (final String value : values)
+        {
+            result.add(JSONString.get(value));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.toJson().toString();
+    }
+}
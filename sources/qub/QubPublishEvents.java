@@ -0,0 +1,219 @@
+package qub;
+
+/**
+ * A stream of machine-readable progress events that are written while a project is published.
+ * Each event is written as a single line JSON object (newline-delimited JSON) so that other
+ * processes can react to a publish as it progresses instead of waiting for it to finish.
+ */
+public class QubPublishEvents implements Disposable
+{
+    private final CharacterWriteStream writeStream;
+    private final java.util.Map<String,Long> phaseStartTimes;
+    private QubPublishMetrics metrics;
+    private boolean disposed;
+
+    private QubPublishEvents(CharacterWriteStream writeStream)
+    {
+        this.writeStream = writeStream;
+        this.phaseStartTimes = new java.util.HashMap<>();
+    }
+
+    /**
+     * Create a new QubPublishEvents object that doesn't write its events anywhere.
+     * @return The new QubPublishEvents object.
+     */
+    public static QubPublishEvents create()
+    {
+        return new QubPublishEvents(null);
+    }
+
+    /**
+     * Create a new QubPublishEvents object that writes its events to the provided
+     * CharacterWriteStream.
+     * @param writeStream The CharacterWriteStream that events will be written to.
+     * @return The new QubPublishEvents object.
+     */
+    public static QubPublishEvents create(CharacterWriteStream writeStream)
+    {
+        PreCondition.assertNotNull(writeStream, "writeStream");
+
+        return new QubPublishEvents(writeStream);
+    }
+
+    /**
+     * Get the QubPublishMetrics object that phase durations and copied artifacts will be recorded
+     * to, or null if they aren't recorded.
+     * @return The QubPublishMetrics object that phase durations and copied artifacts will be
+     * recorded to.
+     */
+    public QubPublishMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * Set the QubPublishMetrics object that phase durations and copied artifacts will be recorded
+     * to.
+     * @param metrics The QubPublishMetrics object that phase durations and copied artifacts will be
+     *                recorded to.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents setMetrics(QubPublishMetrics metrics)
+    {
+        this.metrics = metrics;
+
+        return this;
+    }
+
+    /**
+     * Write an event that indicates that the provided publish phase has started.
+     * @param phase The name of the phase that started.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents phaseStarted(String phase)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phase, "phase");
+
+        synchronized (this.phaseStartTimes)
+        {
+            this.phaseStartTimes.put(phase, System.nanoTime());
+        }
+        return this.writeEvent(JSONObject.create()
+            .setString("event", "phaseStarted")
+            .setString("phase", phase));
+    }
+
+    /**
+     * Write an event that indicates that the provided publish phase has completed.
+     * @param phase The name of the phase that completed.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents phaseCompleted(String phase)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phase, "phase");
+
+        final Long startTime;
+        synchronized (this.phaseStartTimes)
+        {
+            startTime = this.phaseStartTimes.remove(phase);
+        }
+        final JSONObject event = JSONObject.create()
+            .setString("event", "phaseCompleted")
+            .setString("phase", phase);
+        if (startTime != null)
+        {
+            final long durationNanoseconds = System.nanoTime() - startTime;
+            event.setNumber("durationMilliseconds", QubPublishEvents.getMilliseconds(durationNanoseconds));
+            if (this.metrics != null)
+            {
+                this.metrics.phaseCompleted(phase, durationNanoseconds);
+            }
+        }
+        return this.writeEvent(event);
+    }
+
+    /**
+     * Write an event that indicates that an artifact was copied into the published version folder.
+     * @param artifactName The name of the artifact that was copied.
+     * @param contentHash The SHA-256 hash of the artifact's contents.
+     * @param byteCount The number of bytes that were copied.
+     * @param durationNanoseconds The number of nanoseconds that it took to copy the artifact.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents artifactCopied(String artifactName, String contentHash, long byteCount, long durationNanoseconds)
+    {
+        PreCondition.assertNotNullAndNotEmpty(artifactName, "artifactName");
+        PreCondition.assertNotNullAndNotEmpty(contentHash, "contentHash");
+        PreCondition.assertGreaterThanOrEqualTo(byteCount, 0, "byteCount");
+        PreCondition.assertGreaterThanOrEqualTo(durationNanoseconds, 0, "durationNanoseconds");
+
+        if (this.metrics != null)
+        {
+            this.metrics.artifactCopied(byteCount);
+        }
+
+        final JSONObject event = JSONObject.create()
+            .setString("event", "artifactCopied")
+            .setString("artifact", artifactName)
+            .setString("sha256", contentHash)
+            .setNumber("bytes", byteCount)
+            .setNumber("durationMilliseconds", QubPublishEvents.getMilliseconds(durationNanoseconds));
+        if (durationNanoseconds > 0)
+        {
+            event.setNumber("bytesPerSecond", (long)(byteCount * 1_000_000_000.0 / durationNanoseconds));
+        }
+        return this.writeEvent(event);
+    }
+
+    /**
+     * Write an event that indicates that the provided project has been committed to the qub folder
+     * and can be used by other projects.
+     * @param project The signature of the project that was committed.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents committed(ProjectSignature project)
+    {
+        PreCondition.assertNotNull(project, "project");
+
+        return this.writeEvent(JSONObject.create()
+            .setString("event", "committed")
+            .setString("project", project.toString()));
+    }
+
+    /**
+     * Write an event that indicates that a published project depends on the project that is being
+     * published.
+     * @param dependent The signature of the published project that depends on the project that is
+     *                  being published.
+     * @return This object for method chaining.
+     */
+    public QubPublishEvents dependentFound(ProjectSignature dependent)
+    {
+        PreCondition.assertNotNull(dependent, "dependent");
+
+        return this.writeEvent(JSONObject.create()
+            .setString("event", "dependentFound")
+            .setString("dependent", dependent.toString()));
+    }
+
+    private QubPublishEvents writeEvent(JSONObject event)
+    {
+        if (this.writeStream != null)
+        {
+            synchronized (this.writeStream)
+            {
+                this.writeStream.writeLine(event.toString()).await();
+            }
+        }
+        return this;
+    }
+
+    private static double getMilliseconds(long nanoseconds)
+    {
+        return nanoseconds / 1_000_000.0;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                if (this.writeStream instanceof Disposable)
+                {
+                    ((Disposable)this.writeStream).dispose().await();
+                }
+            }
+            return result;
+        });
+    }
+}
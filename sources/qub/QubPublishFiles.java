@@ -0,0 +1,174 @@
+package qub;
+
+/**
+ * File operations that qub-publish needs but that the qub file system abstraction doesn't have.
+ * Files on the local disk are moved with java.nio so that a move within a folder is atomic, and
+ * files on any other file system fall back to a copy followed by a delete.
+ */
+public class QubPublishFiles
+{
+    private QubPublishFiles()
+    {
+    }
+
+    /**
+     * Get the java.nio Path of the provided entry if it is on the local disk.
+     * @param entry The entry to get the java.nio Path of.
+     * @return The java.nio Path of the provided entry, or null if the entry isn't on the local disk.
+     */
+    public static java.nio.file.Path getJavaPath(FileSystemEntry entry)
+    {
+        PreCondition.assertNotNull(entry, "entry");
+
+        return entry.getFileSystem() instanceof JavaFileSystem
+            ? java.nio.file.Paths.get(entry.getPath().toString())
+            : null;
+    }
+
+    /**
+     * Get a file next to the provided file that can be written to before it is moved over the
+     * provided file. Each call returns a different file.
+     * @param file The file that the temporary file will replace.
+     * @return A temporary file next to the provided file.
+     */
+    public static File getTemporaryFile(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        return file.getParentFolder().await()
+            .getFile(file.getName() + "." + java.util.UUID.randomUUID() + ".tmp").await();
+    }
+
+    /**
+     * Move the provided source file to the provided destination file, replacing the destination
+     * file if it exists. On the local disk readers will see either the old destination file or
+     * the complete source file, never a partially written file.
+     * @param source The file to move.
+     * @param destination The file that the source file will be moved to.
+     * @return The result of moving the file.
+     */
+    public static Result<Void> move(File source, File destination)
+    {
+        PreCondition.assertNotNull(source, "source");
+        PreCondition.assertNotNull(destination, "destination");
+
+        return Result.create(() ->
+        {
+            final java.nio.file.Path sourcePath = QubPublishFiles.getJavaPath(source);
+            final java.nio.file.Path destinationPath = QubPublishFiles.getJavaPath(destination);
+            if (sourcePath != null && destinationPath != null)
+            {
+                QubPublishFiles.move(source, sourcePath, destinationPath);
+            }
+            else
+            {
+                destination.setContents(source.getContents().await()).await();
+                source.delete().await();
+            }
+        });
+    }
+
+    /**
+     * Move the provided source folder to the provided destination folder. The destination folder
+     * must not exist. On the local disk readers will either not see the destination folder or
+     * will see it with all of its contents.
+     * @param source The folder to move.
+     * @param destination The folder that the source folder will be moved to.
+     * @return The result of moving the folder.
+     */
+    public static Result<Void> move(Folder source, Folder destination)
+    {
+        PreCondition.assertNotNull(source, "source");
+        PreCondition.assertNotNull(destination, "destination");
+
+        return Result.create(() ->
+        {
+            if (destination.exists().await())
+            {
+                throw new AlreadyExistsException("The folder at " + Strings.escapeAndQuote(destination.toString()) + " already exists.");
+            }
+
+            final java.nio.file.Path sourcePath = QubPublishFiles.getJavaPath(source);
+            final java.nio.file.Path destinationPath = QubPublishFiles.getJavaPath(destination);
+            if (sourcePath != null && destinationPath != null)
+            {
+                try
+                {
+                    java.nio.file.Files.createDirectories(destinationPath.getParent());
+                    java.nio.file.Files.move(sourcePath, destinationPath, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (java.nio.file.FileAlreadyExistsException error)
+                {
+                    throw new AlreadyExistsException("The folder at " + Strings.escapeAndQuote(destination.toString()) + " already exists.");
+                }
+                catch (java.io.IOException error)
+                {
+                    throw Exceptions.asRuntime(error);
+                }
+            }
+            else
+            {
+                for (final File sourceFile : source.iterateFilesRecursively())
+                {
+                    destination.getFile(sourceFile.relativeTo(source)).await()
+                        .setContents(sourceFile.getContents().await()).await();
+                }
+                source.delete().await();
+            }
+        });
+    }
+
+    /**
+     * Set the contents of the provided file by writing them to a temporary file next to it and
+     * then moving the temporary file over it.
+     * @param file The file to set the contents of.
+     * @param contents The new contents of the file.
+     * @return The result of setting the contents of the file.
+     */
+    public static Result<Void> setContentsAsString(File file, String contents)
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNull(contents, "contents");
+
+        return Result.create(() ->
+        {
+            final File temporaryFile = QubPublishFiles.getTemporaryFile(file);
+            try
+            {
+                temporaryFile.setContentsAsString(contents).await();
+                QubPublishFiles.move(temporaryFile, file).await();
+            }
+            catch (Throwable error)
+            {
+                temporaryFile.delete().catchError().await();
+                throw error;
+            }
+        });
+    }
+
+    private static void move(File source, java.nio.file.Path sourcePath, java.nio.file.Path destinationPath)
+    {
+        try
+        {
+            try
+            {
+                java.nio.file.Files.move(sourcePath, destinationPath,
+                    java.nio.file.StandardCopyOption.ATOMIC_MOVE,
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (java.nio.file.AtomicMoveNotSupportedException error)
+            {
+                java.nio.file.Files.move(sourcePath, destinationPath,
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (java.nio.file.NoSuchFileException error)
+        {
+            throw new FileNotFoundException(source);
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package qub;
+
+/**
+ * A record of the stages of a publish that have completed. The journal is written to a
+ * "publish.json" file in the outputs folder of the project that is being published, along with
+ * the content hashes of the artifacts that the pack stage produced. If a publish fails part of the
+ * way through, the next publish of the same outputs can use the journal to skip the stages that
+ * already completed instead of packing and testing the project again.
+ */
+public class QubPublishJournal
+{
+    /**
+     * The name of the file within a project's outputs folder that the journal is written to.
+     */
+    public static final String fileName = "publish.json";
+
+    /**
+     * The stage that packs (compiles, tests, and jars) the project.
+     */
+    public static final String packStage = "pack";
+
+    /**
+     * The stage that copies the project's artifacts into the published version folder.
+     */
+    public static final String copyStage = "copy";
+
+    private static final String stagesPropertyName = "stages";
+    private static final String versionPropertyName = "version";
+    private static final String artifactsPropertyName = "artifacts";
+    private static final String artifactNamePropertyName = "name";
+    private static final String artifactHashPropertyName = "sha256";
+
+    private final java.util.LinkedHashSet<String> stages;
+    private final java.util.TreeMap<String,String> artifactHashes;
+    private String version;
+
+    private QubPublishJournal()
+    {
+        this.stages = new java.util.LinkedHashSet<>();
+        this.artifactHashes = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Create a new empty QubPublishJournal.
+     * @return The new QubPublishJournal.
+     */
+    public static QubPublishJournal create()
+    {
+        return new QubPublishJournal();
+    }
+
+    /**
+     * Get the journal that is stored in the provided outputs folder. If the outputs folder doesn't
+     * have a journal file or the file can't be parsed, then an empty journal will be returned.
+     * @param outputFolder The outputs folder to get the journal of.
+     * @return The journal that is stored in the provided outputs folder.
+     */
+    public static Result<QubPublishJournal> get(Folder outputFolder)
+    {
+        PreCondition.assertNotNull(outputFolder, "outputFolder");
+
+        return Result.create(() ->
+        {
+            final QubPublishJournal result = QubPublishJournal.create();
+            final JSONObject json = QubPublishJournal.getFile(outputFolder).await()
+                .getContentsAsString()
+                .then((String journalText) -> JSON.parseObject(journalText).await())
+                .catchError()
+                .await();
+            if (json != null)
+            {
+                final JSONArray stagesJson = json.getArray(QubPublishJournal.stagesPropertyName)
+                    .catchError()
+                    .await();
+                if (stagesJson != null)
+                {
+                    for (final JSONSegment stageJson : stagesJson)
+                    {
+                        if (stageJson instanceof JSONString)
+                        {
+                            result.completeStage(((JSONString)stageJson).getValue());
+                        }
+                    }
+                }
+
+                final String version = json.getString(QubPublishJournal.versionPropertyName)
+                    .catchError()
+                    .await();
+                if (!Strings.isNullOrEmpty(version))
+                {
+                    result.setVersion(version);
+                }
+
+                final JSONArray artifactsJson = json.getArray(QubPublishJournal.artifactsPropertyName)
+                    .catchError()
+                    .await();
+                if (artifactsJson != null)
+                {
+                    for (final JSONSegment artifactJson : artifactsJson)
+                    {
+                        if (artifactJson instanceof JSONObject)
+                        {
+                            final String name = ((JSONObject)artifactJson).getString(QubPublishJournal.artifactNamePropertyName)
+                                .catchError()
+                                .await();
+                            final String hash = ((JSONObject)artifactJson).getString(QubPublishJournal.artifactHashPropertyName)
+                                .catchError()
+                                .await();
+                            if (!Strings.isNullOrEmpty(name) && !Strings.isNullOrEmpty(hash))
+                            {
+                                result.setArtifactHash(name, hash);
+                            }
+                        }
+                    }
+                }
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    /**
+     * Get the journal file within the provided outputs folder.
+     * @param outputFolder The outputs folder that contains the journal file.
+     * @return The journal file within the provided outputs folder.
+     */
+    public static Result<File> getFile(Folder outputFolder)
+    {
+        PreCondition.assertNotNull(outputFolder, "outputFolder");
+
+        return outputFolder.getFile(QubPublishJournal.fileName);
+    }
+
+    /**
+     * Get whether or not the provided stage has completed.
+     * @param stage The stage to check.
+     * @return Whether or not the provided stage has completed.
+     */
+    public boolean isStageCompleted(String stage)
+    {
+        PreCondition.assertNotNullAndNotEmpty(stage, "stage");
+
+        return this.stages.contains(stage);
+    }
+
+    /**
+     * Record that the provided stage has completed.
+     * @param stage The stage that completed.
+     * @return This object for method chaining.
+     */
+    public QubPublishJournal completeStage(String stage)
+    {
+        PreCondition.assertNotNullAndNotEmpty(stage, "stage");
+
+        this.stages.add(stage);
+
+        return this;
+    }
+
+    /**
+     * Get the stages that have completed, in the order that they completed.
+     * @return The stages that have completed.
+     */
+    public Iterable<String> getCompletedStages()
+    {
+        final List<String> result = List.create();
+        for (final String stage : this.stages)
+        {
+            result.add(stage);
+        }
+        return result;
+    }
+
+    /**
+     * Get the version that the outputs are being published as, or null if a version hasn't been
+     * chosen yet.
+     * @return The version that the outputs are being published as.
+     */
+    public String getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Set the version that the outputs are being published as.
+     * @param version The version that the outputs are being published as.
+     * @return This object for method chaining.
+     */
+    public QubPublishJournal setVersion(String version)
+    {
+        PreCondition.assertNotNullAndNotEmpty(version, "version");
+
+        this.version = version;
+
+        return this;
+    }
+
+    /**
+     * Get the content hash that was recorded for the artifact with the provided name, or null if
+     * no hash was recorded for it.
+     * @param artifactName The name of the artifact.
+     * @return The content hash that was recorded for the artifact.
+     */
+    public String getArtifactHash(String artifactName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(artifactName, "artifactName");
+
+        return this.artifactHashes.get(artifactName);
+    }
+
+    /**
+     * Record the content hash of the artifact with the provided name.
+     * @param artifactName The name of the artifact.
+     * @param contentHash The content hash of the artifact.
+     * @return This object for method chaining.
+     */
+    public QubPublishJournal setArtifactHash(String artifactName, String contentHash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(artifactName, "artifactName");
+        PreCondition.assertNotNullAndNotEmpty(contentHash, "contentHash");
+
+        this.artifactHashes.put(artifactName, contentHash);
+
+        return this;
+    }
+
+    /**
+     * Get the number of artifacts that have a recorded content hash.
+     * @return The number of artifacts that have a recorded content hash.
+     */
+    public int getArtifactCount()
+    {
+        return this.artifactHashes.size();
+    }
+
+    /**
+     * Get whether or not the provided artifacts are exactly the artifacts that were recorded in this
+     * journal. Artifacts that don't exist are ignored, but each recorded artifact must exist and
+     * have the same contents that it had when it was recorded.
+     * @param artifacts The artifacts to compare against this journal.
+     * @param artifactCache The cache that will be used to get the content hashes of the artifacts.
+     * @return Whether or not the provided artifacts match this journal.
+     */
+    public Result<Boolean> artifactsMatch(Iterable<File> artifacts, QubPublishArtifactCache artifactCache)
+    {
+        PreCondition.assertNotNull(artifacts, "artifacts");
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+
+        return Result.create(() ->
+        {
+            boolean result = this.artifactHashes.size() > 0;
+            int matchedCount = 0;
+            for (final File artifact : artifacts)
+            {
+                if (!result)
+                {
+                    break;
+                }
+
+                final String contentHash = artifactCache.getContentHash(artifact)
+                    .catchError(FileNotFoundException.class)
+                    .await();
+                if (contentHash != null)
+                {
+                    result = contentHash.equals(this.artifactHashes.get(artifact.getName()));
+                    ++matchedCount;
+                }
+            }
+            return result && matchedCount == this.artifactHashes.size();
+        });
+    }
+
+    /**
+     * Write this journal to the provided outputs folder.
+     * @param outputFolder The outputs folder to write this journal to.
+     * @return The result of writing this journal.
+     */
+    public Result<Void> writeTo(Folder outputFolder)
+    {
+        PreCondition.assertNotNull(outputFolder, "outputFolder");
+
+        return Result.create(() ->
+        {
+            QubPublishJournal.getFile(outputFolder).await()
+                .setContentsAsString(this.toJson().toString())
+                .await();
+        });
+    }
+
+    /**
+     * Get the JSON representation of this journal.
+     * @return The JSON representation of this journal.
+     */
+    public JSONObject toJson()
+    {
+        final JSONArray stagesJson = JSONArray.create();
+        for (final String stage : this.stages)
+        {
+            stagesJson.add(JSONString.get(stage));
+        }
+        final JSONObject result = JSONObject.create()
+            .setArray(QubPublishJournal.stagesPropertyName, stagesJson);
+        if (this.version != null)
+        {
+            result.setString(QubPublishJournal.versionPropertyName, this.version);
+        }
+        final JSONArray artifactsJson = JSONArray.create();
+        for (final java.util.Map.Entry<String,String> artifactHash : this.artifactHashes.entrySet())
+        {
+            artifactsJson.add(JSONObject.create()
+                .setString(QubPublishJournal.artifactNamePropertyName, artifactHash.getKey())
+                .setString(QubPublishJournal.artifactHashPropertyName, artifactHash.getValue()));
+        }
+        result.setArray(QubPublishJournal.artifactsPropertyName, artifactsJson);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.toJson().toString();
+    }
+}
@@ -0,0 +1,381 @@
+package qub;
+
+/**
+ * The metadata of a published project version in a compact binary form. The metadata is written to
+ * a "metadata.bin" file in the published project's version folder so that tools that only need a
+ * version's signature, dependencies, or artifact hashes can read them with a single bulk read and
+ * without parsing any JSON. Versions that were published before the metadata file existed don't
+ * have one, so readers must fall back to the version's project.json file.
+ * <p>
+ * All numbers are big-endian. Strings are written as an unsigned 16-bit byte count followed by
+ * that many UTF-8 bytes, and a signature is written as its publisher, project, and version strings.
+ * <pre>
+ * int32    magic ("QPMD")
+ * uint16   format version (1)
+ * uint16   reserved (0)
+ * int32    direct dependency count
+ * int32    transitive dependency count
+ * int32    artifact count
+ * sig      project signature
+ * sig[]    direct dependencies, in project.json order
+ * sig[]    transitive dependencies, in classpath order
+ * artifact artifacts, each an artifact name string followed by its 32 byte SHA-256 hash
+ * </pre>
+ */
+public class QubPublishMetadata
+{
+    /**
+     * The name of the file within a QubProjectVersionFolder that the metadata is written to.
+     */
+    public static final String fileName = "metadata.bin";
+
+    private static final int magic = 0x51504D44;
+    private static final int formatVersion = 1;
+    private static final int hashByteCount = 32;
+
+    private final ProjectSignature signature;
+    private final Iterable<ProjectSignature> dependencies;
+    private final Iterable<ProjectSignature> transitiveDependencies;
+    private final java.util.TreeMap<String,String> artifactHashes;
+
+    private QubPublishMetadata(ProjectSignature signature, Iterable<ProjectSignature> dependencies, Iterable<ProjectSignature> transitiveDependencies)
+    {
+        PreCondition.assertNotNull(signature, "signature");
+        PreCondition.assertNotNull(dependencies, "dependencies");
+        PreCondition.assertNotNull(transitiveDependencies, "transitiveDependencies");
+
+        this.signature = signature;
+        this.dependencies = dependencies;
+        this.transitiveDependencies = transitiveDependencies;
+        this.artifactHashes = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Create a new QubPublishMetadata object.
+     * @param signature The signature of the published project.
+     * @param dependencies The direct dependencies of the published project.
+     * @param transitiveDependencies The transitive dependencies of the published project, in
+     *                               classpath order.
+     * @return The new QubPublishMetadata object.
+     */
+    public static QubPublishMetadata create(ProjectSignature signature, Iterable<ProjectSignature> dependencies, Iterable<ProjectSignature> transitiveDependencies)
+    {
+        return new QubPublishMetadata(signature, dependencies, transitiveDependencies);
+    }
+
+    /**
+     * Read the metadata file of the provided version folder.
+     * @param versionFolder The version folder to read the metadata of.
+     * @return The metadata of the provided version folder.
+     */
+    public static Result<QubPublishMetadata> read(QubProjectVersionFolder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        return Result.create(() ->
+        {
+            final byte[] bytes = versionFolder.getFile(QubPublishMetadata.fileName).await()
+                .getContents().await();
+            return QubPublishMetadata.parse(bytes);
+        });
+    }
+
+    /**
+     * Read the direct dependencies of the provided version folder. The dependencies are read from
+     * the version folder's metadata file if it has one, and from its project.json file otherwise.
+     * @param versionFolder The version folder to read the direct dependencies of.
+     * @return The direct dependencies of the provided version folder.
+     */
+    public static Result<Iterable<ProjectSignature>> readDependencies(QubProjectVersionFolder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        return Result.create(() ->
+        {
+            Iterable<ProjectSignature> result;
+            final QubPublishMetadata metadata = QubPublishMetadata.read(versionFolder)
+                .catchError()
+                .await();
+            if (metadata != null)
+            {
+                result = metadata.getDependencies();
+            }
+            else
+            {
+                final byte[] projectJsonBytes = versionFolder.getProjectJSONFile().await()
+                    .getContents().await();
+                result = ProjectJSONDependencyScanner.summarize(projectJsonBytes).getDependencies();
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    /**
+     * Parse the provided metadata bytes.
+     * @param bytes The bytes of a metadata file.
+     * @return The parsed metadata.
+     * @throws ParseException If the bytes aren't a metadata file in a format that can be read.
+     */
+    public static QubPublishMetadata parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(bytes);
+        try
+        {
+            if (buffer.getInt() != QubPublishMetadata.magic)
+            {
+                throw new ParseException("The metadata doesn't start with the expected magic number.");
+            }
+            final int version = Short.toUnsignedInt(buffer.getShort());
+            if (version != QubPublishMetadata.formatVersion)
+            {
+                throw new ParseException("Unsupported metadata format version: " + version);
+            }
+            buffer.getShort();
+
+            final int dependencyCount = buffer.getInt();
+            final int transitiveDependencyCount = buffer.getInt();
+            final int artifactCount = buffer.getInt();
+
+            final ProjectSignature signature = QubPublishMetadata.readSignature(buffer);
+            final QubPublishMetadata result = new QubPublishMetadata(
+                signature,
+                QubPublishMetadata.readSignatures(buffer, dependencyCount),
+                QubPublishMetadata.readSignatures(buffer, transitiveDependencyCount));
+            for (int i = 0; i < artifactCount; ++i)
+            {
+                final String artifactName = QubPublishMetadata.readString(buffer);
+                final byte[] hash = new byte[QubPublishMetadata.hashByteCount];
+                buffer.get(hash);
+                result.setArtifactHash(artifactName, QubPublishMetadata.toHex(hash));
+            }
+            return result;
+        }
+        catch (java.nio.BufferUnderflowException error)
+        {
+            throw new ParseException("The metadata ended unexpectedly.");
+        }
+    }
+
+    private static Iterable<ProjectSignature> readSignatures(java.nio.ByteBuffer buffer, int count)
+    {
+        if (count < 0)
+        {
+            throw new ParseException("The metadata has a negative signature count.");
+        }
+
+        final List<ProjectSignature> result = List.create();
+        for (int i = 0; i < count; ++i)
+        {
+            result.add(QubPublishMetadata.readSignature(buffer));
+        }
+        return result;
+    }
+
+    private static ProjectSignature readSignature(java.nio.ByteBuffer buffer)
+    {
+        final String publisher = QubPublishMetadata.readString(buffer);
+        final String project = QubPublishMetadata.readString(buffer);
+        final String version = QubPublishMetadata.readString(buffer);
+        return ProjectSignature.create(publisher, project, version);
+    }
+
+    private static String readString(java.nio.ByteBuffer buffer)
+    {
+        final int byteCount = Short.toUnsignedInt(buffer.getShort());
+        if (byteCount == 0 || byteCount > buffer.remaining())
+        {
+            throw new ParseException("The metadata ended unexpectedly.");
+        }
+        final String result = new String(buffer.array(), buffer.position(), byteCount, java.nio.charset.StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + byteCount);
+        return result;
+    }
+
+    /**
+     * Get the signature of the published project.
+     * @return The signature of the published project.
+     */
+    public ProjectSignature getSignature()
+    {
+        return this.signature;
+    }
+
+    /**
+     * Get the direct dependencies of the published project.
+     * @return The direct dependencies of the published project.
+     */
+    public Iterable<ProjectSignature> getDependencies()
+    {
+        return this.dependencies;
+    }
+
+    /**
+     * Get the transitive dependencies of the published project, in classpath order.
+     * @return The transitive dependencies of the published project.
+     */
+    public Iterable<ProjectSignature> getTransitiveDependencies()
+    {
+        return this.transitiveDependencies;
+    }
+
+    /**
+     * Get whether or not the published project directly depends on any version of the provided
+     * project.
+     * @param publisher The publisher of the dependency to look for.
+     * @param project The name of the dependency to look for.
+     * @return Whether or not the published project directly depends on the provided project.
+     */
+    public boolean dependsOn(String publisher, String project)
+    {
+        PreCondition.assertNotNullAndNotEmpty(publisher, "publisher");
+        PreCondition.assertNotNullAndNotEmpty(project, "project");
+
+        boolean result = false;
+        for (final ProjectSignature dependency : this.dependencies)
+        {
+            if (publisher.equals(dependency.getPublisher()) && project.equals(dependency.getProject()))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the SHA-256 hash of the published artifact with the provided name, or null if the
+     * metadata doesn't have a hash for it.
+     * @param artifactName The name of the artifact.
+     * @return The lowercase hexadecimal SHA-256 hash of the artifact.
+     */
+    public String getArtifactHash(String artifactName)
+    {
+        PreCondition.assertNotNullAndNotEmpty(artifactName, "artifactName");
+
+        return this.artifactHashes.get(artifactName);
+    }
+
+    /**
+     * Set the SHA-256 hash of the published artifact with the provided name.
+     * @param artifactName The name of the artifact.
+     * @param contentHash The lowercase hexadecimal SHA-256 hash of the artifact.
+     * @return This object for method chaining.
+     */
+    public QubPublishMetadata setArtifactHash(String artifactName, String contentHash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(artifactName, "artifactName");
+        PreCondition.assertNotNull(contentHash, "contentHash");
+        PreCondition.assertEqual(QubPublishMetadata.hashByteCount * 2, contentHash.length(), "contentHash.length()");
+
+        this.artifactHashes.put(artifactName, contentHash);
+
+        return this;
+    }
+
+    /**
+     * Get the number of artifacts that this metadata has hashes for.
+     * @return The number of artifacts that this metadata has hashes for.
+     */
+    public int getArtifactCount()
+    {
+        return this.artifactHashes.size();
+    }
+
+    /**
+     * Get the binary representation of this metadata.
+     * @return The binary representation of this metadata.
+     */
+    public byte[] toBytes()
+    {
+        final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        final java.io.DataOutputStream output = new java.io.DataOutputStream(bytes);
+        try
+        {
+            output.writeInt(QubPublishMetadata.magic);
+            output.writeShort(QubPublishMetadata.formatVersion);
+            output.writeShort(0);
+            output.writeInt(this.dependencies.getCount());
+            output.writeInt(this.transitiveDependencies.getCount());
+            output.writeInt(this.artifactHashes.size());
+            QubPublishMetadata.writeSignature(output, this.signature);
+            for (final ProjectSignature dependency : this.dependencies)
+            {
+                QubPublishMetadata.writeSignature(output, dependency);
+            }
+            for (final ProjectSignature dependency : this.transitiveDependencies)
+            {
+                QubPublishMetadata.writeSignature(output, dependency);
+            }
+            for (final java.util.Map.Entry<String,String> artifactHash : this.artifactHashes.entrySet())
+            {
+                QubPublishMetadata.writeString(output, artifactHash.getKey());
+                output.write(QubPublishMetadata.fromHex(artifactHash.getValue()));
+            }
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeSignature(java.io.DataOutputStream output, ProjectSignature signature) throws java.io.IOException
+    {
+        QubPublishMetadata.writeString(output, signature.getPublisher());
+        QubPublishMetadata.writeString(output, signature.getProject());
+        QubPublishMetadata.writeString(output, signature.getVersion().toString());
+    }
+
+    private static void writeString(java.io.DataOutputStream output, String value) throws java.io.IOException
+    {
+        final byte[] valueBytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        if (valueBytes.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("Metadata strings can't be longer than 65535 bytes.");
+        }
+        output.writeShort(valueBytes.length);
+        output.write(valueBytes);
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (final byte hashByte : bytes)
+        {
+            result.append(Character.forDigit((hashByte >> 4) & 0xF, 16));
+            result.append(Character.forDigit(hashByte & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    private static byte[] fromHex(String hex)
+    {
+        final byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = (byte)((Character.digit(hex.charAt(i * 2), 16) << 4) | Character.digit(hex.charAt(i * 2 + 1), 16));
+        }
+        return result;
+    }
+
+    /**
+     * Write this metadata to the metadata file in the provided version folder.
+     * @param versionFolder The version folder to write this metadata to.
+     * @return The result of writing this metadata.
+     */
+    public Result<Void> writeTo(QubProjectVersionFolder versionFolder)
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        return Result.create(() ->
+        {
+            versionFolder.getFile(QubPublishMetadata.fileName).await()
+                .setContents(this.toBytes()).await();
+        });
+    }
+}
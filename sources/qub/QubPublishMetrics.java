@@ -0,0 +1,293 @@
+package qub;
+
+/**
+ * Operational metrics that are collected while projects are published. The metrics are collected
+ * with lock-free counters and histograms so that they can be shared by concurrent publishes, and
+ * they can be exported in the Prometheus text exposition format. Every publish runs in its own
+ * process, so the exported counters and histograms can be added to the totals that a previous
+ * export wrote. This keeps them growing from one publish to the next.
+ */
+public class QubPublishMetrics
+{
+    private static final QubPublishMetrics shared = QubPublishMetrics.create();
+
+    /**
+     * The upper bounds (in seconds) of the buckets of the phase duration histograms.
+     */
+    private static final double[] durationBucketUpperBounds = new double[] { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600 };
+
+    private static final String phaseCountSamplePrefix = "qub_publish_phase_duration_seconds_count{phase=\"";
+
+    private final java.util.concurrent.atomic.LongAdder successfulPublishCount;
+    private final java.util.concurrent.atomic.LongAdder failedPublishCount;
+    private final java.util.concurrent.atomic.LongAdder copiedByteCount;
+    private final java.util.concurrent.atomic.LongAdder copiedArtifactCount;
+    private final java.util.concurrent.ConcurrentHashMap<String,Histogram> phaseDurations;
+
+    private QubPublishMetrics()
+    {
+        this.successfulPublishCount = new java.util.concurrent.atomic.LongAdder();
+        this.failedPublishCount = new java.util.concurrent.atomic.LongAdder();
+        this.copiedByteCount = new java.util.concurrent.atomic.LongAdder();
+        this.copiedArtifactCount = new java.util.concurrent.atomic.LongAdder();
+        this.phaseDurations = new java.util.concurrent.ConcurrentHashMap<>();
+    }
+
+    /**
+     * Create a new QubPublishMetrics object with no recorded metrics.
+     * @return The new QubPublishMetrics object.
+     */
+    public static QubPublishMetrics create()
+    {
+        return new QubPublishMetrics();
+    }
+
+    /**
+     * Get the QubPublishMetrics object that is shared by every publish in the current process.
+     * @return The QubPublishMetrics object that is shared by every publish in the current process.
+     */
+    public static QubPublishMetrics getShared()
+    {
+        return QubPublishMetrics.shared;
+    }
+
+    /**
+     * Record that a publish finished.
+     * @param succeeded Whether or not the publish succeeded.
+     * @return This object for method chaining.
+     */
+    public QubPublishMetrics publishCompleted(boolean succeeded)
+    {
+        if (succeeded)
+        {
+            this.successfulPublishCount.increment();
+        }
+        else
+        {
+            this.failedPublishCount.increment();
+        }
+        return this;
+    }
+
+    /**
+     * Record that an artifact was copied.
+     * @param byteCount The number of bytes that were copied.
+     * @return This object for method chaining.
+     */
+    public QubPublishMetrics artifactCopied(long byteCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(byteCount, 0, "byteCount");
+
+        this.copiedArtifactCount.increment();
+        this.copiedByteCount.add(byteCount);
+        return this;
+    }
+
+    /**
+     * Record how long a publish phase took.
+     * @param phase The name of the phase.
+     * @param durationNanoseconds The number of nanoseconds that the phase took.
+     * @return This object for method chaining.
+     */
+    public QubPublishMetrics phaseCompleted(String phase, long durationNanoseconds)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phase, "phase");
+        PreCondition.assertGreaterThanOrEqualTo(durationNanoseconds, 0, "durationNanoseconds");
+
+        this.phaseDurations.computeIfAbsent(phase, (String phaseName) -> new Histogram(QubPublishMetrics.durationBucketUpperBounds))
+            .observe(durationNanoseconds / 1_000_000_000.0);
+        return this;
+    }
+
+    /**
+     * Get the number of publishes that have completed with the provided outcome.
+     * @param succeeded Whether to get the number of successful or failed publishes.
+     * @return The number of publishes that have completed with the provided outcome.
+     */
+    public long getPublishCount(boolean succeeded)
+    {
+        return succeeded ? this.successfulPublishCount.sum() : this.failedPublishCount.sum();
+    }
+
+    /**
+     * Get the number of bytes that have been copied.
+     * @return The number of bytes that have been copied.
+     */
+    public long getCopiedByteCount()
+    {
+        return this.copiedByteCount.sum();
+    }
+
+    /**
+     * Get the number of times that the provided phase has completed.
+     * @param phase The name of the phase.
+     * @return The number of times that the provided phase has completed.
+     */
+    public long getPhaseCount(String phase)
+    {
+        PreCondition.assertNotNullAndNotEmpty(phase, "phase");
+
+        final Histogram histogram = this.phaseDurations.get(phase);
+        return histogram == null ? 0 : histogram.getCount();
+    }
+
+    /**
+     * Get these metrics in the Prometheus text exposition format.
+     * @param artifactCache The artifact cache whose hit and miss counts will also be included.
+     * @return These metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheusText(QubPublishArtifactCache artifactCache)
+    {
+        return this.toPrometheusText(artifactCache, "");
+    }
+
+    /**
+     * Get these metrics in the Prometheus text exposition format, added to the samples in the
+     * provided text that an earlier export wrote. Samples in the earlier text that aren't numbers
+     * are ignored.
+     * @param artifactCache The artifact cache whose hit and miss counts will also be included.
+     * @param previousText The text of an earlier export whose samples will be added to these
+     *                     metrics.
+     * @return The combined metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheusText(QubPublishArtifactCache artifactCache, String previousText)
+    {
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+        PreCondition.assertNotNull(previousText, "previousText");
+
+        final java.util.Map<String,Double> previousSamples = QubPublishMetrics.parseSamples(previousText);
+        final StringBuilder result = new StringBuilder();
+
+        QubPublishMetrics.appendHeader(result, "qub_publish_total", "counter", "The number of publishes that have completed.");
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_total{result=\"success\"}", this.successfulPublishCount.sum());
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_total{result=\"failure\"}", this.failedPublishCount.sum());
+
+        QubPublishMetrics.appendHeader(result, "qub_publish_copied_artifacts_total", "counter", "The number of artifacts that have been copied into version folders.");
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_copied_artifacts_total", this.copiedArtifactCount.sum());
+
+        QubPublishMetrics.appendHeader(result, "qub_publish_copied_bytes_total", "counter", "The number of bytes that have been copied into version folders.");
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_copied_bytes_total", this.copiedByteCount.sum());
+
+        QubPublishMetrics.appendHeader(result, "qub_publish_phase_duration_seconds", "histogram", "How long each publish phase took.");
+        final java.util.TreeSet<String> phases = new java.util.TreeSet<>(this.phaseDurations.keySet());
+        for (final String previousSample : previousSamples.keySet())
+        {
+            if (previousSample.startsWith(QubPublishMetrics.phaseCountSamplePrefix) && previousSample.endsWith("\"}"))
+            {
+                phases.add(previousSample.substring(QubPublishMetrics.phaseCountSamplePrefix.length(), previousSample.length() - "\"}".length()));
+            }
+        }
+        for (final String phase : phases)
+        {
+            Histogram histogram = this.phaseDurations.get(phase);
+            if (histogram == null)
+            {
+                histogram = new Histogram(QubPublishMetrics.durationBucketUpperBounds);
+            }
+            histogram.append(result, previousSamples, "qub_publish_phase_duration_seconds", "phase=\"" + phase + "\"");
+        }
+
+        final ProjectJSONCache projectJSONCache = artifactCache.getProjectJSONCache();
+        QubPublishMetrics.appendHeader(result, "qub_publish_cache_requests_total", "counter", "The number of cache lookups, by cache and by whether they were hits or misses.");
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_cache_requests_total{cache=\"projectjson\",result=\"hit\"}", projectJSONCache.getHitCount());
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_cache_requests_total{cache=\"projectjson\",result=\"miss\"}", projectJSONCache.getMissCount());
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_cache_requests_total{cache=\"contenthash\",result=\"hit\"}", artifactCache.getContentHashHitCount());
+        QubPublishMetrics.appendSample(result, previousSamples, "qub_publish_cache_requests_total{cache=\"contenthash\",result=\"miss\"}", artifactCache.getContentHashMissCount());
+
+        return result.toString();
+    }
+
+    private static java.util.Map<String,Double> parseSamples(String text)
+    {
+        final java.util.Map<String,Double> result = new java.util.HashMap<>();
+        for (final String line : Strings.getLines(text))
+        {
+            final int separatorIndex = line.lastIndexOf(' ');
+            if (!line.startsWith("#") && separatorIndex > 0)
+            {
+                try
+                {
+                    result.put(line.substring(0, separatorIndex), Double.parseDouble(line.substring(separatorIndex + 1)));
+                }
+                catch (NumberFormatException ignored)
+                {
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void appendSample(StringBuilder builder, java.util.Map<String,Double> previousSamples, String sample, long value)
+    {
+        final Double previousValue = previousSamples.get(sample);
+        builder.append(sample).append(' ').append(previousValue == null ? value : value + previousValue.longValue()).append('\n');
+    }
+
+    private static void appendSample(StringBuilder builder, java.util.Map<String,Double> previousSamples, String sample, double value)
+    {
+        final Double previousValue = previousSamples.get(sample);
+        builder.append(sample).append(' ').append(previousValue == null ? value : value + previousValue).append('\n');
+    }
+
+    private static void appendHeader(StringBuilder builder, String name, String type, String help)
+    {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String formatDouble(double value)
+    {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+            ? Long.toString((long)value)
+            : Double.toString(value);
+    }
+
+    private static class Histogram
+    {
+        private final double[] upperBounds;
+        private final java.util.concurrent.atomic.AtomicLongArray bucketCounts;
+        private final java.util.concurrent.atomic.DoubleAdder sum;
+        private final java.util.concurrent.atomic.LongAdder count;
+
+        private Histogram(double[] upperBounds)
+        {
+            this.upperBounds = upperBounds;
+            this.bucketCounts = new java.util.concurrent.atomic.AtomicLongArray(upperBounds.length);
+            this.sum = new java.util.concurrent.atomic.DoubleAdder();
+            this.count = new java.util.concurrent.atomic.LongAdder();
+        }
+
+        private void observe(double value)
+        {
+            for (int i = 0; i < this.upperBounds.length; ++i)
+            {
+                if (value <= this.upperBounds[i])
+                {
+                    this.bucketCounts.incrementAndGet(i);
+                    break;
+                }
+            }
+            this.sum.add(value);
+            this.count.increment();
+        }
+
+        private long getCount()
+        {
+            return this.count.sum();
+        }
+
+        private void append(StringBuilder builder, java.util.Map<String,Double> previousSamples, String name, String labels)
+        {
+            long cumulativeCount = 0;
+            for (int i = 0; i < this.upperBounds.length; ++i)
+            {
+                cumulativeCount += this.bucketCounts.get(i);
+                QubPublishMetrics.appendSample(builder, previousSamples, name + "_bucket{" + labels + ",le=\"" + QubPublishMetrics.formatDouble(this.upperBounds[i]) + "\"}", cumulativeCount);
+            }
+            final long count = this.count.sum();
+            QubPublishMetrics.appendSample(builder, previousSamples, name + "_bucket{" + labels + ",le=\"+Inf\"}", count);
+            QubPublishMetrics.appendSample(builder, previousSamples, name + "_sum{" + labels + "}", this.sum.sum());
+            QubPublishMetrics.appendSample(builder, previousSamples, name + "_count{" + labels + "}", count);
+        }
+    }
+}
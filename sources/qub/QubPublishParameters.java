@@ -2,6 +2,29 @@ package qub;
 
 public class QubPublishParameters extends QubPackParameters
 {
+    private QubPublishArtifactCache artifactCache;
+    private ProjectJSONCache projectJSONCache;
+    private File eventsFile;
+    private QubPublishMetrics metrics;
+    private File metricsFile;
+    private boolean deferDependents;
+    private java.util.concurrent.Executor backgroundExecutor;
+    private QubProjectLocker projectLocker;
+    private QubArtifactCopier artifactCopier;
+    private boolean trustTestJson;
+    private boolean nativeImage;
+    private boolean jlink;
+    private boolean dryRun;
+    private java.util.concurrent.Executor dependencyExecutor;
+    private DependencyConflictStrategy conflictStrategy;
+    private boolean prune;
+    private boolean allShortcuts;
+    private boolean classData;
+    private PublishProfile profile;
+    private boolean virtualThreads;
+    private java.util.concurrent.Executor fileExecutor;
+    private java.util.concurrent.ExecutorService ownedExecutor;
+
     /**
      * Create a new QubPublishParameters object.
      * @param outputWriteStream      The ByteWriteStream that output should be written to.
@@ -14,6 +37,22 @@ public class QubPublishParameters extends QubPackParameters
     public QubPublishParameters(CharacterToByteWriteStream outputWriteStream, CharacterToByteWriteStream errorWriteStream, Folder folderToPack, EnvironmentVariables environmentVariables, ProcessFactory processFactory, DefaultApplicationLauncher defaultApplicationLauncher, String jvmClassPath, TypeLoader typeLoader, QubFolder qubFolder)
     {
         super(outputWriteStream, errorWriteStream, folderToPack, environmentVariables, processFactory, defaultApplicationLauncher, jvmClassPath, typeLoader, qubFolder);
+
+        this.artifactCache = QubPublishArtifactCache.create();
+        this.projectJSONCache = this.artifactCache.getProjectJSONCache();
+        this.backgroundExecutor = (Runnable action) ->
+        {
+            final Thread thread = new Thread(action, "qub-publish-background");
+            thread.setDaemon(false);
+            thread.start();
+        };
+        this.projectLocker = QubProjectLocker.create();
+        this.artifactCopier = QubArtifactCopier.create();
+        this.metrics = QubPublishMetrics.create();
+        this.dependencyExecutor = Runnable::run;
+        this.fileExecutor = Runnable::run;
+        this.conflictStrategy = DependencyConflictStrategy.Nearest;
+        this.profile = PublishProfile.Full;
     }
 
     public Folder getFolderToPublish()
@@ -21,6 +60,543 @@ public class QubPublishParameters extends QubPackParameters
         return this.getFolderToPack();
     }
 
+    /**
+     * Get the cache of artifacts that are read while publishing.
+     * @return The cache of artifacts that are read while publishing.
+     */
+    public QubPublishArtifactCache getArtifactCache()
+    {
+        return this.artifactCache;
+    }
+
+    /**
+     * Set the cache of artifacts that are read while publishing. This also sets the cache that
+     * will be used to parse project.json files to the provided artifact cache's ProjectJSONCache.
+     * @param artifactCache The cache of artifacts that are read while publishing.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setArtifactCache(QubPublishArtifactCache artifactCache)
+    {
+        PreCondition.assertNotNull(artifactCache, "artifactCache");
+
+        this.artifactCache = artifactCache;
+        this.projectJSONCache = artifactCache.getProjectJSONCache();
+
+        return this;
+    }
+
+    /**
+     * Get the cache that will be used to parse project.json files while publishing.
+     * @return The cache that will be used to parse project.json files while publishing.
+     */
+    public ProjectJSONCache getProjectJSONCache()
+    {
+        return this.projectJSONCache;
+    }
+
+    /**
+     * Set the cache that will be used to parse project.json files while publishing.
+     * @param projectJSONCache The cache that will be used to parse project.json files while
+     *                         publishing.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setProjectJSONCache(ProjectJSONCache projectJSONCache)
+    {
+        PreCondition.assertNotNull(projectJSONCache, "projectJSONCache");
+
+        this.projectJSONCache = projectJSONCache;
+
+        return this;
+    }
+
+    /**
+     * Get the file that newline-delimited JSON progress events will be written to. If this is null,
+     * then no progress events will be written.
+     * @return The file that newline-delimited JSON progress events will be written to.
+     */
+    public File getEventsFile()
+    {
+        return this.eventsFile;
+    }
+
+    /**
+     * Set the file that newline-delimited JSON progress events will be written to.
+     * @param eventsFile The file that newline-delimited JSON progress events will be written to, or
+     *                   null if no progress events should be written.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setEventsFile(File eventsFile)
+    {
+        this.eventsFile = eventsFile;
+
+        return this;
+    }
+
+    /**
+     * Get the object that publish metrics will be recorded to.
+     * @return The object that publish metrics will be recorded to.
+     */
+    public QubPublishMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * Set the object that publish metrics will be recorded to.
+     * @param metrics The object that publish metrics will be recorded to.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setMetrics(QubPublishMetrics metrics)
+    {
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        this.metrics = metrics;
+
+        return this;
+    }
+
+    /**
+     * Get the file that publish metrics will be written to in the Prometheus text format. If this
+     * is null, then the metrics will not be written.
+     * @return The file that publish metrics will be written to.
+     */
+    public File getMetricsFile()
+    {
+        return this.metricsFile;
+    }
+
+    /**
+     * Set the file that publish metrics will be written to in the Prometheus text format.
+     * @param metricsFile The file that publish metrics will be written to, or null if the metrics
+     *                    should not be written.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setMetricsFile(File metricsFile)
+    {
+        this.metricsFile = metricsFile;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not the scan for published projects that depend on the published project will
+     * be deferred to the background. When the scan is deferred, the results of the scan will be
+     * written to a file in the published project's data folder instead of to the output stream.
+     * @return Whether or not the dependent project scan will be deferred to the background.
+     */
+    public boolean getDeferDependents()
+    {
+        return this.deferDependents;
+    }
+
+    /**
+     * Set whether or not the scan for published projects that depend on the published project will
+     * be deferred to the background.
+     * @param deferDependents Whether or not the dependent project scan will be deferred to the
+     *                        background.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setDeferDependents(boolean deferDependents)
+    {
+        this.deferDependents = deferDependents;
+
+        return this;
+    }
+
+    /**
+     * Get the Executor that will run work that has been deferred to the background.
+     * @return The Executor that will run work that has been deferred to the background.
+     */
+    public java.util.concurrent.Executor getBackgroundExecutor()
+    {
+        return this.backgroundExecutor;
+    }
+
+    /**
+     * Set the Executor that will run work that has been deferred to the background.
+     * @param backgroundExecutor The Executor that will run work that has been deferred to the
+     *                           background.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setBackgroundExecutor(java.util.concurrent.Executor backgroundExecutor)
+    {
+        PreCondition.assertNotNull(backgroundExecutor, "backgroundExecutor");
+
+        this.backgroundExecutor = backgroundExecutor;
+
+        return this;
+    }
+
+    /**
+     * Get the QubProjectLocker that will be used to get exclusive access to the published project's
+     * QubProjectFolder while a version is allocated and committed.
+     * @return The QubProjectLocker that will be used to lock the published project's
+     * QubProjectFolder.
+     */
+    public QubProjectLocker getProjectLocker()
+    {
+        return this.projectLocker;
+    }
+
+    /**
+     * Set the QubProjectLocker that will be used to get exclusive access to the published project's
+     * QubProjectFolder while a version is allocated and committed.
+     * @param projectLocker The QubProjectLocker that will be used to lock the published project's
+     *                      QubProjectFolder.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setProjectLocker(QubProjectLocker projectLocker)
+    {
+        PreCondition.assertNotNull(projectLocker, "projectLocker");
+
+        this.projectLocker = projectLocker;
+
+        return this;
+    }
+
+    /**
+     * Get the QubArtifactCopier that will be used to copy the published project's artifacts into
+     * its version folder.
+     * @return The QubArtifactCopier that will be used to copy the published project's artifacts.
+     */
+    public QubArtifactCopier getArtifactCopier()
+    {
+        return this.artifactCopier;
+    }
+
+    /**
+     * Set the QubArtifactCopier that will be used to copy the published project's artifacts into
+     * its version folder.
+     * @param artifactCopier The QubArtifactCopier that will be used to copy the published
+     *                       project's artifacts.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setArtifactCopier(QubArtifactCopier artifactCopier)
+    {
+        PreCondition.assertNotNull(artifactCopier, "artifactCopier");
+
+        this.artifactCopier = artifactCopier;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not packing will be skipped when an existing test.json file shows that the
+     * current compiled outputs already passed their tests and the jar files were created from them.
+     * @return Whether or not an existing passing test.json file will be trusted.
+     */
+    public boolean getTrustTestJson()
+    {
+        return this.trustTestJson;
+    }
+
+    /**
+     * Set whether or not packing will be skipped when an existing test.json file shows that the
+     * current compiled outputs already passed their tests and the jar files were created from them.
+     * @param trustTestJson Whether or not an existing passing test.json file will be trusted.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setTrustTestJson(boolean trustTestJson)
+    {
+        this.trustTestJson = trustTestJson;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not a native executable will be built with GraalVM's native-image tool for a
+     * published project that has a main class. If the native executable is built, then the
+     * project's shortcut will run it instead of running java.
+     * @return Whether or not a native executable will be built.
+     */
+    public boolean getNativeImage()
+    {
+        return this.nativeImage;
+    }
+
+    /**
+     * Set whether or not a native executable will be built with GraalVM's native-image tool for a
+     * published project that has a main class.
+     * @param nativeImage Whether or not a native executable will be built.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setNativeImage(boolean nativeImage)
+    {
+        this.nativeImage = nativeImage;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not a published project that has a main class will run on a minimal runtime
+     * image. The runtime image contains only the modules that jdeps reports the project's classpath
+     * needs, and it is shared by every published application that needs the same modules.
+     * @return Whether or not a published project will run on a minimal runtime image.
+     */
+    public boolean getJlink()
+    {
+        return this.jlink;
+    }
+
+    /**
+     * Set whether or not a published project that has a main class will run on a minimal runtime
+     * image.
+     * @param jlink Whether or not a published project will run on a minimal runtime image.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setJlink(boolean jlink)
+    {
+        this.jlink = jlink;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not the publish will only report what it would do. A dry run resolves the
+     * version that would be published and lists the artifacts, shortcut, classpath, and dependent
+     * projects, but it doesn't pack the project or write anything to the qub folder.
+     * @return Whether or not the publish will only report what it would do.
+     */
+    public boolean getDryRun()
+    {
+        return this.dryRun;
+    }
+
+    /**
+     * Set whether or not the publish will only report what it would do.
+     * @param dryRun Whether or not the publish will only report what it would do.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setDryRun(boolean dryRun)
+    {
+        this.dryRun = dryRun;
+
+        return this;
+    }
+
+    /**
+     * Get the Executor that will read the project.json files of each level of a published project's
+     * dependency graph. The default Executor reads them one at a time on the current thread.
+     * @return The Executor that will read the project.json files of a dependency graph.
+     */
+    public java.util.concurrent.Executor getDependencyExecutor()
+    {
+        return this.dependencyExecutor;
+    }
+
+    /**
+     * Set the Executor that will read the project.json files of each level of a published project's
+     * dependency graph.
+     * @param dependencyExecutor The Executor that will read the project.json files of a dependency
+     *                           graph.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setDependencyExecutor(java.util.concurrent.Executor dependencyExecutor)
+    {
+        PreCondition.assertNotNull(dependencyExecutor, "dependencyExecutor");
+
+        this.dependencyExecutor = dependencyExecutor;
+
+        return this;
+    }
+
+    /**
+     * Get how a dependency that appears in a published project's dependency graph with more than
+     * one version will be resolved to a single version on the project's classpath.
+     * @return How dependency version conflicts will be resolved.
+     */
+    public DependencyConflictStrategy getConflictStrategy()
+    {
+        return this.conflictStrategy;
+    }
+
+    /**
+     * Set how a dependency that appears in a published project's dependency graph with more than
+     * one version will be resolved to a single version on the project's classpath.
+     * @param conflictStrategy How dependency version conflicts will be resolved.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setConflictStrategy(DependencyConflictStrategy conflictStrategy)
+    {
+        PreCondition.assertNotNull(conflictStrategy, "conflictStrategy");
+
+        this.conflictStrategy = conflictStrategy;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not dependency jars that a published project's main class can't reach will be
+     * left off of the project's shortcut classpath. Reachability is found by following the class
+     * references in each jar's class files.
+     * @return Whether or not unreachable dependency jars will be left off of the classpath.
+     */
+    public boolean getPrune()
+    {
+        return this.prune;
+    }
+
+    /**
+     * Set whether or not dependency jars that a published project's main class can't reach will be
+     * left off of the project's shortcut classpath.
+     * @param prune Whether or not unreachable dependency jars will be left off of the classpath.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setPrune(boolean prune)
+    {
+        this.prune = prune;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not the shortcuts of the latest version of every published project that has a
+     * main class will be regenerated instead of publishing the folder to publish.
+     * @return Whether or not every shortcut will be regenerated.
+     */
+    public boolean getAllShortcuts()
+    {
+        return this.allShortcuts;
+    }
+
+    /**
+     * Set whether or not the shortcuts of the latest version of every published project that has a
+     * main class will be regenerated instead of publishing the folder to publish.
+     * @param allShortcuts Whether or not every shortcut will be regenerated.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setAllShortcuts(boolean allShortcuts)
+    {
+        this.allShortcuts = allShortcuts;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not a class data sharing archive will be recorded with a training run for
+     * projects that have a main class, so that their shortcuts start with their classes already
+     * loaded and verified.
+     * @return Whether or not a class data sharing archive will be recorded.
+     */
+    public boolean getClassData()
+    {
+        return this.classData;
+    }
+
+    /**
+     * Set whether or not a class data sharing archive will be recorded with a training run for
+     * projects that have a main class, so that their shortcuts start with their classes already
+     * loaded and verified.
+     * @param classData Whether or not a class data sharing archive will be recorded.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setClassData(boolean classData)
+    {
+        this.classData = classData;
+
+        return this;
+    }
+
+    /**
+     * Get the set of artifacts that will be copied into the published version folder.
+     * @return The set of artifacts that will be copied into the published version folder.
+     */
+    public PublishProfile getProfile()
+    {
+        return this.profile;
+    }
+
+    /**
+     * Set the set of artifacts that will be copied into the published version folder.
+     * @param profile The set of artifacts that will be copied into the published version folder.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setProfile(PublishProfile profile)
+    {
+        PreCondition.assertNotNull(profile, "profile");
+
+        this.profile = profile;
+
+        return this;
+    }
+
+    /**
+     * Get the Executor that will run the blocking file operations of the publish stages that can
+     * overlap, such as the artifact copies, the dependent project scan, and the shortcut
+     * regeneration. The default Executor runs them one at a time on the current thread.
+     * @return The Executor that will run the blocking file operations of the publish stages.
+     */
+    public java.util.concurrent.Executor getFileExecutor()
+    {
+        return this.fileExecutor;
+    }
+
+    /**
+     * Set the Executor that will run the blocking file operations of the publish stages that can
+     * overlap, such as the artifact copies, the dependent project scan, and the shortcut
+     * regeneration. It shouldn't be an Executor whose tasks wait on the dependency Executor's
+     * tasks, such as a ForkJoinPool that the dependency Executor also uses.
+     * @param fileExecutor The Executor that will run the blocking file operations of the publish
+     *                     stages.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setFileExecutor(java.util.concurrent.Executor fileExecutor)
+    {
+        PreCondition.assertNotNull(fileExecutor, "fileExecutor");
+
+        this.fileExecutor = fileExecutor;
+
+        return this;
+    }
+
+    /**
+     * Get whether or not the publish stages' file operations and dependency lookups will run on
+     * virtual threads.
+     * @return Whether or not the publish stages will run on virtual threads.
+     */
+    public boolean getVirtualThreads()
+    {
+        return this.virtualThreads;
+    }
+
+    /**
+     * Set whether or not the publish stages' file operations and dependency lookups will run on
+     * virtual threads. This doesn't change the file and dependency Executors on its own.
+     * @param virtualThreads Whether or not the publish stages will run on virtual threads.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setVirtualThreads(boolean virtualThreads)
+    {
+        this.virtualThreads = virtualThreads;
+
+        return this;
+    }
+
+    /**
+     * Get the ExecutorService that was created for this publish and that will be shut down when the
+     * publish finishes, or null if the publish doesn't own an ExecutorService.
+     * @return The ExecutorService that will be shut down when the publish finishes.
+     */
+    public java.util.concurrent.ExecutorService getOwnedExecutor()
+    {
+        return this.ownedExecutor;
+    }
+
+    /**
+     * Set the ExecutorService that was created for this publish and that will be shut down when the
+     * publish finishes.
+     * @param ownedExecutor The ExecutorService that will be shut down when the publish finishes.
+     * @return This object for method chaining.
+     */
+    public QubPublishParameters setOwnedExecutor(java.util.concurrent.ExecutorService ownedExecutor)
+    {
+        PreCondition.assertNotNull(ownedExecutor, "ownedExecutor");
+
+        this.ownedExecutor = ownedExecutor;
+
+        return this;
+    }
+
     @Override
     public QubPublishParameters setPackJson(boolean packJson)
     {
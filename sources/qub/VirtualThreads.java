@@ -0,0 +1,68 @@
+package qub;
+
+/**
+ * Access to the virtual threads of Java runtimes that have them. qub-publish is compiled for a
+ * Java version that doesn't have virtual threads, so they are found with reflection when qub-publish
+ * runs on a newer Java runtime.
+ */
+public class VirtualThreads
+{
+    private static volatile java.lang.reflect.Method newVirtualThreadPerTaskExecutorMethod;
+    private static volatile boolean newVirtualThreadPerTaskExecutorMethodSearched;
+
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * Get whether or not the current Java runtime has virtual threads.
+     * @return Whether or not the current Java runtime has virtual threads.
+     */
+    public static boolean isSupported()
+    {
+        return VirtualThreads.getNewVirtualThreadPerTaskExecutorMethod() != null;
+    }
+
+    /**
+     * Create an ExecutorService that runs each task on its own new virtual thread. The caller owns
+     * the returned ExecutorService and should shut it down when it is no longer needed.
+     * @return An ExecutorService that runs each task on its own new virtual thread, or an
+     * UnsupportedOperationException if the current Java runtime doesn't have virtual threads.
+     */
+    public static Result<java.util.concurrent.ExecutorService> createExecutor()
+    {
+        return Result.create(() ->
+        {
+            final java.lang.reflect.Method method = VirtualThreads.getNewVirtualThreadPerTaskExecutorMethod();
+            if (method == null)
+            {
+                throw new UnsupportedOperationException("Virtual threads aren't supported by this Java runtime (" + System.getProperty("java.version") + ").");
+            }
+
+            try
+            {
+                return (java.util.concurrent.ExecutorService)method.invoke(null);
+            }
+            catch (ReflectiveOperationException error)
+            {
+                throw Exceptions.asRuntime(error);
+            }
+        });
+    }
+
+    private static java.lang.reflect.Method getNewVirtualThreadPerTaskExecutorMethod()
+    {
+        if (!VirtualThreads.newVirtualThreadPerTaskExecutorMethodSearched)
+        {
+            try
+            {
+                VirtualThreads.newVirtualThreadPerTaskExecutorMethod = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            }
+            catch (NoSuchMethodException ignored)
+            {
+            }
+            VirtualThreads.newVirtualThreadPerTaskExecutorMethodSearched = true;
+        }
+        return VirtualThreads.newVirtualThreadPerTaskExecutorMethod;
+    }
+}
@@ -0,0 +1,137 @@
+package qub;
+
+public interface FileChannelQubArtifactCopierTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(FileChannelQubArtifactCopier.class, () ->
+        {
+            runner.testGroup("create()", () ->
+            {
+                runner.test("with no arguments", (Test test) ->
+                {
+                    test.assertEqual(FileChannelQubArtifactCopier.defaultTransferToThreshold, FileChannelQubArtifactCopier.create().getTransferToThreshold());
+                });
+
+                runner.test("with negative transferToThreshold", (Test test) ->
+                {
+                    test.assertThrows(() -> FileChannelQubArtifactCopier.create(-1),
+                        new PreConditionFailure("transferToThreshold (-1) must be greater than or equal to 0."));
+                });
+            });
+
+            runner.testGroup("copy(File,Folder)", () ->
+            {
+                runner.test("with artifact that doesn't exist on an in-memory file system",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File artifact = currentFolder.getFile("a.jar").await();
+                    final FileChannelQubArtifactCopier copier = FileChannelQubArtifactCopier.create();
+                    test.assertThrows(() -> copier.copy(artifact, currentFolder.getFolder("versions/1").await()).await(),
+                        new FileNotFoundException(artifact));
+                });
+
+                runner.test("with artifact that exists on an in-memory file system",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File artifact = currentFolder.getFile("a.jar").await();
+                    artifact.setContentsAsString("hello").await();
+                    final Folder destinationFolder = currentFolder.getFolder("versions/1").await();
+                    final FileChannelQubArtifactCopier copier = FileChannelQubArtifactCopier.create();
+
+                    test.assertEqual(5L, copier.copy(artifact, destinationFolder).await());
+                    copier.commit().await();
+
+                    test.assertEqual("hello", destinationFolder.getFileContentsAsString("a.jar").await());
+                });
+            });
+
+            runner.testGroup("copy(FileChannel,FileChannel)", () ->
+            {
+                final byte[] contents = new byte[3 * FileChannelQubArtifactCopier.bufferSize + 17];
+                for (int i = 0; i < contents.length; ++i)
+                {
+                    contents[i] = (byte)i;
+                }
+
+                final Action2<String,Long> copyTest = (String testName, Long transferToThreshold) ->
+                {
+                    runner.test(testName, (Test test) ->
+                    {
+                        FileChannelQubArtifactCopierTests.withTemporaryFiles((java.nio.file.Path sourcePath, java.nio.file.Path destinationPath) ->
+                        {
+                            java.nio.file.Files.write(sourcePath, contents);
+                            final FileChannelQubArtifactCopier copier = FileChannelQubArtifactCopier.create(transferToThreshold);
+                            try (final java.nio.channels.FileChannel source = java.nio.channels.FileChannel.open(sourcePath, java.nio.file.StandardOpenOption.READ);
+                                 final java.nio.channels.FileChannel destination = java.nio.channels.FileChannel.open(destinationPath, java.nio.file.StandardOpenOption.WRITE))
+                            {
+                                test.assertEqual((long)contents.length, copier.copy(source, destination));
+                            }
+                            test.assertEqual(contents, java.nio.file.Files.readAllBytes(destinationPath));
+                        });
+                    });
+                };
+
+                copyTest.run("with file smaller than the transferTo threshold", (long)contents.length + 1);
+                copyTest.run("with file at the transferTo threshold", (long)contents.length);
+                copyTest.run("with zero transferTo threshold", 0L);
+            });
+
+            runner.testGroup("transfer(FileChannel,FileChannel,long)", () ->
+            {
+                runner.test("with byteCount larger than the source", (Test test) ->
+                {
+                    FileChannelQubArtifactCopierTests.withTemporaryFiles((java.nio.file.Path sourcePath, java.nio.file.Path destinationPath) ->
+                    {
+                        java.nio.file.Files.write(sourcePath, new byte[] { 1, 2, 3 });
+                        try (final java.nio.channels.FileChannel source = java.nio.channels.FileChannel.open(sourcePath, java.nio.file.StandardOpenOption.READ);
+                             final java.nio.channels.FileChannel destination = java.nio.channels.FileChannel.open(destinationPath, java.nio.file.StandardOpenOption.WRITE))
+                        {
+                            test.assertEqual(3L, FileChannelQubArtifactCopier.transfer(source, destination, 10));
+                        }
+                        test.assertEqual(new byte[] { 1, 2, 3 }, java.nio.file.Files.readAllBytes(destinationPath));
+                    });
+                });
+            });
+        });
+    }
+
+    interface TemporaryFilesAction
+    {
+        void run(java.nio.file.Path sourcePath, java.nio.file.Path destinationPath) throws java.io.IOException;
+    }
+
+    static void withTemporaryFiles(TemporaryFilesAction action)
+    {
+        PreCondition.assertNotNull(action, "action");
+
+        try
+        {
+            final java.nio.file.Path sourcePath = java.nio.file.Files.createTempFile("qub-publish-source", ".jar");
+            try
+            {
+                final java.nio.file.Path destinationPath = java.nio.file.Files.createTempFile("qub-publish-destination", ".jar");
+                try
+                {
+                    action.run(sourcePath, destinationPath);
+                }
+                finally
+                {
+                    java.nio.file.Files.deleteIfExists(destinationPath);
+                }
+            }
+            finally
+            {
+                java.nio.file.Files.deleteIfExists(sourcePath);
+            }
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+}
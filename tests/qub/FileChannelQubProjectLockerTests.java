@@ -0,0 +1,136 @@
+package qub;
+
+public interface FileChannelQubProjectLockerTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(FileChannelQubProjectLocker.class, () ->
+        {
+            runner.testGroup("lock(QubProjectFolder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final FileChannelQubProjectLocker locker = FileChannelQubProjectLocker.create();
+                    test.assertThrows(() -> locker.lock(null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with unlocked project folder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final FileChannelQubProjectLocker locker = FileChannelQubProjectLocker.create();
+
+                    final Disposable lock = locker.lock(projectFolder).await();
+                    test.assertNotNull(lock);
+                    test.assertFalse(lock.isDisposed());
+                    test.assertTrue(FileChannelQubProjectLocker.getLockFile(projectFolder).exists().await());
+
+                    test.assertTrue(lock.dispose().await());
+                    test.assertTrue(lock.isDisposed());
+                });
+
+                runner.test("with project folder that is locked by another thread",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final List<String> steps = List.create();
+
+                    final Disposable lock = FileChannelQubProjectLocker.create().lock(projectFolder).await();
+                    final Thread otherThread = new Thread(() ->
+                    {
+                        try (final Disposable otherLock = FileChannelQubProjectLocker.create().lock(projectFolder).await())
+                        {
+                            synchronized (steps)
+                            {
+                                steps.add("other thread locked");
+                            }
+                        }
+                    });
+                    otherThread.start();
+
+                    synchronized (steps)
+                    {
+                        steps.add("first lock released");
+                    }
+                    lock.dispose().await();
+                    FileChannelQubProjectLockerTests.join(otherThread);
+                    test.assertFalse(otherThread.isAlive());
+
+                    test.assertEqual(Iterable.create("first lock released", "other thread locked"), steps);
+                });
+
+                runner.test("with error while the project folder is locked",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final FileChannelQubProjectLocker locker = FileChannelQubProjectLocker.create();
+
+                    test.assertThrows(() ->
+                        {
+                            try (final Disposable lock = locker.lock(projectFolder).await())
+                            {
+                                throw new RuntimeException("publish failed");
+                            }
+                        },
+                        new RuntimeException("publish failed"));
+
+                    // The lock is reentrant for the thread that holds it, so another thread must
+                    // check that it was released.
+                    final List<String> steps = List.create();
+                    final Thread otherThread = new Thread(() ->
+                    {
+                        try (final Disposable otherLock = locker.lock(projectFolder).await())
+                        {
+                            synchronized (steps)
+                            {
+                                steps.add("other thread locked");
+                            }
+                        }
+                    });
+                    otherThread.start();
+                    FileChannelQubProjectLockerTests.join(otherThread);
+                    test.assertFalse(otherThread.isAlive());
+
+                    test.assertEqual(Iterable.create("other thread locked"), steps);
+                });
+
+                runner.test("with version scans after the project folder was locked",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final FileChannelQubProjectLocker locker = FileChannelQubProjectLocker.create();
+
+                    locker.lock(projectFolder).await().dispose().await();
+
+                    test.assertTrue(FileChannelQubProjectLocker.getLockFile(projectFolder).exists().await());
+                    test.assertEqual(0, projectFolder.iterateProjectVersionFolders().toList().getCount());
+                    test.assertEqual(0, QubProjectVersionIndex.build(projectFolder).await().getCount());
+                    test.assertNull(QubProjectVersionIndex.get(projectFolder).await().getLatestVersion());
+                });
+            });
+        });
+    }
+
+    static void join(Thread thread)
+    {
+        PreCondition.assertNotNull(thread, "thread");
+
+        try
+        {
+            thread.join(10_000);
+        }
+        catch (InterruptedException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+}
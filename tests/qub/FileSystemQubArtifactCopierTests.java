@@ -0,0 +1,58 @@
+package qub;
+
+public interface FileSystemQubArtifactCopierTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(FileSystemQubArtifactCopier.class, () ->
+        {
+            runner.testGroup("copy(File,Folder)", () ->
+            {
+                runner.test("with null artifact",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final FileSystemQubArtifactCopier copier = FileSystemQubArtifactCopier.create();
+                    test.assertThrows(() -> copier.copy(null, process.getCurrentFolder()),
+                        new PreConditionFailure("artifact cannot be null."));
+                });
+
+                runner.test("with null destinationFolder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final FileSystemQubArtifactCopier copier = FileSystemQubArtifactCopier.create();
+                    test.assertThrows(() -> copier.copy(process.getCurrentFolder().getFile("a.jar").await(), null),
+                        new PreConditionFailure("destinationFolder cannot be null."));
+                });
+
+                runner.test("with artifact that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File artifact = currentFolder.getFile("a.jar").await();
+                    final FileSystemQubArtifactCopier copier = FileSystemQubArtifactCopier.create();
+                    test.assertThrows(() -> copier.copy(artifact, currentFolder.getFolder("versions/1").await()).await(),
+                        new FileNotFoundException(artifact));
+                });
+
+                runner.test("with artifact that exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File artifact = currentFolder.getFile("a.jar").await();
+                    artifact.setContentsAsString("hello").await();
+                    final Folder destinationFolder = currentFolder.getFolder("versions/1").await();
+                    final FileSystemQubArtifactCopier copier = FileSystemQubArtifactCopier.create();
+
+                    test.assertEqual(5L, copier.copy(artifact, destinationFolder).await());
+                    copier.commit().await();
+
+                    test.assertEqual("hello", destinationFolder.getFileContentsAsString("a.jar").await());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package qub;
+
+public interface InProcessQubProjectLockerTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(InProcessQubProjectLocker.class, () ->
+        {
+            runner.testGroup("lock(QubProjectFolder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final InProcessQubProjectLocker locker = InProcessQubProjectLocker.create();
+                    test.assertThrows(() -> locker.lock(null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with unlocked project folder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final InProcessQubProjectLocker locker = InProcessQubProjectLocker.create();
+
+                    final Disposable lock = locker.lock(projectFolder).await();
+                    test.assertNotNull(lock);
+                    test.assertFalse(lock.isDisposed());
+
+                    test.assertTrue(lock.dispose().await());
+                    test.assertTrue(lock.isDisposed());
+                    test.assertFalse(lock.dispose().await());
+                });
+
+                runner.test("with project folder that is locked by another thread",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await()
+                        .getProjectFolder("me", "my-project").await();
+                    final InProcessQubProjectLocker locker = InProcessQubProjectLocker.create();
+                    final List<String> steps = List.create();
+
+                    final Disposable lock = locker.lock(projectFolder).await();
+                    final Thread otherThread = new Thread(() ->
+                    {
+                        try (final Disposable otherLock = locker.lock(projectFolder).await())
+                        {
+                            synchronized (steps)
+                            {
+                                steps.add("other thread locked");
+                            }
+                        }
+                    });
+                    otherThread.start();
+
+                    synchronized (steps)
+                    {
+                        steps.add("first lock released");
+                    }
+                    lock.dispose().await();
+                    try
+                    {
+                        otherThread.join();
+                    }
+                    catch (InterruptedException error)
+                    {
+                        throw Exceptions.asRuntime(error);
+                    }
+
+                    test.assertEqual(Iterable.create("first lock released", "other thread locked"), steps);
+                });
+            });
+        });
+    }
+}
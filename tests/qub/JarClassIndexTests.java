@@ -0,0 +1,187 @@
+package qub;
+
+public interface JarClassIndexTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(JarClassIndex.class, () ->
+        {
+            runner.testGroup("parseClassReferences(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> JarClassIndex.parseClassReferences(null),
+                        new PreConditionFailure("classBytes cannot be null."));
+                });
+
+                runner.test("with invalid magic number", (Test test) ->
+                {
+                    test.assertThrows(() -> JarClassIndex.parseClassReferences(new byte[] { 1, 2, 3, 4, 0, 0, 0, 0, 0, 1 }),
+                        new ParseException("Invalid class file magic number."));
+                });
+
+                runner.test("with truncated class file", (Test test) ->
+                {
+                    test.assertThrows(() -> JarClassIndex.parseClassReferences(new byte[] { (byte)0xCA, (byte)0xFE }),
+                        new ParseException("Invalid class file."));
+                });
+
+                runner.test("with class and descriptor references", (Test test) ->
+                {
+                    final byte[] classBytes = JarClassIndexTests.createClassBytes("a/Main", "b/Helper", "[Lc/Element;", "(Ld/Argument;)V");
+                    test.assertEqual(
+                        new java.util.HashSet<>(java.util.Arrays.asList("a/Main", "b/Helper", "c/Element", "d/Argument")),
+                        JarClassIndex.parseClassReferences(classBytes));
+                });
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> JarClassIndex.parse(null),
+                        new PreConditionFailure("jarBytes cannot be null."));
+                });
+
+                runner.test("with jar file", (Test test) ->
+                {
+                    final byte[] jarBytes = JarClassIndexTests.createJarBytes(
+                        "a/Main.class", JarClassIndexTests.createClassBytes("a/Main", "b/Helper"),
+                        "META-INF/MANIFEST.MF", new byte[0]);
+                    final JarClassIndex index = JarClassIndex.parse(jarBytes);
+                    test.assertEqual(new java.util.HashSet<>(java.util.Arrays.asList("a/Main")), index.getClassNames());
+                    test.assertEqual(new java.util.HashSet<>(java.util.Arrays.asList("a/Main", "b/Helper")), index.getClassReferences("a/Main"));
+                    test.assertNull(index.getClassReferences("b/Helper"));
+                    test.assertFalse(index.hasServiceProviders());
+                });
+
+                runner.test("with service providers", (Test test) ->
+                {
+                    final byte[] jarBytes = JarClassIndexTests.createJarBytes(
+                        "META-INF/services/a.Service", "b.ServiceImpl".getBytes());
+                    test.assertTrue(JarClassIndex.parse(jarBytes).hasServiceProviders());
+                });
+            });
+
+            runner.testGroup("getReachableFiles(Iterable<File>,String,QubPublishArtifactCache)", () ->
+            {
+                runner.test("with unreachable dependency jar",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File mainJar = currentFolder.getFile("main.jar").await();
+                    mainJar.setContents(JarClassIndexTests.createJarBytes(
+                        "a/Main.class", JarClassIndexTests.createClassBytes("a/Main", "b/Helper"))).await();
+                    final File helperJar = currentFolder.getFile("helper.jar").await();
+                    helperJar.setContents(JarClassIndexTests.createJarBytes(
+                        "b/Helper.class", JarClassIndexTests.createClassBytes("b/Helper", "c/Transitive"))).await();
+                    final File unusedJar = currentFolder.getFile("unused.jar").await();
+                    unusedJar.setContents(JarClassIndexTests.createJarBytes(
+                        "d/Unused.class", JarClassIndexTests.createClassBytes("d/Unused"))).await();
+                    final File transitiveJar = currentFolder.getFile("transitive.jar").await();
+                    transitiveJar.setContents(JarClassIndexTests.createJarBytes(
+                        "c/Transitive.class", JarClassIndexTests.createClassBytes("c/Transitive"))).await();
+                    final File missingJar = currentFolder.getFile("missing.jar").await();
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+
+                    test.assertEqual(
+                        Iterable.create(mainJar, helperJar, transitiveJar, missingJar),
+                        JarClassIndex.getReachableFiles(Iterable.create(mainJar, helperJar, unusedJar, transitiveJar, missingJar), "a.Main", artifactCache).await());
+                });
+
+                runner.test("with main class that isn't in any jar",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File mainJar = currentFolder.getFile("main.jar").await();
+                    mainJar.setContents(JarClassIndexTests.createJarBytes(
+                        "a/Other.class", JarClassIndexTests.createClassBytes("a/Other"))).await();
+                    final File unusedJar = currentFolder.getFile("unused.jar").await();
+                    unusedJar.setContents(JarClassIndexTests.createJarBytes(
+                        "d/Unused.class", JarClassIndexTests.createClassBytes("d/Unused"))).await();
+
+                    test.assertEqual(
+                        Iterable.create(mainJar, unusedJar),
+                        JarClassIndex.getReachableFiles(Iterable.create(mainJar, unusedJar), "a.Main", QubPublishArtifactCache.create()).await());
+                });
+            });
+        });
+    }
+
+    static byte[] createClassBytes(String className, String... references)
+    {
+        try
+        {
+            final java.io.ByteArrayOutputStream byteStream = new java.io.ByteArrayOutputStream();
+            final java.io.DataOutputStream output = new java.io.DataOutputStream(byteStream);
+            output.writeInt(0xCAFEBABE);
+            output.writeShort(0);
+            output.writeShort(58);
+
+            final List<String> classNames = List.create(className);
+            final List<String> descriptors = List.create();
+            for (final String reference : references)
+            {
+                if (reference.startsWith("("))
+                {
+                    descriptors.add(reference);
+                }
+                else
+                {
+                    classNames.add(reference);
+                }
+            }
+            output.writeShort(1 + classNames.getCount() * 2 + descriptors.getCount());
+            for (final String name : classNames)
+            {
+                output.writeByte(1);
+                output.writeUTF(name);
+                output.writeByte(7);
+                output.writeShort((classNames.indexOf(name) * 2) + 1);
+            }
+            for (final String descriptor : descriptors)
+            {
+                output.writeByte(1);
+                output.writeUTF(descriptor);
+            }
+
+            output.writeShort(0x21);
+            output.writeShort(2);
+            output.writeShort(0);
+            output.writeShort(0);
+            output.writeShort(0);
+            output.writeShort(0);
+            output.writeShort(0);
+            output.flush();
+            return byteStream.toByteArray();
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+
+    static byte[] createJarBytes(Object... entryNamesAndContents)
+    {
+        try
+        {
+            final java.io.ByteArrayOutputStream byteStream = new java.io.ByteArrayOutputStream();
+            try (final java.util.zip.ZipOutputStream zipStream = new java.util.zip.ZipOutputStream(byteStream))
+            {
+                for (int i = 0; i < entryNamesAndContents.length; i += 2)
+                {
+                    zipStream.putNextEntry(new java.util.zip.ZipEntry((String)entryNamesAndContents[i]));
+                    zipStream.write((byte[])entryNamesAndContents[i + 1]);
+                    zipStream.closeEntry();
+                }
+            }
+            return byteStream.toByteArray();
+        }
+        catch (java.io.IOException error)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package qub;
+
+public interface ProjectJSONCacheTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(ProjectJSONCache.class, () ->
+        {
+            runner.testGroup("create()", () ->
+            {
+                runner.test("with no arguments", (Test test) ->
+                {
+                    final ProjectJSONCache cache = ProjectJSONCache.create();
+                    test.assertNotNull(cache);
+                    test.assertEqual(ProjectJSONCache.defaultMaximumEntryCount, cache.getMaximumEntryCount());
+                    test.assertEqual(0, cache.getEntryCount());
+                    test.assertEqual(0, cache.getHitCount());
+                    test.assertEqual(0, cache.getMissCount());
+                });
+            });
+
+            runner.testGroup("create(int)", () ->
+            {
+                runner.test("with 0", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONCache.create(0),
+                        new PreConditionFailure("maximumEntryCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with 3", (Test test) ->
+                {
+                    final ProjectJSONCache cache = ProjectJSONCache.create(3);
+                    test.assertNotNull(cache);
+                    test.assertEqual(3, cache.getMaximumEntryCount());
+                    test.assertEqual(0, cache.getEntryCount());
+                });
+            });
+
+            runner.testGroup("parse(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final ProjectJSONCache cache = ProjectJSONCache.create();
+                    test.assertThrows(() -> cache.parse(null),
+                        new PreConditionFailure("projectJsonFile cannot be null."));
+                });
+
+                runner.test("with file that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File projectJsonFile = process.getCurrentFolder().getFile("project.json").await();
+                    final ProjectJSONCache cache = ProjectJSONCache.create();
+                    test.assertThrows(() -> cache.parse(projectJsonFile).await(),
+                        new FileNotFoundException(projectJsonFile));
+                    test.assertEqual(0, cache.getEntryCount());
+                });
+
+                runner.test("with unchanged file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File projectJsonFile = process.getCurrentFolder().getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .toString())
+                        .await();
+                    final ProjectJSONCache cache = ProjectJSONCache.create();
+
+                    final ProjectJSON projectJson1 = cache.parse(projectJsonFile).await();
+                    test.assertEqual("me", projectJson1.getPublisher());
+                    test.assertEqual(1, cache.getEntryCount());
+
+                    final ProjectJSON projectJson2 = cache.parse(projectJsonFile).await();
+                    test.assertSame(projectJson1, projectJson2);
+                    test.assertEqual(1, cache.getEntryCount());
+                    test.assertEqual(1, cache.getHitCount());
+                    test.assertEqual(1, cache.getMissCount());
+                });
+
+                runner.test("with changed file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File projectJsonFile = process.getCurrentFolder().getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .toString())
+                        .await();
+                    final ProjectJSONCache cache = ProjectJSONCache.create();
+
+                    final ProjectJSON projectJson1 = cache.parse(projectJsonFile).await();
+                    test.assertEqual("my-project", projectJson1.getProject());
+
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-other-project")
+                            .setVersion("1")
+                            .toString())
+                        .await();
+
+                    final ProjectJSON projectJson2 = cache.parse(projectJsonFile).await();
+                    test.assertNotSame(projectJson1, projectJson2);
+                    test.assertEqual("my-other-project", projectJson2.getProject());
+                    test.assertEqual(1, cache.getEntryCount());
+                });
+
+                runner.test("with more files than the maximum entry count",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final ProjectJSONCache cache = ProjectJSONCache.create(2);
+                    final List<ProjectJSON> projectJsons = List.create();
+                    for (final String projectName : Iterable.create("a", "b", "c"))
+                    {
+                        final File projectJsonFile = currentFolder.getFile(projectName + "/project.json").await();
+                        projectJsonFile.setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject(projectName)
+                                .setVersion("1")
+                                .toString())
+                            .await();
+                        projectJsons.add(cache.parse(projectJsonFile).await());
+                    }
+                    test.assertEqual(2, cache.getEntryCount());
+
+                    test.assertSame(projectJsons.get(2), cache.parse(currentFolder.getFile("c/project.json").await()).await());
+                    test.assertNotSame(projectJsons.get(0), cache.parse(currentFolder.getFile("a/project.json").await()).await());
+                    test.assertEqual(2, cache.getEntryCount());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,142 @@
+package qub;
+
+public interface ProjectJSONDependencyScannerTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(ProjectJSONDependencyScanner.class, () ->
+        {
+            runner.testGroup("dependsOn(CharSequence,String,String)", () ->
+            {
+                runner.test("with null projectJsonText", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.dependsOn(null, "me", "my-project"),
+                        new PreConditionFailure("projectJsonText cannot be null."));
+                });
+
+                runner.test("with null publisher", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.dependsOn("{}", null, "my-project"),
+                        new PreConditionFailure("publisher cannot be null."));
+                });
+
+                runner.test("with empty project", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.dependsOn("{}", "me", ""),
+                        new PreConditionFailure("project cannot be empty."));
+                });
+
+                final Action3<String,String,Boolean> dependsOnTest = (String projectJsonText, String dependency, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(projectJsonText) + " and " + Strings.escapeAndQuote(dependency), (Test test) ->
+                    {
+                        final String[] dependencyParts = dependency.split("/");
+                        test.assertEqual(expected, ProjectJSONDependencyScanner.dependsOn(projectJsonText, dependencyParts[0], dependencyParts[1]));
+                    });
+                };
+
+                dependsOnTest.run("", "me/my-project", false);
+                dependsOnTest.run("[]", "me/my-project", false);
+                dependsOnTest.run("{", "me/my-project", false);
+                dependsOnTest.run("{}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[]}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\"}]}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"project\":\"my-project\"}]}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-projects\"}]}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-proj\"}]}}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"you\",\"project\":\"my-project\"}]}}", "me/my-project", false);
+                dependsOnTest.run("{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-project\"}]}", "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-project\",\"version\":\"5\"}]}}", "me/my-project", true);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"project\":\"my-project\",\"publisher\":\"me\"}]}}", "me/my-project", true);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"m\\u0065\",\"project\":\"my-project\"}]}}", "me/my-project", true);
+                dependsOnTest.run("{\"publisher\":\"me\",\"project\":\"other\",\"version\":\"1\",\"java\":{\"mainClass\":\"A\",\"dependencies\":[{\"publisher\":\"you\",\"project\":\"stuff\",\"version\":\"7.3.1\"},{\"publisher\":\"me\",\"project\":\"my-project\",\"version\":\"1\"}]}}", "me/my-project", true);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-project\"}", "me/my-project", true);
+            });
+
+            runner.testGroup("dependsOn(byte[],String,String)", () ->
+            {
+                runner.test("with null projectJsonBytes", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.dependsOn((byte[])null, "me", "my-project"),
+                        new PreConditionFailure("projectJsonBytes cannot be null."));
+                });
+
+                final Action3<byte[],String,Boolean> dependsOnTest = (byte[] projectJsonBytes, String dependency, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(new String(projectJsonBytes, java.nio.charset.StandardCharsets.UTF_8)) + " bytes and " + Strings.escapeAndQuote(dependency), (Test test) ->
+                    {
+                        final String[] dependencyParts = dependency.split("/");
+                        test.assertEqual(expected, ProjectJSONDependencyScanner.dependsOn(projectJsonBytes, dependencyParts[0], dependencyParts[1]));
+                    });
+                };
+
+                dependsOnTest.run(new byte[0], "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-project\"}]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8), "me/my-project", true);
+                dependsOnTest.run("\uFEFF{\"java\":{\"dependencies\":[{\"publisher\":\"me\",\"project\":\"my-project\"}]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8), "me/my-project", true);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"m\u00e9\",\"project\":\"my-project\"}]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8), "m\u00e9/my-project", true);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"m\u00e9\",\"project\":\"my-project\"}]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8), "me/my-project", false);
+                dependsOnTest.run("{\"java\":{\"dependencies\":[{\"publisher\":\"m\\u00e9\",\"project\":\"my-project\"}]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8), "m\u00e9/my-project", true);
+            });
+
+            runner.testGroup("summarize(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.summarize(null),
+                        new PreConditionFailure("projectJsonBytes cannot be null."));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertThrows(() -> ProjectJSONDependencyScanner.summarize(new byte[0]),
+                        new ParseException("Unexpected end of text."));
+                });
+
+                runner.test("with empty object", (Test test) ->
+                {
+                    final ProjectJSONSummary summary = ProjectJSONDependencyScanner.summarize("{}".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    test.assertNull(summary.getPublisher());
+                    test.assertNull(summary.getProject());
+                    test.assertNull(summary.getVersion());
+                    test.assertEqual(Iterable.create(), summary.getDependencies());
+                });
+
+                runner.test("with ProjectJSON text", (Test test) ->
+                {
+                    final String projectJsonText = ProjectJSON.create()
+                        .setPublisher("me")
+                        .setProject("my-project")
+                        .setVersion("5")
+                        .setJava(ProjectJSONJava.create()
+                            .setMainClass("A")
+                            .setDependencies(Iterable.create(
+                                ProjectSignature.create("you", "stuff", "7.3.1"),
+                                ProjectSignature.create("me", "other", "2"))))
+                        .toString();
+                    final ProjectJSONSummary summary = ProjectJSONDependencyScanner.summarize(projectJsonText.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    test.assertEqual("me", summary.getPublisher());
+                    test.assertEqual("my-project", summary.getProject());
+                    test.assertEqual("5", summary.getVersion());
+                    test.assertEqual(
+                        Iterable.create(
+                            ProjectSignature.create("you", "stuff", "7.3.1"),
+                            ProjectSignature.create("me", "other", "2")),
+                        summary.getDependencies());
+                });
+
+                runner.test("with escaped values and incomplete dependencies", (Test test) ->
+                {
+                    final ProjectJSONSummary summary = ProjectJSONDependencyScanner.summarize(
+                        "{\"publisher\":\"m\\u0065\",\"project\":\"a\\\"b\",\"java\":{\"dependencies\":[{\"publisher\":\"you\",\"project\":\"stuff\"},{\"project\":\"x\",\"version\":\"1\",\"publisher\":\"y\"},5]}}".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    test.assertEqual("me", summary.getPublisher());
+                    test.assertEqual("a\"b", summary.getProject());
+                    test.assertNull(summary.getVersion());
+                    test.assertEqual(
+                        Iterable.create(ProjectSignature.create("y", "x", "1")),
+                        summary.getDependencies());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package qub;
+
+public interface QubDependencyGraphTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubDependencyGraph.class, () ->
+        {
+            runner.testGroup("resolve(Iterable<ProjectSignature>,QubFolder,Executor)", () ->
+            {
+                runner.test("with null rootDependencies",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    test.assertThrows(() -> QubDependencyGraph.resolve(null, process.getQubFolder().await(), Runnable::run),
+                        new PreConditionFailure("rootDependencies cannot be null."));
+                });
+
+                runner.test("with null executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    test.assertThrows(() -> QubDependencyGraph.resolve(Iterable.create(), process.getQubFolder().await(), null),
+                        new PreConditionFailure("executor cannot be null."));
+                });
+
+                runner.test("with no dependencies",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(), process.getQubFolder().await(), Runnable::run).await();
+                    test.assertEqual(Iterable.create(), graph.getTransitiveDependencies());
+                    test.assertFalse(graph.hasConflicts());
+                });
+
+                runner.test("with dependency that isn't published",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final ProjectSignature dependency = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(dependency), process.getQubFolder().await(), Runnable::run).await();
+                    test.assertEqual(Iterable.create(dependency), graph.getTransitiveDependencies());
+                    test.assertEqual(1, graph.getDepth(dependency));
+                    test.assertFalse(graph.hasConflicts());
+                });
+
+                runner.test("with shared and conflicting transitive dependencies",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c2 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(2));
+                    final ProjectSignature d1 = ProjectSignature.create("me", "d", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c1, d1);
+                    QubDependencyGraphTests.publish(qubFolder, b1, c2, d1);
+                    QubDependencyGraphTests.publish(qubFolder, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c2, d1);
+                    QubDependencyGraphTests.publish(qubFolder, d1);
+
+                    final List<Runnable> reads = List.create();
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1, b1), qubFolder, (Runnable read) ->
+                    {
+                        reads.add(read);
+                        read.run();
+                    }).await();
+
+                    test.assertEqual(5, reads.getCount());
+                    test.assertEqual(Iterable.create(b1, d1, c2, a1, c1), graph.getTransitiveDependencies());
+                    test.assertEqual(1, graph.getDepth(a1));
+                    test.assertEqual(1, graph.getDepth(b1));
+                    test.assertEqual(2, graph.getDepth(c1));
+                    test.assertEqual(2, graph.getDepth(c2));
+                    test.assertEqual(2, graph.getDepth(d1));
+                    test.assertEqual(-1, graph.getDepth(ProjectSignature.create("me", "e", VersionNumber.create().setMajor(1))));
+                    test.assertTrue(graph.hasConflicts());
+                    test.assertEqual(1, graph.getConflicts().size());
+                    test.assertEqual(Iterable.create("1", "2"), graph.getConflicts().get("me/c"));
+
+                    test.assertEqual("2", graph.getConflictResolutions(DependencyConflictStrategy.Nearest).get("me/c"));
+                    test.assertEqual(Iterable.create(b1, d1, c2, a1), graph.getTransitiveDependencies(DependencyConflictStrategy.Nearest));
+                    test.assertEqual("2", graph.getConflictResolutions(DependencyConflictStrategy.Highest).get("me/c"));
+                    test.assertEqual(Iterable.create(b1, d1, c2, a1), graph.getTransitiveDependencies(DependencyConflictStrategy.Highest));
+                    test.assertThrows(() -> graph.getTransitiveDependencies(DependencyConflictStrategy.Fail),
+                        new RuntimeException("Found conflicting versions in the dependency graph: me/c (1, 2)."));
+                });
+
+                runner.test("with conflict where the nearest version isn't the highest",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c3 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(3));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c3);
+                    QubDependencyGraphTests.publish(qubFolder, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c3);
+
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1, c1), qubFolder, Runnable::run).await();
+                    test.assertEqual(Iterable.create(c1, a1, c3), graph.getTransitiveDependencies());
+                    test.assertEqual(Iterable.create(c1, a1), graph.getTransitiveDependencies(DependencyConflictStrategy.Nearest));
+                    test.assertEqual(Iterable.create(a1, c3), graph.getTransitiveDependencies(DependencyConflictStrategy.Highest));
+                });
+
+                runner.test("with conflict where the losing version has its own dependencies",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c2 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(2));
+                    final ProjectSignature e1 = ProjectSignature.create("me", "e", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, b1, c2);
+                    QubDependencyGraphTests.publish(qubFolder, c1, e1);
+                    QubDependencyGraphTests.publish(qubFolder, c2);
+                    QubDependencyGraphTests.publish(qubFolder, e1);
+
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1, b1), qubFolder, Runnable::run).await();
+                    test.assertEqual(Iterable.create(b1, c2, a1, c1, e1), graph.getTransitiveDependencies());
+                    test.assertEqual(Iterable.create(b1, c2, a1), graph.getTransitiveDependencies(DependencyConflictStrategy.Highest));
+                });
+
+                runner.test("with conflict where the resolved version is only reachable through a losing version",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c2 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(2));
+                    final ProjectSignature e1 = ProjectSignature.create("me", "e", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c1, e1);
+                    QubDependencyGraphTests.publish(qubFolder, e1, c2);
+                    QubDependencyGraphTests.publish(qubFolder, c2);
+
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1), qubFolder, Runnable::run).await();
+                    test.assertEqual(Iterable.create(a1, c1, e1, c2), graph.getTransitiveDependencies());
+                    test.assertEqual(Iterable.create(a1, c2), graph.getTransitiveDependencies(DependencyConflictStrategy.Highest));
+                });
+
+                runner.test("with shared dependency cache",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature missing1 = ProjectSignature.create("me", "missing", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, b1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c1);
+                    final java.util.concurrent.ConcurrentMap<String,Iterable<ProjectSignature>> dependencyCache = new java.util.concurrent.ConcurrentHashMap<>();
+                    final List<Runnable> reads = List.create();
+                    final java.util.concurrent.Executor executor = (Runnable read) ->
+                    {
+                        reads.add(read);
+                        read.run();
+                    };
+
+                    final QubDependencyGraph graph1 = QubDependencyGraph.resolve(Iterable.create(a1, missing1), qubFolder, executor, dependencyCache).await();
+                    test.assertEqual(Iterable.create(missing1, a1, c1), graph1.getTransitiveDependencies());
+                    test.assertEqual(3, reads.getCount());
+                    test.assertEqual(2, dependencyCache.size());
+
+                    final QubDependencyGraph graph2 = QubDependencyGraph.resolve(Iterable.create(b1, a1), qubFolder, executor, dependencyCache).await();
+                    test.assertEqual(Iterable.create(a1, c1, b1), graph2.getTransitiveDependencies());
+                    test.assertEqual(4, reads.getCount());
+                    test.assertEqual(3, dependencyCache.size());
+                });
+
+                runner.test("with metadata transitive dependencies",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    final ProjectSignature x1 = ProjectSignature.create("me", "x", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, b1);
+                    QubDependencyGraphTests.publish(qubFolder, b1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c1);
+                    QubDependencyGraphTests.publish(qubFolder, x1);
+                    // The recorded closure includes x, which a no longer reaches, to show that the
+                    // closure is only used to start reads early and not to build the graph.
+                    QubPublishMetadata.create(a1, Iterable.create(b1), Iterable.create(b1, c1, x1))
+                        .writeTo(qubFolder.getProjectVersionFolder("me", "a", "1").await())
+                        .await();
+                    final java.util.concurrent.ConcurrentMap<String,Iterable<ProjectSignature>> dependencyCache = new java.util.concurrent.ConcurrentHashMap<>();
+                    final List<Runnable> reads = List.create();
+                    final java.util.concurrent.Executor executor = (Runnable read) ->
+                    {
+                        reads.add(read);
+                        read.run();
+                    };
+
+                    final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1), qubFolder, executor, dependencyCache).await();
+                    test.assertEqual(Iterable.create(a1, b1, c1), graph.getTransitiveDependencies());
+                    test.assertEqual(3, graph.getDepth(c1));
+                    test.assertEqual(4, reads.getCount());
+                    test.assertEqual(Iterable.create(b1), dependencyCache.get(a1.toString()));
+                    test.assertEqual(Iterable.create(c1), dependencyCache.get(b1.toString()));
+                    test.assertEqual(Iterable.create(), dependencyCache.get(c1.toString()));
+                    test.assertEqual(Iterable.create(), dependencyCache.get(x1.toString()));
+                });
+
+                runner.test("with thread pool executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature a1 = ProjectSignature.create("me", "a", VersionNumber.create().setMajor(1));
+                    final ProjectSignature b1 = ProjectSignature.create("me", "b", VersionNumber.create().setMajor(1));
+                    final ProjectSignature c1 = ProjectSignature.create("me", "c", VersionNumber.create().setMajor(1));
+                    QubDependencyGraphTests.publish(qubFolder, a1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, b1, c1);
+                    QubDependencyGraphTests.publish(qubFolder, c1);
+
+                    final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(2);
+                    try
+                    {
+                        final QubDependencyGraph graph = QubDependencyGraph.resolve(Iterable.create(a1, b1), qubFolder, executor).await();
+                        test.assertEqual(Iterable.create(b1, c1, a1), graph.getTransitiveDependencies());
+                        test.assertFalse(graph.hasConflicts());
+                    }
+                    finally
+                    {
+                        executor.shutdown();
+                    }
+                });
+            });
+        });
+    }
+
+    static void publish(QubFolder qubFolder, ProjectSignature project, ProjectSignature... dependencies)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(project, "project");
+        PreCondition.assertNotNull(dependencies, "dependencies");
+
+        qubFolder.getProjectVersionFolder(project.getPublisher(), project.getProject(), project.getVersion()).await()
+            .getProjectJSONFile().await()
+            .setContentsAsString(
+                ProjectJSON.create()
+                    .setPublisher(project.getPublisher())
+                    .setProject(project.getProject())
+                    .setVersion(project.getVersion())
+                    .setJava(ProjectJSONJava.create()
+                        .setDependencies(Iterable.create(dependencies)))
+                    .toString())
+            .await();
+    }
+}
@@ -0,0 +1,264 @@
+package qub;
+
+public interface QubProjectVersionIndexTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubProjectVersionIndex.class, () ->
+        {
+            runner.testGroup("create(Iterable<String>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubProjectVersionIndex.create(null),
+                        new PreConditionFailure("versions cannot be null."));
+                });
+
+                runner.test("with no versions", (Test test) ->
+                {
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.create(Iterable.create());
+                    test.assertEqual(0, index.getCount());
+                    test.assertEqual(Iterable.create(), index.getVersions());
+                    test.assertNull(index.getLatestVersion());
+                    test.assertNull(index.getLatestMajor());
+                });
+
+                runner.test("with unsorted versions", (Test test) ->
+                {
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.create(Iterable.create("10", "2", "7.10.0", "7.9.1", "7", "1"));
+                    test.assertEqual(6, index.getCount());
+                    test.assertEqual(Iterable.create("1", "2", "7", "7.9.1", "7.10.0", "10"), index.getVersions());
+                    test.assertEqual("10", index.getLatestVersion());
+                    test.assertEqual(10, index.getLatestMajor());
+                });
+            });
+
+            runner.testGroup("compareVersions(String,String)", () ->
+            {
+                final Action3<String,String,Integer> compareVersionsTest = (String lhs, String rhs, Integer expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(lhs) + " and " + Strings.escapeAndQuote(rhs), (Test test) ->
+                    {
+                        test.assertEqual(expected, Integer.signum(QubProjectVersionIndex.compareVersions(lhs, rhs)));
+                    });
+                };
+
+                compareVersionsTest.run("1", "1", 0);
+                compareVersionsTest.run("1", "2", -1);
+                compareVersionsTest.run("10", "9", 1);
+                compareVersionsTest.run("7.9", "7.10", -1);
+                compareVersionsTest.run("7", "7.0", -1);
+                compareVersionsTest.run("07", "7", -1);
+                compareVersionsTest.run("7", "07", 1);
+                compareVersionsTest.run("7.01", "7.1", -1);
+                compareVersionsTest.run("5.9.9", "6", -1);
+                compareVersionsTest.run("1.0.0-alpha", "1.0.0-beta", -1);
+            });
+
+            runner.testGroup("getLatestVersion(int)", () ->
+            {
+                final QubProjectVersionIndex index = QubProjectVersionIndex.create(Iterable.create("4.2", "5", "5.1", "5.10", "6", "12"));
+
+                runner.test("with -1", (Test test) ->
+                {
+                    test.assertThrows(() -> index.getLatestVersion(-1),
+                        new PreConditionFailure("major (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with major that has versions", (Test test) ->
+                {
+                    test.assertEqual("5.10", index.getLatestVersion(5));
+                    test.assertEqual("6", index.getLatestVersion(6));
+                    test.assertEqual("12", index.getLatestVersion(12));
+                });
+
+                runner.test("with major that doesn't have versions", (Test test) ->
+                {
+                    test.assertNull(index.getLatestVersion(1));
+                    test.assertNull(index.getLatestVersion(7));
+                    test.assertNull(index.getLatestVersion(20));
+                });
+            });
+
+            runner.testGroup("getPreviousVersion(String)", () ->
+            {
+                final QubProjectVersionIndex index = QubProjectVersionIndex.create(Iterable.create("4.2", "5", "5.1", "5.10", "6", "12"));
+
+                runner.test("with version in the index", (Test test) ->
+                {
+                    test.assertEqual("5.1", index.getPreviousVersion("5.10"));
+                });
+
+                runner.test("with version not in the index", (Test test) ->
+                {
+                    test.assertEqual("6", index.getPreviousVersion("11"));
+                });
+
+                runner.test("with oldest version", (Test test) ->
+                {
+                    test.assertNull(index.getPreviousVersion("4.2"));
+                });
+            });
+
+            runner.testGroup("getVersionsNewerThan(String)", () ->
+            {
+                final QubProjectVersionIndex index = QubProjectVersionIndex.create(Iterable.create("4.2", "5", "5.1", "5.10", "6", "12"));
+
+                runner.test("with version in the index", (Test test) ->
+                {
+                    test.assertEqual(Iterable.create("5.10", "6", "12"), index.getVersionsNewerThan("5.1"));
+                });
+
+                runner.test("with version not in the index", (Test test) ->
+                {
+                    test.assertEqual(Iterable.create("6", "12"), index.getVersionsNewerThan("5.11"));
+                });
+
+                runner.test("with latest version", (Test test) ->
+                {
+                    test.assertEqual(Iterable.create(), index.getVersionsNewerThan("12"));
+                });
+            });
+
+            runner.testGroup("get(QubProjectFolder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubProjectVersionIndex.get(null),
+                        new PreConditionFailure("projectFolder cannot be null."));
+                });
+
+                runner.test("with project folder that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectFolder projectFolder = process.getQubFolder().await().getProjectFolder("me", "my-project").await();
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(0, index.getCount());
+                });
+
+                runner.test("with no index file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    qubFolder.getProjectVersionFolder("me", "my-project", "9").await().create().await();
+                    qubFolder.getProjectVersionFolder("me", "my-project", "10").await().create().await();
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("9", "10"), index.getVersions());
+                    test.assertFalse(projectFolder.fileExists(QubProjectVersionIndex.fileName).await());
+                });
+
+                runner.test("with index file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    for (final String version : Iterable.create("1", "2", "3"))
+                    {
+                        qubFolder.getProjectVersionFolder("me", "my-project", version).await().create().await();
+                    }
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create("3", "1", "2")).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("1", "2", "3"), index.getVersions());
+                });
+
+                runner.test("with index file that is missing the next version folder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    for (final String version : Iterable.create("1", "2", "3"))
+                    {
+                        qubFolder.getProjectVersionFolder("me", "my-project", version).await().create().await();
+                    }
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create("1", "2")).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("1", "2", "3"), index.getVersions());
+                    test.assertEqual("3", index.getLatestVersion());
+                });
+
+                runner.test("with empty index file and a version folder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    qubFolder.getProjectVersionFolder("me", "my-project", "1").await().create().await();
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create()).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("1"), index.getVersions());
+                });
+
+                runner.test("with index file that doesn't list an older version folder",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    for (final String version : Iterable.create("1", "2", "3"))
+                    {
+                        qubFolder.getProjectVersionFolder("me", "my-project", version).await().create().await();
+                    }
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create("1", "3")).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("1", "3"), index.getVersions());
+                });
+
+                runner.test("with index file whose latest version folder was deleted",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    for (final String version : Iterable.create("1", "2"))
+                    {
+                        qubFolder.getProjectVersionFolder("me", "my-project", version).await().create().await();
+                    }
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create("1", "2", "3")).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("1", "2"), index.getVersions());
+                    test.assertEqual("2", index.getLatestVersion());
+                });
+
+                runner.test("with index file whose latest version folder was replaced by the next one",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    for (final String version : Iterable.create("2", "3"))
+                    {
+                        qubFolder.getProjectVersionFolder("me", "my-project", version).await().create().await();
+                    }
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    QubProjectVersionIndex.create(Iterable.create("1", "2")).writeTo(projectFolder).await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("2", "3"), index.getVersions());
+                });
+
+                runner.test("with invalid index file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    qubFolder.getProjectVersionFolder("me", "my-project", "4").await().create().await();
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    projectFolder.getFile(QubProjectVersionIndex.fileName).await().setContentsAsString("not json").await();
+
+                    final QubProjectVersionIndex index = QubProjectVersionIndex.get(projectFolder).await();
+                    test.assertEqual(Iterable.create("4"), index.getVersions());
+                });
+            });
+        });
+    }
+}
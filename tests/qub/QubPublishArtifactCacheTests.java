@@ -0,0 +1,121 @@
+package qub;
+
+public interface QubPublishArtifactCacheTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubPublishArtifactCache.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final QubPublishArtifactCache cache = QubPublishArtifactCache.create();
+                test.assertNotNull(cache);
+                test.assertEqual(QubPublishArtifactCache.defaultMaximumEntryCount, cache.getMaximumEntryCount());
+                test.assertNotNull(cache.getProjectJSONCache());
+                test.assertEqual(QubPublishArtifactCache.defaultMaximumEntryCount, cache.getProjectJSONCache().getMaximumEntryCount());
+            });
+
+            runner.test("getShared()", (Test test) ->
+            {
+                final QubPublishArtifactCache cache = QubPublishArtifactCache.getShared();
+                test.assertNotNull(cache);
+                test.assertSame(cache, QubPublishArtifactCache.getShared());
+            });
+
+            runner.testGroup("getHash(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishArtifactCache.getHash(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertEqual("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", QubPublishArtifactCache.getHash(new byte[0]));
+                });
+
+                runner.test("with \"abc\"", (Test test) ->
+                {
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", QubPublishArtifactCache.getHash(new byte[] { 97, 98, 99 }));
+                });
+            });
+
+            runner.testGroup("getContentHash(File)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final QubPublishArtifactCache cache = QubPublishArtifactCache.create();
+                    test.assertThrows(() -> cache.getContentHash(null),
+                        new PreConditionFailure("file cannot be null."));
+                });
+
+                runner.test("with file that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File file = process.getCurrentFolder().getFile("a.jar").await();
+                    final QubPublishArtifactCache cache = QubPublishArtifactCache.create();
+                    test.assertThrows(() -> cache.getContentHash(file).await(),
+                        new FileNotFoundException(file));
+                });
+
+                runner.test("with existing file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File file = process.getCurrentFolder().getFile("a.jar").await();
+                    file.setContentsAsString("abc").await();
+                    final QubPublishArtifactCache cache = QubPublishArtifactCache.create();
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", cache.getContentHash(file).await());
+                    test.assertEqual(0, cache.getContentHashHitCount());
+                    test.assertEqual(1, cache.getContentHashMissCount());
+
+                    test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", cache.getContentHash(file).await());
+                    test.assertEqual(1, cache.getContentHashHitCount());
+                    test.assertEqual(1, cache.getContentHashMissCount());
+                });
+            });
+
+            runner.testGroup("getValue(File,String,Function0<T>)", () ->
+            {
+                runner.test("with identical files at different paths",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File file1 = process.getCurrentFolder().getFile("a.jar").await();
+                    file1.setContentsAsString("abc").await();
+                    final File file2 = process.getCurrentFolder().getFile("b/a.jar").await();
+                    file2.setContentsAsString("abc").await();
+                    final QubPublishArtifactCache cache = QubPublishArtifactCache.create();
+                    final IntegerValue createCount = IntegerValue.create(0);
+
+                    test.assertEqual("value", cache.getValue(file1, "kind", () -> { createCount.increment(); return "value"; }).await());
+                    test.assertEqual("value", cache.getValue(file2, "kind", () -> { createCount.increment(); return "other value"; }).await());
+                    test.assertEqual(1, createCount.get());
+
+                    test.assertEqual("other value", cache.getValue(file2, "other-kind", () -> { createCount.increment(); return "other value"; }).await());
+                    test.assertEqual(2, createCount.get());
+                });
+            });
+
+            runner.testGroup("getDependencyCache()", () ->
+            {
+                runner.test("with more entries than the maximum entry count", (Test test) ->
+                {
+                    final QubPublishArtifactCache cache = QubPublishArtifactCache.create(2);
+                    final java.util.Map<String,Iterable<ProjectSignature>> dependencyCache = cache.getDependencyCache();
+                    dependencyCache.putIfAbsent("me/a@1", Iterable.create());
+                    dependencyCache.putIfAbsent("me/b@1", Iterable.create());
+                    test.assertNotNull(dependencyCache.get("me/a@1"));
+                    dependencyCache.putIfAbsent("me/c@1", Iterable.create());
+
+                    test.assertEqual(2, dependencyCache.size());
+                    test.assertTrue(dependencyCache.containsKey("me/a@1"));
+                    test.assertFalse(dependencyCache.containsKey("me/b@1"));
+                    test.assertTrue(dependencyCache.containsKey("me/c@1"));
+                });
+            });
+        });
+    }
+}
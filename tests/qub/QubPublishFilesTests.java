@@ -0,0 +1,107 @@
+package qub;
+
+public interface QubPublishFilesTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubPublishFiles.class, () ->
+        {
+            runner.testGroup("getJavaPath(FileSystemEntry)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishFiles.getJavaPath(null),
+                        new PreConditionFailure("entry cannot be null."));
+                });
+
+                runner.test("with in-memory file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    test.assertNull(QubPublishFiles.getJavaPath(process.getCurrentFolder().getFile("a.txt").await()));
+                });
+            });
+
+            runner.testGroup("move(File,File)", () ->
+            {
+                runner.test("with source that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File source = currentFolder.getFile("a.txt").await();
+                    test.assertThrows(() -> QubPublishFiles.move(source, currentFolder.getFile("b.txt").await()).await(),
+                        new FileNotFoundException(source));
+                });
+
+                runner.test("with destination that exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File source = currentFolder.getFile("a.txt").await();
+                    source.setContentsAsString("new").await();
+                    final File destination = currentFolder.getFile("b.txt").await();
+                    destination.setContentsAsString("old").await();
+
+                    QubPublishFiles.move(source, destination).await();
+
+                    test.assertFalse(source.exists().await());
+                    test.assertEqual("new", destination.getContentsAsString().await());
+                });
+            });
+
+            runner.testGroup("move(Folder,Folder)", () ->
+            {
+                runner.test("with destination that exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final Folder source = currentFolder.getFolder("a").await();
+                    source.getFile("b.txt").await().setContentsAsString("b").await();
+                    final Folder destination = currentFolder.getFolder("c").await();
+                    destination.create().await();
+
+                    test.assertThrows(() -> QubPublishFiles.move(source, destination).await(),
+                        new AlreadyExistsException("The folder at " + Strings.escapeAndQuote(destination.toString()) + " already exists."));
+                    test.assertTrue(source.fileExists("b.txt").await());
+                });
+
+                runner.test("with destination that doesn't exist",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final Folder source = currentFolder.getFolder("a").await();
+                    source.getFile("b.txt").await().setContentsAsString("b").await();
+                    source.getFile("d/e.txt").await().setContentsAsString("e").await();
+                    final Folder destination = currentFolder.getFolder("c").await();
+
+                    QubPublishFiles.move(source, destination).await();
+
+                    test.assertFalse(source.exists().await());
+                    test.assertEqual("b", destination.getFileContentsAsString("b.txt").await());
+                    test.assertEqual("e", destination.getFileContentsAsString("d/e.txt").await());
+                });
+            });
+
+            runner.testGroup("setContentsAsString(File,String)", () ->
+            {
+                runner.test("with file that exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder folder = process.getCurrentFolder().getFolder("data").await();
+                    final File file = folder.getFile("a.txt").await();
+                    file.setContentsAsString("old").await();
+
+                    QubPublishFiles.setContentsAsString(file, "new").await();
+
+                    test.assertEqual("new", file.getContentsAsString().await());
+                    test.assertEqual(Iterable.create(file), folder.iterateFilesRecursively().toList());
+                });
+            });
+        });
+    }
+}
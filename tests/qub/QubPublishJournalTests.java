@@ -0,0 +1,142 @@
+package qub;
+
+public interface QubPublishJournalTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubPublishJournal.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final QubPublishJournal journal = QubPublishJournal.create();
+                test.assertNotNull(journal);
+                test.assertFalse(journal.isStageCompleted(QubPublishJournal.packStage));
+                test.assertEqual(Iterable.create(), journal.getCompletedStages());
+                test.assertNull(journal.getVersion());
+                test.assertEqual(0, journal.getArtifactCount());
+                test.assertEqual("{\"stages\":[],\"artifacts\":[]}", journal.toString());
+            });
+
+            runner.testGroup("completeStage(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final QubPublishJournal journal = QubPublishJournal.create();
+                    test.assertThrows(() -> journal.completeStage(null),
+                        new PreConditionFailure("stage cannot be null."));
+                });
+
+                runner.test("with same stage twice", (Test test) ->
+                {
+                    final QubPublishJournal journal = QubPublishJournal.create()
+                        .completeStage(QubPublishJournal.packStage)
+                        .completeStage(QubPublishJournal.copyStage)
+                        .completeStage(QubPublishJournal.packStage);
+                    test.assertTrue(journal.isStageCompleted(QubPublishJournal.packStage));
+                    test.assertTrue(journal.isStageCompleted(QubPublishJournal.copyStage));
+                    test.assertEqual(Iterable.create("pack", "copy"), journal.getCompletedStages());
+                });
+            });
+
+            runner.testGroup("get(Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishJournal.get(null),
+                        new PreConditionFailure("outputFolder cannot be null."));
+                });
+
+                runner.test("with no journal file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder outputFolder = process.getCurrentFolder().getFolder("outputs").await();
+                    final QubPublishJournal journal = QubPublishJournal.get(outputFolder).await();
+                    test.assertEqual(Iterable.create(), journal.getCompletedStages());
+                    test.assertNull(journal.getVersion());
+                });
+
+                runner.test("with invalid journal file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder outputFolder = process.getCurrentFolder().getFolder("outputs").await();
+                    outputFolder.getFile(QubPublishJournal.fileName).await().setContentsAsString("not json").await();
+                    final QubPublishJournal journal = QubPublishJournal.get(outputFolder).await();
+                    test.assertEqual(Iterable.create(), journal.getCompletedStages());
+                    test.assertEqual(0, journal.getArtifactCount());
+                });
+
+                runner.test("with journal written by writeTo(Folder)",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder outputFolder = process.getCurrentFolder().getFolder("outputs").await();
+                    QubPublishJournal.create()
+                        .completeStage(QubPublishJournal.packStage)
+                        .setVersion("7")
+                        .setArtifactHash("my-project.jar", "abc")
+                        .setArtifactHash("project.json", "def")
+                        .writeTo(outputFolder)
+                        .await();
+
+                    final QubPublishJournal journal = QubPublishJournal.get(outputFolder).await();
+                    test.assertEqual(Iterable.create("pack"), journal.getCompletedStages());
+                    test.assertEqual("7", journal.getVersion());
+                    test.assertEqual("abc", journal.getArtifactHash("my-project.jar"));
+                    test.assertEqual("def", journal.getArtifactHash("project.json"));
+                    test.assertNull(journal.getArtifactHash("my-project.sources.jar"));
+                });
+            });
+
+            runner.testGroup("artifactsMatch(Iterable<File>,QubPublishArtifactCache)", () ->
+            {
+                runner.test("with no recorded artifacts",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File file = process.getCurrentFolder().getFile("a.jar").await();
+                    file.setContentsAsString("a").await();
+                    test.assertFalse(QubPublishJournal.create().artifactsMatch(Iterable.create(file), QubPublishArtifactCache.create()).await());
+                });
+
+                runner.test("with matching artifacts and a missing unrecorded artifact",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File aFile = currentFolder.getFile("a.jar").await();
+                    aFile.setContentsAsString("a").await();
+                    final File bFile = currentFolder.getFile("b.jar").await();
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    final QubPublishJournal journal = QubPublishJournal.create()
+                        .setArtifactHash("a.jar", artifactCache.getContentHash(aFile).await());
+                    test.assertTrue(journal.artifactsMatch(Iterable.create(aFile, bFile), artifactCache).await());
+                });
+
+                runner.test("with changed artifact",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File aFile = process.getCurrentFolder().getFile("a.jar").await();
+                    aFile.setContentsAsString("a").await();
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    final QubPublishJournal journal = QubPublishJournal.create()
+                        .setArtifactHash("a.jar", artifactCache.getContentHash(aFile).await());
+                    aFile.setContentsAsString("changed").await();
+                    test.assertFalse(journal.artifactsMatch(Iterable.create(aFile), artifactCache).await());
+                });
+
+                runner.test("with recorded artifact that no longer exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File aFile = process.getCurrentFolder().getFile("a.jar").await();
+                    final QubPublishJournal journal = QubPublishJournal.create()
+                        .setArtifactHash("a.jar", "abc");
+                    test.assertFalse(journal.artifactsMatch(Iterable.create(aFile), QubPublishArtifactCache.create()).await());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package qub;
+
+public interface QubPublishMetadataTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubPublishMetadata.class, () ->
+        {
+            final String aHash = QubPublishArtifactCache.getHash(new byte[] { 1, 2, 3 });
+            final String bHash = QubPublishArtifactCache.getHash(new byte[] { 4, 5, 6 });
+
+            runner.testGroup("create(ProjectSignature,Iterable<ProjectSignature>,Iterable<ProjectSignature>)", () ->
+            {
+                runner.test("with null signature", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetadata.create(null, Iterable.create(), Iterable.create()),
+                        new PreConditionFailure("signature cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final ProjectSignature signature = ProjectSignature.create("me", "my-project", "1");
+                    final ProjectSignature dependency = ProjectSignature.create("you", "stuff", "2");
+                    final QubPublishMetadata metadata = QubPublishMetadata.create(signature, Iterable.create(dependency), Iterable.create(dependency));
+                    test.assertEqual(signature, metadata.getSignature());
+                    test.assertEqual(Iterable.create(dependency), metadata.getDependencies());
+                    test.assertEqual(Iterable.create(dependency), metadata.getTransitiveDependencies());
+                    test.assertEqual(0, metadata.getArtifactCount());
+                });
+            });
+
+            runner.testGroup("dependsOn(String,String)", () ->
+            {
+                final QubPublishMetadata metadata = QubPublishMetadata.create(
+                    ProjectSignature.create("me", "my-project", "1"),
+                    Iterable.create(ProjectSignature.create("you", "stuff", "2")),
+                    Iterable.create(ProjectSignature.create("you", "stuff", "2"), ProjectSignature.create("them", "things", "3")));
+
+                runner.test("with direct dependency", (Test test) ->
+                {
+                    test.assertTrue(metadata.dependsOn("you", "stuff"));
+                });
+
+                runner.test("with transitive dependency", (Test test) ->
+                {
+                    test.assertFalse(metadata.dependsOn("them", "things"));
+                });
+
+                runner.test("with different publisher", (Test test) ->
+                {
+                    test.assertFalse(metadata.dependsOn("me", "stuff"));
+                });
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetadata.parse(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetadata.parse(new byte[0]),
+                        new ParseException("The metadata ended unexpectedly."));
+                });
+
+                runner.test("with JSON", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetadata.parse("{\"publisher\":\"me\"}".getBytes(java.nio.charset.StandardCharsets.UTF_8)),
+                        new ParseException("The metadata doesn't start with the expected magic number."));
+                });
+
+                runner.test("with unsupported format version", (Test test) ->
+                {
+                    final byte[] bytes = QubPublishMetadata.create(ProjectSignature.create("me", "my-project", "1"), Iterable.create(), Iterable.create()).toBytes();
+                    bytes[5] = 2;
+                    test.assertThrows(() -> QubPublishMetadata.parse(bytes),
+                        new ParseException("Unsupported metadata format version: 2"));
+                });
+
+                runner.test("with truncated bytes", (Test test) ->
+                {
+                    final byte[] bytes = QubPublishMetadata.create(ProjectSignature.create("me", "my-project", "1"), Iterable.create(), Iterable.create())
+                        .setArtifactHash("my-project.jar", aHash)
+                        .toBytes();
+                    test.assertThrows(() -> QubPublishMetadata.parse(java.util.Arrays.copyOf(bytes, bytes.length - 1)),
+                        new ParseException("The metadata ended unexpectedly."));
+                });
+
+                runner.test("with bytes truncated within a string", (Test test) ->
+                {
+                    final byte[] bytes = QubPublishMetadata.create(ProjectSignature.create("me", "my-project", "1"), Iterable.create(), Iterable.create())
+                        .toBytes();
+                    // The header is 20 bytes, followed by the publisher's 2-byte length and its bytes.
+                    test.assertThrows(() -> QubPublishMetadata.parse(java.util.Arrays.copyOf(bytes, 23)),
+                        new ParseException("The metadata ended unexpectedly."));
+                });
+
+                runner.test("with empty string", (Test test) ->
+                {
+                    final byte[] bytes = QubPublishMetadata.create(ProjectSignature.create("me", "my-project", "1"), Iterable.create(), Iterable.create())
+                        .toBytes();
+                    final byte[] emptyPublisherBytes = java.util.Arrays.copyOf(bytes, bytes.length);
+                    emptyPublisherBytes[20] = 0;
+                    emptyPublisherBytes[21] = 0;
+                    test.assertThrows(() -> QubPublishMetadata.parse(emptyPublisherBytes),
+                        new ParseException("The metadata ended unexpectedly."));
+                });
+
+                runner.test("with bytes from toBytes()", (Test test) ->
+                {
+                    final ProjectSignature signature = ProjectSignature.create("me", "my-project", "1");
+                    final ProjectSignature stuff = ProjectSignature.create("you", "stuff", "2.0.1");
+                    final ProjectSignature things = ProjectSignature.create("them", "th\u00EFngs", "3");
+                    final QubPublishMetadata metadata = QubPublishMetadata.parse(
+                        QubPublishMetadata.create(signature, Iterable.create(stuff), Iterable.create(stuff, things))
+                            .setArtifactHash("project.json", bHash)
+                            .setArtifactHash("my-project.jar", aHash)
+                            .toBytes());
+                    test.assertEqual(signature, metadata.getSignature());
+                    test.assertEqual(Iterable.create(stuff), metadata.getDependencies());
+                    test.assertEqual(Iterable.create(stuff, things), metadata.getTransitiveDependencies());
+                    test.assertEqual(2, metadata.getArtifactCount());
+                    test.assertEqual(aHash, metadata.getArtifactHash("my-project.jar"));
+                    test.assertEqual(bHash, metadata.getArtifactHash("project.json"));
+                    test.assertNull(metadata.getArtifactHash("my-project.sources.jar"));
+                });
+            });
+
+            runner.testGroup("readDependencies(QubProjectVersionFolder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetadata.readDependencies(null),
+                        new PreConditionFailure("versionFolder cannot be null."));
+                });
+
+                runner.test("with no metadata or project.json file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectVersionFolder versionFolder = process.getQubFolder().await().getProjectVersionFolder("me", "my-project", "1").await();
+                    test.assertThrows(() -> QubPublishMetadata.readDependencies(versionFolder).await(),
+                        new FileNotFoundException(versionFolder.getProjectJSONFile().await()));
+                });
+
+                runner.test("with only a project.json file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectVersionFolder versionFolder = process.getQubFolder().await().getProjectVersionFolder("me", "my-project", "1").await();
+                    final ProjectSignature stuff = ProjectSignature.create("you", "stuff", "2");
+                    versionFolder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("my-project")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create()
+                                    .setDependencies(Iterable.create(stuff)))
+                                .toString())
+                        .await();
+                    test.assertEqual(Iterable.create(stuff), QubPublishMetadata.readDependencies(versionFolder).await());
+                });
+
+                runner.test("with a metadata file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectVersionFolder versionFolder = process.getQubFolder().await().getProjectVersionFolder("me", "my-project", "1").await();
+                    final ProjectSignature stuff = ProjectSignature.create("you", "stuff", "2");
+                    versionFolder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("my-project")
+                                .setVersion("1")
+                                .toString())
+                        .await();
+                    QubPublishMetadata.create(versionFolder.getProjectSignature().await(), Iterable.create(stuff), Iterable.create(stuff))
+                        .writeTo(versionFolder)
+                        .await();
+                    test.assertEqual(Iterable.create(stuff), QubPublishMetadata.readDependencies(versionFolder).await());
+                });
+            });
+
+            runner.testGroup("read(QubProjectVersionFolder)", () ->
+            {
+                runner.test("with no metadata file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectVersionFolder versionFolder = process.getQubFolder().await().getProjectVersionFolder("me", "my-project", "1").await();
+                    test.assertThrows(() -> QubPublishMetadata.read(versionFolder).await(),
+                        new FileNotFoundException(versionFolder.getFile(QubPublishMetadata.fileName).await()));
+                });
+
+                runner.test("with metadata written by writeTo(QubProjectVersionFolder)",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubProjectVersionFolder versionFolder = process.getQubFolder().await().getProjectVersionFolder("me", "my-project", "1").await();
+                    QubPublishMetadata.create(versionFolder.getProjectSignature().await(), Iterable.create(), Iterable.create())
+                        .setArtifactHash("my-project.jar", aHash)
+                        .writeTo(versionFolder)
+                        .await();
+
+                    final QubPublishMetadata metadata = QubPublishMetadata.read(versionFolder).await();
+                    test.assertEqual(versionFolder.getProjectSignature().await(), metadata.getSignature());
+                    test.assertEqual(Iterable.create(), metadata.getDependencies());
+                    test.assertEqual(aHash, metadata.getArtifactHash("my-project.jar"));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package qub;
+
+public interface QubPublishMetricsTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(QubPublishMetrics.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final QubPublishMetrics metrics = QubPublishMetrics.create();
+                test.assertNotNull(metrics);
+                test.assertEqual(0, metrics.getPublishCount(true));
+                test.assertEqual(0, metrics.getPublishCount(false));
+                test.assertEqual(0, metrics.getCopiedByteCount());
+                test.assertEqual(0, metrics.getPhaseCount("pack"));
+            });
+
+            runner.test("getShared()", (Test test) ->
+            {
+                final QubPublishMetrics metrics = QubPublishMetrics.getShared();
+                test.assertNotNull(metrics);
+                test.assertSame(metrics, QubPublishMetrics.getShared());
+            });
+
+            runner.testGroup("phaseCompleted(String,long)", () ->
+            {
+                runner.test("with null phase", (Test test) ->
+                {
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    test.assertThrows(() -> metrics.phaseCompleted(null, 0),
+                        new PreConditionFailure("phase cannot be null."));
+                });
+
+                runner.test("with negative duration", (Test test) ->
+                {
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    test.assertThrows(() -> metrics.phaseCompleted("pack", -1),
+                        new PreConditionFailure("durationNanoseconds (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    test.assertSame(metrics, metrics.phaseCompleted("pack", 20_000_000));
+                    test.assertSame(metrics, metrics.phaseCompleted("pack", 3_000_000_000L));
+                    test.assertEqual(2, metrics.getPhaseCount("pack"));
+                    test.assertEqual(0, metrics.getPhaseCount("copy"));
+                });
+            });
+
+            runner.test("toPrometheusText(QubPublishArtifactCache)", (Test test) ->
+            {
+                final QubPublishMetrics metrics = QubPublishMetrics.create()
+                    .publishCompleted(true)
+                    .publishCompleted(false)
+                    .publishCompleted(true)
+                    .artifactCopied(100)
+                    .artifactCopied(50)
+                    .phaseCompleted("copy", 20_000_000)
+                    .phaseCompleted("copy", 3_000_000_000L);
+
+                final String text = metrics.toPrometheusText(QubPublishArtifactCache.create());
+                test.assertTrue(text.contains("# TYPE qub_publish_total counter\n"));
+                test.assertTrue(text.contains("qub_publish_total{result=\"success\"} 2\n"));
+                test.assertTrue(text.contains("qub_publish_total{result=\"failure\"} 1\n"));
+                test.assertTrue(text.contains("qub_publish_copied_artifacts_total 2\n"));
+                test.assertTrue(text.contains("qub_publish_copied_bytes_total 150\n"));
+                test.assertTrue(text.contains("# TYPE qub_publish_phase_duration_seconds histogram\n"));
+                test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"0.01\"} 0\n"));
+                test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"0.025\"} 1\n"));
+                test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"5\"} 2\n"));
+                test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"+Inf\"} 2\n"));
+                test.assertTrue(text.contains("qub_publish_phase_duration_seconds_count{phase=\"copy\"} 2\n"));
+                test.assertTrue(text.contains("qub_publish_cache_requests_total{cache=\"projectjson\",result=\"hit\"} 0\n"));
+            });
+
+            runner.testGroup("toPrometheusText(QubPublishArtifactCache,String)", () ->
+            {
+                runner.test("with null previousText", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublishMetrics.create().toPrometheusText(QubPublishArtifactCache.create(), null),
+                        new PreConditionFailure("previousText cannot be null."));
+                });
+
+                runner.test("with empty previousText", (Test test) ->
+                {
+                    final QubPublishMetrics metrics = QubPublishMetrics.create()
+                        .publishCompleted(true)
+                        .phaseCompleted("copy", 20_000_000);
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    test.assertEqual(metrics.toPrometheusText(artifactCache), metrics.toPrometheusText(artifactCache, ""));
+                });
+
+                runner.test("with previous export", (Test test) ->
+                {
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    final String previousText = QubPublishMetrics.create()
+                        .publishCompleted(true)
+                        .artifactCopied(100)
+                        .phaseCompleted("pack", 3_000_000_000L)
+                        .phaseCompleted("copy", 20_000_000)
+                        .toPrometheusText(artifactCache);
+                    final QubPublishMetrics metrics = QubPublishMetrics.create()
+                        .publishCompleted(true)
+                        .publishCompleted(false)
+                        .artifactCopied(50)
+                        .phaseCompleted("copy", 3_000_000_000L);
+
+                    final String text = metrics.toPrometheusText(artifactCache, previousText);
+                    test.assertTrue(text.contains("qub_publish_total{result=\"success\"} 2\n"));
+                    test.assertTrue(text.contains("qub_publish_total{result=\"failure\"} 1\n"));
+                    test.assertTrue(text.contains("qub_publish_copied_artifacts_total 2\n"));
+                    test.assertTrue(text.contains("qub_publish_copied_bytes_total 150\n"));
+                    test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"0.025\"} 1\n"));
+                    test.assertTrue(text.contains("qub_publish_phase_duration_seconds_bucket{phase=\"copy\",le=\"5\"} 2\n"));
+                    test.assertTrue(text.contains("qub_publish_phase_duration_seconds_count{phase=\"copy\"} 2\n"));
+                    test.assertTrue(text.contains("qub_publish_phase_duration_seconds_count{phase=\"pack\"} 1\n"));
+                    test.assertTrue(text.contains("qub_publish_phase_duration_seconds_sum{phase=\"pack\"} 3.0\n"));
+                    test.assertEqual(text.indexOf("# TYPE qub_publish_total counter\n"), text.lastIndexOf("# TYPE qub_publish_total counter\n"));
+                });
+
+                runner.test("with samples that aren't numbers", (Test test) ->
+                {
+                    final String text = QubPublishMetrics.create()
+                        .publishCompleted(true)
+                        .toPrometheusText(QubPublishArtifactCache.create(), "qub_publish_total{result=\"success\"} many\nnot a sample");
+                    test.assertTrue(text.contains("qub_publish_total{result=\"success\"} 1\n"));
+                });
+            });
+        });
+    }
+}
@@ -33,17 +33,30 @@ public interface QubPublishTests
                     test.assertEqual(-1, process.getExitCode());
                     test.assertLinesEqual(
                         Iterable.create(
-                            "Usage: qub-publish [[--folder=]<folder-to-publish>] [--packjson] [--testjson] [--coverage[=<None|Sources|Tests|All>]] [--buildjson] [--warnings=<show|error|hide>] [--verbose] [--profiler] [--help]",
+                            "Usage: qub-publish [[--folder=]<folder-to-publish>] [--packjson] [--testjson] [--coverage[=<None|Sources|Tests|All>]] [--buildjson] [--warnings=<show|error|hide>] [--events=<events-file>] [--metrics=<metrics-file>] [--deferdependents] [--trusttestjson] [--nativeimage] [--jlink] [--dryrun] [--conflicts=<nearest|highest|fail>] [--prune] [--allshortcuts] [--classdata] [--profile=<full|runtime>] [--virtualthreads] [--verbose] [--profiler] [--help]",
                             "  Used to published packaged source and compiled code to the qub folder.",
-                            "  --folder:      The folder to publish. Defaults to the current folder.",
-                            "  --packjson:    Whether or not to read and write a pack.json file. Defaults to true.",
-                            "  --testjson:    Whether or not to write the test results to a test.json file.",
-                            "  --coverage(c): Whether or not to collect code coverage information while running tests.",
-                            "  --buildjson:   Whether or not to read and write a build.json file. Defaults to true.",
-                            "  --warnings:    How to handle build warnings. Can be either \"show\", \"error\", or \"hide\". Defaults to \"show\".",
-                            "  --verbose(v):  Whether or not to show verbose logs.",
-                            "  --profiler:    Whether or not this application should pause before it is run to allow a profiler to be attached.",
-                            "  --help(?):     Show the help message for this application."),
+                            "  --folder:          The folder to publish. Defaults to the current folder.",
+                            "  --packjson:        Whether or not to read and write a pack.json file. Defaults to true.",
+                            "  --testjson:        Whether or not to write the test results to a test.json file.",
+                            "  --coverage(c):     Whether or not to collect code coverage information while running tests.",
+                            "  --buildjson:       Whether or not to read and write a build.json file. Defaults to true.",
+                            "  --warnings:        How to handle build warnings. Can be either \"show\", \"error\", or \"hide\". Defaults to \"show\".",
+                            "  --events:          The file that newline-delimited JSON progress events will be written to.",
+                            "  --metrics:         The file that publish metrics will be written to in the Prometheus text format.",
+                            "  --deferdependents: Whether or not to finish as soon as the project is published and write the projects that depend on it to a file in the background.",
+                            "  --trusttestjson:   Whether or not to skip packing when an existing test.json file shows that the current compiled outputs already passed their tests.",
+                            "  --nativeimage:     Whether or not to build a native executable with GraalVM's native-image tool for projects that have a main class.",
+                            "  --jlink:           Whether or not to run projects that have a main class on a minimal runtime image that is created with jdeps and jlink.",
+                            "  --dryrun:          Whether or not to only show the version, artifacts, shortcut, classpath, and dependent projects that would be published without packing or publishing anything.",
+                            "  --conflicts:       How to handle a dependency that appears in the dependency graph with more than one version. Can be either \"nearest\", \"highest\", or \"fail\". Defaults to \"nearest\".",
+                            "  --prune:           Whether or not to leave dependency jars that the main class can't reach off of the shortcut's classpath.",
+                            "  --allshortcuts:    Whether or not to regenerate the shortcuts of the latest version of every published project that has a main class instead of publishing.",
+                            "  --classdata:       Whether or not to record a class data sharing archive with a training run for projects that have a main class and have the shortcut use it.",
+                            "  --profile:         Which artifacts to publish. \"runtime\" only publishes the project.json file and the compiled sources jar. Defaults to \"full\".",
+                            "  --virtualthreads:  Whether or not to run the artifact copies, the dependent project scan, and the dependency lookups on virtual threads. Falls back to platform threads if the Java runtime doesn't have virtual threads.",
+                            "  --verbose(v):      Whether or not to show verbose logs.",
+                            "  --profiler:        Whether or not this application should pause before it is run to allow a profiler to be attached.",
+                            "  --help(?):         Show the help message for this application."),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
                         Iterable.create(),
@@ -91,10 +104,51 @@ public interface QubPublishTests
                     test.assertNotNull(verbose);
                     test.assertFalse(verbose.isVerbose());
                     test.assertEqual(Warnings.Show, parameters.getWarnings());
+                    test.assertNull(parameters.getEventsFile());
+                    test.assertNull(parameters.getMetricsFile());
+                    test.assertSame(QubPublishMetrics.getShared(), parameters.getMetrics());
+                    test.assertFalse(parameters.getDeferDependents());
+                    test.assertFalse(parameters.getTrustTestJson());
+                    test.assertFalse(parameters.getNativeImage());
+                    test.assertFalse(parameters.getJlink());
+                    test.assertFalse(parameters.getDryRun());
+                    test.assertSame(java.util.concurrent.ForkJoinPool.commonPool(), parameters.getDependencyExecutor());
+                    test.assertEqual(DependencyConflictStrategy.Nearest, parameters.getConflictStrategy());
+                    test.assertFalse(parameters.getPrune());
+                    test.assertFalse(parameters.getAllShortcuts());
+                    test.assertFalse(parameters.getClassData());
+                    test.assertEqual(PublishProfile.Full, parameters.getProfile());
+                    test.assertFalse(parameters.getVirtualThreads());
+                    test.assertNotNull(parameters.getFileExecutor());
+                    test.assertNull(parameters.getOwnedExecutor());
+                    test.assertSame(QubPublishArtifactCache.getShared(), parameters.getArtifactCache());
+                    test.assertSame(QubPublishArtifactCache.getShared().getProjectJSONCache(), parameters.getProjectJSONCache());
+                    test.assertInstanceOf(parameters.getProjectLocker(), FileChannelQubProjectLocker.class);
+                    test.assertInstanceOf(parameters.getArtifactCopier(), FileChannelQubArtifactCopier.class);
 
                     test.assertEqual("", process.getOutputWriteStream().getText().await());
                     test.assertEqual("", process.getErrorWriteStream().getText().await());
                 });
+
+                runner.test("with --virtualthreads",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess("--virtualthreads")),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubPublishParameters parameters = QubPublish.getParameters(process);
+                    test.assertNotNull(parameters);
+                    test.assertTrue(parameters.getVirtualThreads());
+                    test.assertNotNull(parameters.getOwnedExecutor());
+                    test.assertSame(parameters.getOwnedExecutor(), parameters.getFileExecutor());
+                    if (VirtualThreads.isSupported())
+                    {
+                        test.assertSame(parameters.getOwnedExecutor(), parameters.getDependencyExecutor());
+                    }
+                    else
+                    {
+                        test.assertSame(java.util.concurrent.ForkJoinPool.commonPool(), parameters.getDependencyExecutor());
+                    }
+                    parameters.getOwnedExecutor().shutdown();
+                });
             });
 
             runner.testGroup("run(QubPublishParameters)", () ->
@@ -347,9 +401,12 @@ public interface QubPublishTests
                             .toString(),
                         projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
                     test.assertFalse(qubFolder.fileExists("my-project.cmd").await());
+                    test.assertEqual(
+                        Iterable.create("1"),
+                        QubProjectVersionIndex.get(qubFolder.getProjectFolder("me", "my-project").await()).await().getVersions());
                 });
 
-                runner.test("with mainClass in project.json",
+                runner.test("with runtime profile",
                     (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
                     (Test test, FakeDesktopProcess process) ->
                 {
@@ -364,12 +421,10 @@ public interface QubPublishTests
                             .setPublisher("me")
                             .setProject("my-project")
                             .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A"))
+                            .setJava(ProjectJSONJava.create())
                             .toString());
                     final Folder outputsFolder = currentFolder.getFolder("outputs").await();
                     final File aClassFile = outputsFolder.getFile("A.class").await();
-                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
                     final Folder sourcesFolder = currentFolder.getFolder("sources").await();
                     final File aJavaFile = sourcesFolder.getFile("A.java").await();
                     aJavaFile.setContentsAsString("A.java source").await();
@@ -408,11 +463,11 @@ public interface QubPublishTests
                             .setWorkingFolder(outputsFolder)
                             .addCreate()
                             .addJarFile("my-project.jar")
-                            .addManifestFile(manifestFile)
                             .addContentFilePath(aClassFile.relativeTo(outputsFolder))
                             .setFunctionAutomatically());
                     final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
-                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setProfile(PublishProfile.Runtime);
 
                     final int exitCode = QubPublish.run(parameters);
 
@@ -423,7 +478,8 @@ public interface QubPublishTests
                             "",
                             "Creating sources jar file...",
                             "Creating compiled sources jar file...",
-                            "Publishing me/my-project@1..."),
+                            "Publishing me/my-project@1..."
+                        ),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
                         Iterable.create(),
@@ -432,34 +488,26 @@ public interface QubPublishTests
 
                     test.assertEqual(
                         Iterable.create(
-                            "Manifest File:",
-                            "/outputs/META-INF/MANIFEST.MF",
-                            "",
                             "Content Files:",
                             "A.class"),
                         Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
-                    test.assertEqual(
-                        Iterable.create(
-                            "Content Files:",
-                            "A.java"),
-                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertFalse(projectVersionFolder.getSourcesFile().await().exists().await());
+                    test.assertTrue(outputsFolder.fileExists("my-project.sources.jar").await());
                     test.assertEqual(
                         ProjectJSON.create()
                             .setPublisher("me")
                             .setProject("my-project")
                             .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A"))
+                            .setJava(ProjectJSONJava.create())
                             .toString(),
                         projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertFalse(qubFolder.fileExists("my-project.cmd").await());
                     test.assertEqual(
-                        Iterable.create(
-                            "@echo OFF",
-                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
-                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                        Iterable.create("1"),
+                        QubProjectVersionIndex.get(qubFolder.getProjectFolder("me", "my-project").await()).await().getVersions());
                 });
 
-                runner.test("with mainClass and dependencies in project.json",
+                runner.test("with trustTestJson and no test.json file",
                     (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
                     (Test test, FakeDesktopProcess process) ->
                 {
@@ -467,27 +515,17 @@ public interface QubPublishTests
                     final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
                     final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
                         .getFile("logs/1.log").await();
-                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
-                    final QubProjectVersionFolder meMyOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "my-other-project", "5").await();
-                    meMyOtherProject5Folder.getCompiledSourcesFile().await().create().await();
-                    final QubProjectVersionFolder youStuff731Folder = qubFolder.getProjectVersionFolder("you", "stuff", "7.3.1").await();
-                    youStuff731Folder.getCompiledSourcesFile().await().create().await();
                     final Folder currentFolder = process.getCurrentFolder();
                     final File projectJsonFile = currentFolder.getFile("project.json").await();
                     projectJsonFile.setContentsAsString(
                         ProjectJSON.create()
-                            .setPublisher(projectVersionFolder.getPublisherName().await())
-                            .setProject(projectVersionFolder.getProjectName().await())
-                            .setVersion(projectVersionFolder.getVersion().await())
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setDependencies(Iterable.create(
-                                    meMyOtherProject5Folder.getProjectSignature().await(),
-                                    youStuff731Folder.getProjectSignature().await())))
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create())
                             .toString());
                     final Folder outputsFolder = currentFolder.getFolder("outputs").await();
                     final File aClassFile = outputsFolder.getFile("A.class").await();
-                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
                     final Folder sourcesFolder = currentFolder.getFolder("sources").await();
                     final File aJavaFile = sourcesFolder.getFile("A.java").await();
                     aJavaFile.setContentsAsString("A.java source").await();
@@ -502,19 +540,12 @@ public interface QubPublishTests
                             .addOutputFolder(outputsFolder)
                             .addXlintUnchecked()
                             .addXlintDeprecation()
-                            .addClasspath(Iterable.create(
-                                outputsFolder.toString(),
-                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
-                                youStuff731Folder.getCompiledSourcesFile().await().toString()))
+                            .addClasspath(outputsFolder)
                             .addSourceFile(aJavaFile.relativeTo(currentFolder))
                             .setCompileFunctionAutomatically())
                         .add(new FakeConsoleTestRunnerProcessRun()
                             .setWorkingFolder(currentFolder)
-                            .addClasspath(Iterable.create(
-                                outputsFolder.toString(),
-                                youStuff731Folder.getCompiledSourcesFile().await().toString(),
-                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
-                                jvmClassPath))
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
                             .addConsoleTestRunnerFullClassName()
                             .addProfiler(false)
                             .addVerbose(false)
@@ -533,10 +564,11 @@ public interface QubPublishTests
                             .setWorkingFolder(outputsFolder)
                             .addCreate()
                             .addJarFile("my-project.jar")
-                            .addManifestFile(manifestFile)
                             .addContentFilePath(aClassFile.relativeTo(outputsFolder))
                             .setFunctionAutomatically());
-                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setTrustTestJson(true);
 
                     final int exitCode = QubPublish.run(parameters);
 
@@ -547,7 +579,8 @@ public interface QubPublishTests
                             "",
                             "Creating sources jar file...",
                             "Creating compiled sources jar file...",
-                            "Publishing me/my-project@1..."),
+                            "Publishing me/my-project@1..."
+                        ),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
                         Iterable.create(),
@@ -556,9 +589,6 @@ public interface QubPublishTests
 
                     test.assertEqual(
                         Iterable.create(
-                            "Manifest File:",
-                            "/outputs/META-INF/MANIFEST.MF",
-                            "",
                             "Content Files:",
                             "A.class"),
                         Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
@@ -572,127 +602,34 @@ public interface QubPublishTests
                             .setPublisher("me")
                             .setProject("my-project")
                             .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setDependencies(Iterable.create(
-                                    meMyOtherProject5Folder.getProjectSignature().await(),
-                                    youStuff731Folder.getProjectSignature().await())))
+                            .setJava(ProjectJSONJava.create())
                             .toString(),
                         projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
-                    test.assertEqual(
-                        Iterable.create(
-                            "@echo OFF",
-                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/stuff/versions/7.3.1/stuff.jar;%~dp0me/my-other-project/versions/5/my-other-project.jar A %*"),
-                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertFalse(qubFolder.fileExists("my-project.cmd").await());
                 });
 
-                runner.test("with mainClass and transitive dependencies in project.json",
+                runner.test("with trustTestJson and a trusted test.json file",
                     (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
                     (Test test, FakeDesktopProcess process) ->
                 {
                     final QubFolder qubFolder = process.getQubFolder().await();
-                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
-                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
-                        .getFile("logs/1.log").await();
-                    final QubProjectVersionFolder youStuff731Folder = qubFolder.getProjectVersionFolder("you", "stuff", "7.3.1").await();
-                    youStuff731Folder.getCompiledSourcesFile().await().create().await();
-                    youStuff731Folder.getProjectJSONFile().await()
-                        .setContentsAsString(
-                            ProjectJSON.create()
-                                .setPublisher(youStuff731Folder.getPublisherName().await())
-                                .setProject(youStuff731Folder.getProjectName().await())
-                                .setVersion(youStuff731Folder.getVersion().await())
-                                .setJava(ProjectJSONJava.create())
-                                .toString())
-                        .await();
-                    final QubProjectVersionFolder meMyOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "my-other-project", "5").await();
-                    meMyOtherProject5Folder.getProjectJSONFile().await()
-                        .setContentsAsString(
-                            ProjectJSON.create()
-                                .setPublisher(meMyOtherProject5Folder.getPublisherName().await())
-                                .setProject(meMyOtherProject5Folder.getProjectName().await())
-                                .setVersion(meMyOtherProject5Folder.getVersion().await())
-                                .setJava(ProjectJSONJava.create()
-                                    .setDependencies(Iterable.create(
-                                        youStuff731Folder.getProjectSignature().await())))
-                                .toString())
-                        .await();
-                    meMyOtherProject5Folder.getCompiledSourcesFile().await().create().await();
-                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
                     final Folder currentFolder = process.getCurrentFolder();
-                    final File projectJsonFile = currentFolder.getFile("project.json").await();
-                    projectJsonFile.setContentsAsString(
+                    QubPublishTests.writeTestedOutputs(currentFolder,
                         ProjectJSON.create()
-                            .setPublisher(projectVersionFolder.getPublisherName().await())
-                            .setProject(projectVersionFolder.getProjectName().await())
-                            .setVersion(projectVersionFolder.getVersion().await())
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setDependencies(Iterable.create(
-                                    meMyOtherProject5Folder.getProjectSignature().await())))
-                            .toString());
-                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
-                    final File aClassFile = outputsFolder.getFile("A.class").await();
-                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
-                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
-                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
-                    aJavaFile.setContentsAsString("A.java source").await();
-                    final String jvmClassPath = "/fake-jvm-classpath";
-                    process.getProcessFactory()
-                        .add(new FakeJavacProcessRun()
-                            .setWorkingFolder(currentFolder)
-                            .addVersion()
-                            .setVersionFunctionAutomatically("javac 14.0.1"))
-                        .add(new FakeJavacProcessRun()
-                            .setWorkingFolder(currentFolder)
-                            .addOutputFolder(outputsFolder)
-                            .addXlintUnchecked()
-                            .addXlintDeprecation()
-                            .addClasspath(Iterable.create(
-                                outputsFolder.toString(),
-                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
-                                youStuff731Folder.getCompiledSourcesFile().await().toString()))
-                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
-                            .setCompileFunctionAutomatically())
-                        .add(new FakeConsoleTestRunnerProcessRun()
-                            .setWorkingFolder(currentFolder)
-                            .addClasspath(Iterable.create(
-                                outputsFolder.toString(),
-                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
-                                youStuff731Folder.getCompiledSourcesFile().await().toString(),
-                                jvmClassPath))
-                            .addConsoleTestRunnerFullClassName()
-                            .addProfiler(false)
-                            .addVerbose(false)
-                            .addTestJson(true)
-                            .addLogFile(qubTestLogFile)
-                            .addOutputFolder(outputsFolder)
-                            .addCoverage(Coverage.None)
-                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
-                        .add(new FakeJarProcessRun()
-                            .setWorkingFolder(sourcesFolder)
-                            .addCreate()
-                            .addJarFile("my-project.sources.jar")
-                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
-                            .setFunctionAutomatically())
-                        .add(new FakeJarProcessRun()
-                            .setWorkingFolder(outputsFolder)
-                            .addCreate()
-                            .addJarFile("my-project.jar")
-                            .addManifestFile(manifestFile)
-                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
-                            .setFunctionAutomatically());
-                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setTrustTestJson(true);
 
                     final int exitCode = QubPublish.run(parameters);
 
+                    // No fake javac, test runner, or jar processes are registered, so this only
+                    // succeeds if pack is skipped.
                     test.assertLinesEqual(
                         Iterable.create(
-                            "Compiling 1 file...",
-                            "Running tests...",
-                            "",
-                            "Creating sources jar file...",
-                            "Creating compiled sources jar file...",
+                            "Skipping pack because test.json shows that the current compiled outputs already passed their tests.",
                             "Publishing me/my-project@1..."),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
@@ -700,38 +637,12 @@ public interface QubPublishTests
                         process.getErrorWriteStream());
                     test.assertEqual(0, exitCode);
 
-                    test.assertEqual(
-                        Iterable.create(
-                            "Manifest File:",
-                            "/outputs/META-INF/MANIFEST.MF",
-                            "",
-                            "Content Files:",
-                            "A.class"),
-                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
-                    test.assertEqual(
-                        Iterable.create(
-                            "Content Files:",
-                            "A.java"),
-                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
-                    test.assertEqual(
-                        ProjectJSON.create()
-                            .setPublisher("me")
-                            .setProject("my-project")
-                            .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setDependencies(Iterable.create(
-                                    meMyOtherProject5Folder.getProjectSignature().await())))
-                            .toString(),
-                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
-                    test.assertEqual(
-                        Iterable.create(
-                            "@echo OFF",
-                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0me/my-other-project/versions/5/my-other-project.jar;%~dp0you/stuff/versions/7.3.1/stuff.jar A %*"),
-                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    test.assertEqual("compiled sources", projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await());
+                    test.assertEqual("sources", projectVersionFolder.getSourcesFile().await().getContentsAsString().await());
                 });
 
-                runner.test("with mainClass and shortcutName in project.json",
+                runner.test("with events file",
                     (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
                     (Test test, FakeDesktopProcess process) ->
                 {
@@ -746,13 +657,10 @@ public interface QubPublishTests
                             .setPublisher("me")
                             .setProject("my-project")
                             .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setShortcutName("foo"))
+                            .setJava(ProjectJSONJava.create())
                             .toString());
                     final Folder outputsFolder = currentFolder.getFolder("outputs").await();
                     final File aClassFile = outputsFolder.getFile("A.class").await();
-                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
                     final Folder sourcesFolder = currentFolder.getFolder("sources").await();
                     final File aJavaFile = sourcesFolder.getFile("A.java").await();
                     aJavaFile.setContentsAsString("A.java source").await();
@@ -791,11 +699,12 @@ public interface QubPublishTests
                             .setWorkingFolder(outputsFolder)
                             .addCreate()
                             .addJarFile("my-project.jar")
-                            .addManifestFile(manifestFile)
                             .addContentFilePath(aClassFile.relativeTo(outputsFolder))
                             .setFunctionAutomatically());
                     final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
-                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+                    final File eventsFile = currentFolder.getFile("events.json").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setEventsFile(eventsFile);
 
                     final int exitCode = QubPublish.run(parameters);
 
@@ -806,44 +715,43 @@ public interface QubPublishTests
                             "",
                             "Creating sources jar file...",
                             "Creating compiled sources jar file...",
-                            "Publishing me/my-project@1..."),
+                            "Publishing me/my-project@1..."
+                        ),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
                         Iterable.create(),
                         process.getErrorWriteStream());
                     test.assertEqual(0, exitCode);
 
+                    final List<String> events = List.create();
+                    for (final String eventLine : Strings.getLines(eventsFile.getContentsAsString().await()))
+                    {
+                        final JSONObject event = JSON.parseObject(eventLine).await();
+                        final String phase = event.getString("phase").catchError().await();
+                        final String artifact = event.getString("artifact").catchError().await();
+                        final String project = event.getString("project").catchError().await();
+                        events.add(event.getString("event").await() + " " + (phase != null ? phase : artifact != null ? artifact : project));
+                    }
                     test.assertEqual(
                         Iterable.create(
-                            "Manifest File:",
-                            "/outputs/META-INF/MANIFEST.MF",
-                            "",
-                            "Content Files:",
-                            "A.class"),
-                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
-                    test.assertEqual(
-                        Iterable.create(
-                            "Content Files:",
-                            "A.java"),
-                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
-                    test.assertEqual(
-                        ProjectJSON.create()
-                            .setPublisher("me")
-                            .setProject("my-project")
-                            .setVersion("1")
-                            .setJava(ProjectJSONJava.create()
-                                .setMainClass("A")
-                                .setShortcutName("foo"))
-                            .toString(),
-                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
-                    test.assertEqual(
-                        Iterable.create(
-                            "@echo OFF",
-                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
-                        Strings.getLines(qubFolder.getFileContentsAsString("foo.cmd").await()));
+                            "phaseStarted pack",
+                            "phaseCompleted pack",
+                            "phaseStarted version",
+                            "phaseCompleted version",
+                            "phaseStarted copy",
+                            "artifactCopied project.json",
+                            "artifactCopied my-project.jar",
+                            "artifactCopied my-project.sources.jar",
+                            "phaseCompleted copy",
+                            "committed me/my-project@1",
+                            "phaseStarted shortcut",
+                            "phaseCompleted shortcut",
+                            "phaseStarted dependents",
+                            "phaseCompleted dependents"),
+                        events);
                 });
 
-                runner.test("with dependent and non-dependent published project",
+                runner.test("with metrics file",
                     (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
                     (Test test, FakeDesktopProcess process) ->
                 {
@@ -903,10 +811,2006 @@ public interface QubPublishTests
                             .addContentFilePath(aClassFile.relativeTo(outputsFolder))
                             .setFunctionAutomatically());
                     final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
-                    final QubProjectVersionFolder meOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "other-project", "5").await();
-                    meOtherProject5Folder.getProjectJSONFile().await()
-                        .setContentsAsString(
-                            ProjectJSON.create()
+                    final File metricsFile = currentFolder.getFile("metrics.txt").await();
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setMetrics(metrics)
+                        .setMetricsFile(metricsFile);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1..."
+                        ),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(1, metrics.getPublishCount(true));
+                    test.assertEqual(0, metrics.getPublishCount(false));
+                    test.assertEqual(1, metrics.getPhaseCount("pack"));
+                    test.assertEqual(1, metrics.getPhaseCount("copy"));
+                    test.assertEqual(1, metrics.getPhaseCount("dependents"));
+                    test.assertTrue(metrics.getCopiedByteCount() > 0);
+
+                    final String metricsText = metricsFile.getContentsAsString().await();
+                    test.assertTrue(metricsText.contains("qub_publish_total{result=\"success\"} 1\n"));
+                    test.assertTrue(metricsText.contains("qub_publish_copied_artifacts_total 3\n"));
+                    test.assertTrue(metricsText.contains("qub_publish_phase_duration_seconds_count{phase=\"copy\"} 1\n"));
+                    test.assertTrue(metricsText.contains("# TYPE qub_publish_cache_requests_total counter\n"));
+                });
+
+                runner.test("with metrics file and dryRun",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("my-project")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final File metricsFile = currentFolder.getFile("metrics.txt").await();
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setMetrics(metrics)
+                        .setMetricsFile(metricsFile)
+                        .setDryRun(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(0, metrics.getPublishCount(true));
+                    test.assertEqual(0, metrics.getPublishCount(false));
+                    test.assertEqual(metrics.toPrometheusText(parameters.getArtifactCache()), metricsFile.getContentsAsString().await());
+                });
+
+                runner.test("with metrics file and allShortcuts",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final File metricsFile = process.getCurrentFolder().getFile("metrics.txt").await();
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setMetrics(metrics)
+                        .setMetricsFile(metricsFile)
+                        .setAllShortcuts(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(0, metrics.getPublishCount(true));
+                    test.assertEqual(0, metrics.getPublishCount(false));
+                    test.assertEqual(metrics.toPrometheusText(parameters.getArtifactCache()), metricsFile.getContentsAsString().await());
+                });
+
+                runner.test("with metrics file across two runs",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    QubPublishTests.writePackedOutputs(process.getCurrentFolder(),
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final File metricsFile = process.getCurrentFolder().getFile("metrics.txt").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setMetrics(QubPublishMetrics.create())
+                        .setMetricsFile(metricsFile);
+
+                    test.assertEqual(0, QubPublish.run(parameters));
+                    final String firstMetricsText = metricsFile.getContentsAsString().await();
+                    test.assertTrue(firstMetricsText.contains("qub_publish_total{result=\"success\"} 1\n"));
+                    test.assertTrue(firstMetricsText.contains("qub_publish_phase_duration_seconds_count{phase=\"copy\"} 1\n"));
+
+                    // Each run is a new process with its own metrics.
+                    final QubPublishMetrics secondMetrics = QubPublishMetrics.create()
+                        .publishCompleted(false)
+                        .phaseCompleted("copy", 20_000_000);
+                    parameters.setMetrics(secondMetrics)
+                        .setAllShortcuts(true);
+
+                    test.assertEqual(0, QubPublish.run(parameters));
+                    final String secondMetricsText = metricsFile.getContentsAsString().await();
+                    test.assertTrue(secondMetricsText.contains("qub_publish_total{result=\"success\"} 1\n"));
+                    test.assertTrue(secondMetricsText.contains("qub_publish_total{result=\"failure\"} 1\n"));
+                    test.assertTrue(secondMetricsText.contains("qub_publish_phase_duration_seconds_count{phase=\"copy\"} 2\n"));
+                });
+
+                runner.test("with metrics file that can't be written",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    QubPublishTests.writePackedOutputs(process.getCurrentFolder(),
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    // The file system doesn't have a Z: root, so the metrics file can't be created.
+                    final File metricsFile = process.getFileSystem().getFile("Z:/metrics.txt").await();
+                    final QubPublishMetrics metrics = QubPublishMetrics.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setMetrics(metrics)
+                        .setMetricsFile(metricsFile);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    final Iterable<String> errorLines = Strings.getLines(process.getErrorWriteStream().getText().await());
+                    test.assertEqual(1, errorLines.getCount());
+                    test.assertTrue(errorLines.first().startsWith("ERROR: The metrics couldn't be written to " + metricsFile + ": "));
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(1, metrics.getPublishCount(true));
+                    test.assertTrue(qubFolder.getProjectVersionFolder("me", "my-project", "1").await().exists().await());
+                });
+
+                runner.test("with publish journal from an interrupted publish",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    sourcesFolder.getFile("A.java").await().setContentsAsString("A.java source").await();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create())
+                            .toString()).await();
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File compiledSourcesJarFile = outputsFolder.getFile("my-project.jar").await();
+                    compiledSourcesJarFile.setContentsAsString("compiled sources").await();
+                    final File sourcesJarFile = outputsFolder.getFile("my-project.sources.jar").await();
+                    sourcesJarFile.setContentsAsString("sources").await();
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    projectJsonFile.copyToFolder(projectVersionFolder).await();
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    final QubPublishJournal journal = QubPublishJournal.create()
+                        .completeStage(QubPublishJournal.packStage)
+                        .setVersion("1");
+                    for (final File artifact : Iterable.create(projectJsonFile, compiledSourcesJarFile, sourcesJarFile))
+                    {
+                        journal.setArtifactHash(artifact.getName(), artifactCache.getContentHash(artifact).await());
+                    }
+                    journal.writeTo(outputsFolder).await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setEventsFile(currentFolder.getFile("events.json").await());
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Resuming the publish of me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual("compiled sources", projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await());
+                    test.assertEqual("sources", projectVersionFolder.getSourcesFile().await().getContentsAsString().await());
+                    test.assertEqual(Iterable.create("1"), QubProjectVersionIndex.get(qubFolder.getProjectFolder("me", "my-project").await()).await().getVersions());
+                    test.assertFalse(outputsFolder.fileExists(QubPublishJournal.fileName).await());
+
+                    final String eventsText = currentFolder.getFileContentsAsString("events.json").await();
+                    test.assertFalse(eventsText.contains("\"artifact\":\"project.json\""));
+                    test.assertTrue(eventsText.contains("\"artifact\":\"my-project.jar\""));
+                    test.assertTrue(eventsText.contains("\"artifact\":\"my-project.sources.jar\""));
+                });
+
+                runner.test("with thread pool file executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(4);
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setDependencyExecutor(executor)
+                        .setFileExecutor(executor)
+                        .setOwnedExecutor(executor);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertTrue(executor.isShutdown());
+
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    test.assertEqual("compiled sources", projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await());
+                    test.assertEqual("sources", projectVersionFolder.getSourcesFile().await().getContentsAsString().await());
+                    test.assertEqual(currentFolder.getFileContentsAsString("project.json").await(), projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                });
+
+                runner.test("with hashes from the publish journal",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final QubPublishJournal journal = QubPublishJournal.get(currentFolder.getFolder("outputs").await()).await();
+                    final File eventsFile = currentFolder.getFile("events.jsonl").await();
+                    final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setArtifactCache(artifactCache)
+                        .setEventsFile(eventsFile);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertEqual(0, exitCode);
+                    // Each artifact is only hashed once, when the journal is checked. The copied
+                    // event and the metadata file reuse the journal's hashes.
+                    test.assertEqual(3, artifactCache.getContentHashMissCount());
+                    test.assertEqual(0, artifactCache.getContentHashHitCount());
+
+                    final QubPublishMetadata metadata = QubPublishMetadata.read(qubFolder.getProjectVersionFolder("me", "my-project", "1").await()).await();
+                    final String eventsText = eventsFile.getContentsAsString().await();
+                    for (final String artifactName : Iterable.create("project.json", "my-project.jar", "my-project.sources.jar"))
+                    {
+                        test.assertEqual(journal.getArtifactHash(artifactName), metadata.getArtifactHash(artifactName));
+                    }
+                    test.assertTrue(eventsText.contains(journal.getArtifactHash("my-project.jar")));
+                    test.assertTrue(eventsText.contains(journal.getArtifactHash("my-project.sources.jar")));
+                });
+
+                runner.test("with mainClass in project.json",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertTrue(projectVersionFolder.fileExists(QubPublishClasspath.fileName).await());
+                });
+
+                runner.test("with mainClass and nativeImage when native-image isn't available",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setNativeImage(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1...",
+                            "Building native image...",
+                            "Falling back to a java shortcut because the native image couldn't be built."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertTrue(projectVersionFolder.fileExists(QubPublishClasspath.fileName).await());
+                });
+
+                runner.test("with mainClass and classData when java can't record class data",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setClassData(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1...",
+                            "Recording class data...",
+                            "Falling back to a shortcut without class data because it couldn't be recorded."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertTrue(projectVersionFolder.fileExists(QubPublishClasspath.fileName).await());
+                });
+
+                runner.test("with mainClass and nativeImage",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")));
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final File imageFile = projectVersionFolder.getFile("my-project").await();
+                    process.getProcessFactory()
+                        .add(FakeProcessRun.get("native-image")
+                            .setWorkingFolder(projectVersionFolder)
+                            .addArguments(
+                                "--no-fallback",
+                                "-cp", projectVersionFolder.getCompiledSourcesFile().await().toString(),
+                                "-o", imageFile.toString(),
+                                "A")
+                            .setFunction(() ->
+                            {
+                                imageFile.setContentsAsString("native image").await();
+                            }));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setNativeImage(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1...",
+                            "Building native image..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "\"%~dp0me/my-project/versions/1/my-project\" %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                });
+
+                runner.test("with mainClass and classData",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")));
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final File classDataFile = projectVersionFolder.getFile("my-project.jsa").await();
+                    process.getProcessFactory()
+                        .add(FakeProcessRun.get("java")
+                            .setWorkingFolder(projectVersionFolder)
+                            .addArguments(
+                                "-XX:ArchiveClassesAtExit=" + classDataFile.toString(),
+                                "-classpath", projectVersionFolder.getCompiledSourcesFile().await().toString(),
+                                "A",
+                                "-?")
+                            .setFunction(() ->
+                            {
+                                classDataFile.setContentsAsString("class data").await();
+                            }));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setClassData(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1...",
+                            "Recording class data..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -XX:SharedArchiveFile=\"%~dp0me/my-project/versions/1/my-project.jsa\" -Xshare:auto -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                });
+
+                runner.test("with mainClass and jlink when jdeps isn't available",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setJlink(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1...",
+                            "Falling back to the java on the PATH because a runtime image couldn't be created."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A"))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertTrue(projectVersionFolder.fileExists(QubPublishClasspath.fileName).await());
+                });
+
+                runner.test("with mainClass and jlink",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")));
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final String compiledSourcesPath = projectVersionFolder.getCompiledSourcesFile().await().toString();
+                    final String modules = "java.base,java.logging";
+                    final Folder runtimesFolder = qubFolder.getProjectFolder("qub", "publish-java").await()
+                        .getProjectDataFolder().await()
+                        .getFolder("runtimes").await();
+                    final String runtimeName = QubPublishArtifactCache.getHash(modules.getBytes(java.nio.charset.StandardCharsets.UTF_8)).substring(0, 16);
+                    final Folder runtimeFolder = runtimesFolder.getFolder(runtimeName).await();
+                    final Folder temporaryRuntimeFolder = runtimesFolder.getFolder(runtimeName + ".tmp").await();
+                    // An interrupted jlink leaves its temporary folder behind.
+                    temporaryRuntimeFolder.getFile("lib/modules").await().setContentsAsString("partial").await();
+                    process.getProcessFactory()
+                        .add(FakeProcessRun.get("jdeps")
+                            .setWorkingFolder(currentFolder)
+                            .addArguments("--print-module-deps", "--ignore-missing-deps", "--class-path", compiledSourcesPath, compiledSourcesPath)
+                            .setFunction((ByteWriteStream output) ->
+                            {
+                                output.writeAll("java.logging\n".getBytes(java.nio.charset.StandardCharsets.UTF_8)).await();
+                            }))
+                        .add(FakeProcessRun.get("jlink")
+                            .setWorkingFolder(currentFolder)
+                            .addArguments(
+                                "--add-modules", modules,
+                                "--output", temporaryRuntimeFolder.toString(),
+                                "--strip-debug",
+                                "--no-header-files",
+                                "--no-man-pages")
+                            .setFunction(() ->
+                            {
+                                test.assertFalse(temporaryRuntimeFolder.fileExists("lib/modules").await());
+                                test.assertFalse(runtimeFolder.exists().await());
+                                temporaryRuntimeFolder.getFile("bin/java").await().setContentsAsString("java").await();
+                            }));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setJlink(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1...",
+                            "Creating runtime image with modules " + modules + "..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual("java", runtimeFolder.getFileContentsAsString("bin/java").await());
+                    test.assertFalse(temporaryRuntimeFolder.exists().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "\"%~dp0" + runtimeFolder.relativeTo(qubFolder) + "/bin/java\" -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertFalse(qubFolder.getFolder("runtimes").await().exists().await());
+                });
+
+                runner.test("with mainClass and jlink when the runtime image already exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")));
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final String compiledSourcesPath = projectVersionFolder.getCompiledSourcesFile().await().toString();
+                    final Folder runtimeFolder = qubFolder.getProjectFolder("qub", "publish-java").await()
+                        .getProjectDataFolder().await()
+                        .getFolder("runtimes/" + QubPublishArtifactCache.getHash("java.base".getBytes(java.nio.charset.StandardCharsets.UTF_8)).substring(0, 16)).await();
+                    runtimeFolder.getFile("bin/java").await().setContentsAsString("java").await();
+                    process.getProcessFactory()
+                        .add(FakeProcessRun.get("jdeps")
+                            .setWorkingFolder(currentFolder)
+                            .addArguments("--print-module-deps", "--ignore-missing-deps", "--class-path", compiledSourcesPath, compiledSourcesPath)
+                            .setFunction(0));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setJlink(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "\"%~dp0" + runtimeFolder.relativeTo(qubFolder) + "/bin/java\" -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                });
+
+                runner.test("with mainClass and dependencies in project.json",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubProjectVersionFolder meMyOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "my-other-project", "5").await();
+                    meMyOtherProject5Folder.getCompiledSourcesFile().await().create().await();
+                    final QubProjectVersionFolder youStuff731Folder = qubFolder.getProjectVersionFolder("you", "stuff", "7.3.1").await();
+                    youStuff731Folder.getCompiledSourcesFile().await().create().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher(projectVersionFolder.getPublisherName().await())
+                            .setProject(projectVersionFolder.getProjectName().await())
+                            .setVersion(projectVersionFolder.getVersion().await())
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setDependencies(Iterable.create(
+                                    meMyOtherProject5Folder.getProjectSignature().await(),
+                                    youStuff731Folder.getProjectSignature().await())))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(Iterable.create(
+                                outputsFolder.toString(),
+                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
+                                youStuff731Folder.getCompiledSourcesFile().await().toString()))
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(
+                                outputsFolder.toString(),
+                                youStuff731Folder.getCompiledSourcesFile().await().toString(),
+                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
+                                jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setDependencies(Iterable.create(
+                                    meMyOtherProject5Folder.getProjectSignature().await(),
+                                    youStuff731Folder.getProjectSignature().await())))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/stuff/versions/7.3.1/stuff.jar;%~dp0me/my-other-project/versions/5/my-other-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+
+                    final QubPublishClasspath classpath = QubPublishClasspath.parse(projectVersionFolder.getFile(QubPublishClasspath.fileName).await()).await();
+                    test.assertEqual(
+                        Iterable.create(
+                            "me/my-project/versions/1/my-project.jar",
+                            "you/stuff/versions/7.3.1/stuff.jar",
+                            "me/my-other-project/versions/5/my-other-project.jar"),
+                        classpath.getRelativePaths());
+                    test.assertEqual(
+                        Iterable.create(
+                            projectVersionFolder.getCompiledSourcesFile().await().toString(),
+                            youStuff731Folder.getCompiledSourcesFile().await().toString(),
+                            meMyOtherProject5Folder.getCompiledSourcesFile().await().toString()),
+                        classpath.getAbsolutePaths());
+                });
+
+                runner.test("with mainClass and transitive dependencies in project.json",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final QubProjectVersionFolder youStuff731Folder = qubFolder.getProjectVersionFolder("you", "stuff", "7.3.1").await();
+                    youStuff731Folder.getCompiledSourcesFile().await().create().await();
+                    youStuff731Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher(youStuff731Folder.getPublisherName().await())
+                                .setProject(youStuff731Folder.getProjectName().await())
+                                .setVersion(youStuff731Folder.getVersion().await())
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder meMyOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "my-other-project", "5").await();
+                    meMyOtherProject5Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher(meMyOtherProject5Folder.getPublisherName().await())
+                                .setProject(meMyOtherProject5Folder.getProjectName().await())
+                                .setVersion(meMyOtherProject5Folder.getVersion().await())
+                                .setJava(ProjectJSONJava.create()
+                                    .setDependencies(Iterable.create(
+                                        youStuff731Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    meMyOtherProject5Folder.getCompiledSourcesFile().await().create().await();
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher(projectVersionFolder.getPublisherName().await())
+                            .setProject(projectVersionFolder.getProjectName().await())
+                            .setVersion(projectVersionFolder.getVersion().await())
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setDependencies(Iterable.create(
+                                    meMyOtherProject5Folder.getProjectSignature().await())))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(Iterable.create(
+                                outputsFolder.toString(),
+                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
+                                youStuff731Folder.getCompiledSourcesFile().await().toString()))
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(
+                                outputsFolder.toString(),
+                                meMyOtherProject5Folder.getCompiledSourcesFile().await().toString(),
+                                youStuff731Folder.getCompiledSourcesFile().await().toString(),
+                                jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setDependencies(Iterable.create(
+                                    meMyOtherProject5Folder.getProjectSignature().await())))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0me/my-other-project/versions/5/my-other-project.jar;%~dp0you/stuff/versions/7.3.1/stuff.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+
+                    final QubPublishMetadata metadata = QubPublishMetadata.read(projectVersionFolder).await();
+                    test.assertEqual(projectVersionFolder.getProjectSignature().await(), metadata.getSignature());
+                    test.assertEqual(
+                        Iterable.create(
+                            meMyOtherProject5Folder.getProjectSignature().await()),
+                        metadata.getDependencies());
+                    test.assertEqual(
+                        Iterable.create(
+                            meMyOtherProject5Folder.getProjectSignature().await(),
+                            youStuff731Folder.getProjectSignature().await()),
+                        metadata.getTransitiveDependencies());
+                    test.assertEqual(
+                        QubPublishArtifactCache.getHash(projectVersionFolder.getCompiledSourcesFile().await().getContents().await()),
+                        metadata.getArtifactHash("my-project.jar"));
+                    test.assertNull(metadata.getArtifactHash("my-project.tests.jar"));
+                });
+
+                runner.test("with mainClass and prune",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess("--verbose")),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final ProjectSignature helper = ProjectSignature.create("you", "helper", "1");
+                    final ProjectSignature unused = ProjectSignature.create("you", "unused", "1");
+                    QubDependencyGraphTests.publish(qubFolder, helper);
+                    QubDependencyGraphTests.publish(qubFolder, unused);
+                    qubFolder.getCompiledSourcesFile("you", "helper", "1").await()
+                        .setContents(JarClassIndexTests.createJarBytes(
+                            "b/Helper.class", JarClassIndexTests.createClassBytes("b/Helper")))
+                        .await();
+                    qubFolder.getCompiledSourcesFile("you", "unused", "1").await()
+                        .setContents(JarClassIndexTests.createJarBytes(
+                            "c/Unused.class", JarClassIndexTests.createClassBytes("c/Unused")))
+                        .await();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("a.Main")
+                                .setDependencies(Iterable.create(helper, unused))),
+                        JarClassIndexTests.createJarBytes(
+                            "a/Main.class", JarClassIndexTests.createClassBytes("a/Main", "b/Helper")));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setVerbose(QubPublish.getParameters(process).getVerbose())
+                        .setPrune(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    final String outputText = process.getOutputWriteStream().getText().await();
+                    test.assertTrue(outputText.contains("Pruned you/unused/versions/1/unused.jar from the classpath because a.Main can't reach it."));
+                    test.assertFalse(outputText.contains("Pruned you/helper/versions/1/helper.jar"));
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/helper/versions/1/helper.jar a.Main %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                });
+
+                runner.test("with mainClass and prune when every dependency is reachable",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final ProjectSignature helper = ProjectSignature.create("you", "helper", "1");
+                    final ProjectSignature element = ProjectSignature.create("you", "element", "1");
+                    QubDependencyGraphTests.publish(qubFolder, helper, element);
+                    QubDependencyGraphTests.publish(qubFolder, element);
+                    qubFolder.getCompiledSourcesFile("you", "helper", "1").await()
+                        .setContents(JarClassIndexTests.createJarBytes(
+                            "b/Helper.class", JarClassIndexTests.createClassBytes("b/Helper", "[Lc/Element;")))
+                        .await();
+                    qubFolder.getCompiledSourcesFile("you", "element", "1").await()
+                        .setContents(JarClassIndexTests.createJarBytes(
+                            "c/Element.class", JarClassIndexTests.createClassBytes("c/Element")))
+                        .await();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("a.Main")
+                                .setDependencies(Iterable.create(helper))),
+                        JarClassIndexTests.createJarBytes(
+                            "a/Main.class", JarClassIndexTests.createClassBytes("a/Main", "b/Helper")));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setPrune(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/helper/versions/1/helper.jar;%~dp0you/element/versions/1/element.jar a.Main %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                });
+
+                runner.test("with conflicting dependency versions and nearest conflict strategy",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess("--verbose")),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writeConflictingDependencies(qubFolder, currentFolder);
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setVerbose(QubPublish.getParameters(process).getVerbose())
+                        .setConflictStrategy(DependencyConflictStrategy.Nearest);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    final String outputText = process.getOutputWriteStream().getText().await();
+                    test.assertTrue(outputText.contains("Resolved dependency version conflicts (nearest):"));
+                    test.assertTrue(outputText.contains("  you/c: 1, 2 -> 1"));
+                    test.assertTrue(outputText.contains("Publishing me/my-project@1..."));
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/a/versions/1/a.jar;%~dp0you/c/versions/1/c.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            ProjectSignature.create("you", "a", "1"),
+                            ProjectSignature.create("you", "c", "1")),
+                        QubPublishMetadata.read(qubFolder.getProjectVersionFolder("me", "my-project", "1").await()).await().getTransitiveDependencies());
+                });
+
+                runner.test("with conflicting dependency versions and highest conflict strategy",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writeConflictingDependencies(qubFolder, currentFolder);
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setConflictStrategy(DependencyConflictStrategy.Highest);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar;%~dp0you/a/versions/1/a.jar;%~dp0you/c/versions/2/c.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("my-project.cmd").await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            ProjectSignature.create("you", "a", "1"),
+                            ProjectSignature.create("you", "c", "2")),
+                        QubPublishMetadata.read(qubFolder.getProjectVersionFolder("me", "my-project", "1").await()).await().getTransitiveDependencies());
+                });
+
+                runner.test("with conflicting dependency versions and fail conflict strategy",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writeConflictingDependencies(qubFolder, currentFolder);
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setConflictStrategy(DependencyConflictStrategy.Fail);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Skipping pack because the publish journal shows that the current outputs were already packed.",
+                            "ERROR: Found conflicting versions in the dependency graph: you/c (1, 2)."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(1, exitCode);
+
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    test.assertFalse(projectFolder.getProjectVersionFolder("1").await().exists().await());
+                    test.assertEqual(0, QubProjectVersionIndex.get(projectFolder).await().getCount());
+                    test.assertFalse(qubFolder.getFile("my-project.cmd").await().exists().await());
+                    test.assertNull(QubPublishJournal.get(currentFolder.getFolder("outputs").await()).await().getVersion());
+                });
+
+                runner.test("with mainClass and shortcutName in project.json",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setShortcutName("foo"))
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final File manifestFile = outputsFolder.getFile("META-INF/MANIFEST.MF").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addManifestFile(manifestFile)
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1..."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Manifest File:",
+                            "/outputs/META-INF/MANIFEST.MF",
+                            "",
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()
+                                .setMainClass("A")
+                                .setShortcutName("foo"))
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/my-project/versions/1/my-project.jar A %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("foo.cmd").await()));
+                });
+
+                runner.test("with dependent and non-dependent published project",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create())
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubProjectVersionFolder meOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "other-project", "5").await();
+                    meOtherProject5Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher(meOtherProject5Folder.getPublisherName().await())
+                                .setProject(meOtherProject5Folder.getProjectName().await())
+                                .setVersion(meOtherProject5Folder.getVersion().await())
+                                .setJava(ProjectJSONJava.create()
+                                    .setDependencies(Iterable.create(projectVersionFolder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder youStuff731Folder = qubFolder.getProjectVersionFolder("you", "stuff", "7.3.1").await();
+                    youStuff731Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher(youStuff731Folder.getPublisherName().await())
+                                .setProject(youStuff731Folder.getProjectName().await())
+                                .setVersion(youStuff731Folder.getVersion().await())
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Compiling 1 file...",
+                            "Running tests...",
+                            "",
+                            "Creating sources jar file...",
+                            "Creating compiled sources jar file...",
+                            "Publishing me/my-project@1...",
+                            "The following projects should be updated to use me/my-project@1:",
+                            "  me/other-project@5"),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.class"),
+                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        Iterable.create(
+                            "Content Files:",
+                            "A.java"),
+                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                    test.assertEqual(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create())
+                            .toString(),
+                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
+                    test.assertFalse(qubFolder.fileExists("my-project.cmd").await());
+                });
+
+                runner.test("with dryRun and version that already exists",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    projectVersionFolder.create().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("my-project")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setDryRun(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "ERROR: This package (me/my-project:1) can't be published because a package with that signature already exists."),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(1, exitCode);
+                });
+
+                runner.test("with dryRun, mainClass, dependencies, and dependent published project",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "2").await();
+                    qubFolder.getProjectVersionFolder("me", "my-project", "1").await().create().await();
+                    final QubProjectVersionFolder meMyOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "my-other-project", "5").await();
+                    meMyOtherProject5Folder.getCompiledSourcesFile().await().create().await();
+                    final QubProjectVersionFolder meOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "other-project", "5").await();
+                    meOtherProject5Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher(meOtherProject5Folder.getPublisherName().await())
+                                .setProject(meOtherProject5Folder.getProjectName().await())
+                                .setVersion(meOtherProject5Folder.getVersion().await())
+                                .setJava(ProjectJSONJava.create()
+                                    .setDependencies(Iterable.create(ProjectSignature.create("me", "my-project", VersionNumber.create().setMajor(1)))))
+                                .toString())
+                        .await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    currentFolder.getFile("project.json").await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("my-project")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("A")
+                                    .setDependencies(Iterable.create(meMyOtherProject5Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    outputsFolder.getFile("my-project.jar").await().setContentsAsString("abc").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setDryRun(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Dry run: me/my-project@2 would be published to " + projectVersionFolder + ".",
+                            "Artifacts:",
+                            "  project.json (" + currentFolder.getFile("project.json").await().getContentsByteCount().await() + " bytes)",
+                            "  outputs/my-project.jar (3 bytes)",
+                            "  outputs/my-project.sources.jar (not packed yet)",
+                            "  outputs/my-project.tests.jar (not packed yet)",
+                            "Shortcut: " + qubFolder.getFile("my-project.cmd").await(),
+                            "Classpath:",
+                            "  " + projectVersionFolder.getCompiledSourcesFile().await().relativeTo(qubFolder),
+                            "  " + meMyOtherProject5Folder.getCompiledSourcesFile().await().relativeTo(qubFolder),
+                            "Dependents:",
+                            "  me/other-project@5"),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertFalse(projectVersionFolder.exists().await());
+                    test.assertFalse(qubFolder.getFile("my-project.cmd").await().exists().await());
+                });
+
+                runner.test("with allShortcuts",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder meLib3Folder = qubFolder.getProjectVersionFolder("me", "lib", "3").await();
+                    meLib3Folder.getCompiledSourcesFile().await().create().await();
+                    meLib3Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("lib")
+                                .setVersion("3")
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder meTool1Folder = qubFolder.getProjectVersionFolder("me", "tool", "1").await();
+                    meTool1Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("tool")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("Old"))
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder meTool2Folder = qubFolder.getProjectVersionFolder("me", "tool", "2").await();
+                    meTool2Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("tool")
+                                .setVersion("2")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("Tool")
+                                    .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder youApp5Folder = qubFolder.getProjectVersionFolder("you", "app", "5").await();
+                    youApp5Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("you")
+                                .setProject("app")
+                                .setVersion("5")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("App")
+                                    .setShortcutName("your-app")
+                                    .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    qubFolder.getFile("your-app.cmd").await().setContentsAsString("@echo OFF\njava -classpath %~dp0you/app/versions/5/app.jar;%~dp0me/lib/versions/3/lib.jar App %*").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setAllShortcuts(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Regenerating shortcuts for 2 projects...",
+                            "  tool.cmd (me/tool@2): updated",
+                            "  your-app.cmd (you/app@5): unchanged"),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/tool/versions/2/tool.jar;%~dp0me/lib/versions/3/lib.jar Tool %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("tool.cmd").await()));
+                    test.assertTrue(meTool2Folder.fileExists(QubPublishClasspath.fileName).await());
+                    test.assertFalse(qubFolder.fileExists("lib.cmd").await());
+                });
+
+                runner.test("with allShortcuts and previous version with the same dependencies doesn't reuse its classpath",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder meLib3Folder = qubFolder.getProjectVersionFolder("me", "lib", "3").await();
+                    meLib3Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("lib")
+                                .setVersion("3")
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    final QubProjectVersionFolder meExtra1Folder = qubFolder.getProjectVersionFolder("me", "extra", "1").await();
+                    final QubProjectVersionFolder meTool1Folder = qubFolder.getProjectVersionFolder("me", "tool", "1").await();
+                    meTool1Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("tool")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("Tool")
+                                    .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    QubPublishClasspath.create(qubFolder, Iterable.create(
+                            meTool1Folder.getCompiledSourcesFile().await(),
+                            meLib3Folder.getCompiledSourcesFile().await(),
+                            meExtra1Folder.getCompiledSourcesFile().await()))
+                        .setConflictStrategy(DependencyConflictStrategy.Nearest)
+                        .writeTo(meTool1Folder)
+                        .await();
+                    final QubProjectVersionFolder meTool2Folder = qubFolder.getProjectVersionFolder("me", "tool", "2").await();
+                    meTool2Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("tool")
+                                .setVersion("2")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("Tool")
+                                    .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setAllShortcuts(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertLinesEqual(
+                        Iterable.create(
+                            "Regenerating shortcuts for 1 project...",
+                            "  tool.cmd (me/tool@2): updated"),
+                        process.getOutputWriteStream());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                    test.assertEqual(0, exitCode);
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/tool/versions/2/tool.jar;%~dp0me/lib/versions/3/lib.jar Tool %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("tool.cmd").await()));
+
+                    final QubPublishClasspath classpath = QubPublishClasspath.parse(meTool2Folder.getFile(QubPublishClasspath.fileName).await()).await();
+                    test.assertEqual(
+                        Iterable.create(
+                            "me/tool/versions/2/tool.jar",
+                            "me/lib/versions/3/lib.jar"),
+                        classpath.getRelativePaths());
+                    test.assertEqual(
+                        Iterable.create(
+                            meTool2Folder.getCompiledSourcesFile().await().toString(),
+                            meLib3Folder.getCompiledSourcesFile().await().toString()),
+                        classpath.getAbsolutePaths());
+                    test.assertEqual(DependencyConflictStrategy.Nearest, classpath.getConflictStrategy());
+                });
+
+                runner.test("with dependent published project and deferred dependents",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectFolder qubTestProjectFolder = qubFolder.getProjectFolder("qub", "test-java").await();
+                    final File qubTestLogFile = qubTestProjectFolder.getProjectDataFolder().await()
+                        .getFile("logs/1.log").await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    projectJsonFile.setContentsAsString(
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create())
+                            .toString());
+                    final Folder outputsFolder = currentFolder.getFolder("outputs").await();
+                    final File aClassFile = outputsFolder.getFile("A.class").await();
+                    final Folder sourcesFolder = currentFolder.getFolder("sources").await();
+                    final File aJavaFile = sourcesFolder.getFile("A.java").await();
+                    aJavaFile.setContentsAsString("A.java source").await();
+                    final String jvmClassPath = "/fake-jvm-classpath";
+                    process.getProcessFactory()
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addVersion()
+                            .setVersionFunctionAutomatically("javac 14.0.1"))
+                        .add(new FakeJavacProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addOutputFolder(outputsFolder)
+                            .addXlintUnchecked()
+                            .addXlintDeprecation()
+                            .addClasspath(outputsFolder)
+                            .addSourceFile(aJavaFile.relativeTo(currentFolder))
+                            .setCompileFunctionAutomatically())
+                        .add(new FakeConsoleTestRunnerProcessRun()
+                            .setWorkingFolder(currentFolder)
+                            .addClasspath(Iterable.create(outputsFolder.toString(), jvmClassPath))
+                            .addConsoleTestRunnerFullClassName()
+                            .addProfiler(false)
+                            .addVerbose(false)
+                            .addTestJson(true)
+                            .addLogFile(qubTestLogFile)
+                            .addOutputFolder(outputsFolder)
+                            .addCoverage(Coverage.None)
+                            .addFullClassNamesToTest(Iterable.create(aJavaFile.getNameWithoutFileExtension())))
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(sourcesFolder)
+                            .addCreate()
+                            .addJarFile("my-project.sources.jar")
+                            .addContentFilePath(aJavaFile.relativeTo(sourcesFolder))
+                            .setFunctionAutomatically())
+                        .add(new FakeJarProcessRun()
+                            .setWorkingFolder(outputsFolder)
+                            .addCreate()
+                            .addJarFile("my-project.jar")
+                            .addContentFilePath(aClassFile.relativeTo(outputsFolder))
+                            .setFunctionAutomatically());
+                    final QubProjectVersionFolder projectVersionFolder = qubFolder.getProjectVersionFolder("me", "my-project", "1").await();
+                    final QubProjectVersionFolder meOtherProject5Folder = qubFolder.getProjectVersionFolder("me", "other-project", "5").await();
+                    meOtherProject5Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
                                 .setPublisher(meOtherProject5Folder.getPublisherName().await())
                                 .setProject(meOtherProject5Folder.getProjectName().await())
                                 .setVersion(meOtherProject5Folder.getVersion().await())
@@ -924,7 +2828,13 @@ public interface QubPublishTests
                                 .setJava(ProjectJSONJava.create())
                                 .toString())
                         .await();
-                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath);
+                    final List<Runnable> backgroundActions = List.create();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process, jvmClassPath)
+                        .setDeferDependents(true)
+                        .setBackgroundExecutor(backgroundActions::add);
+                    final File dependentsFile = qubFolder.getProjectFolder("me", "my-project").await()
+                        .getProjectDataFolder().await()
+                        .getFile("dependents/1.txt").await();
 
                     final int exitCode = QubPublish.run(parameters);
 
@@ -936,38 +2846,479 @@ public interface QubPublishTests
                             "Creating sources jar file...",
                             "Creating compiled sources jar file...",
                             "Publishing me/my-project@1...",
-                            "The following projects should be updated to use me/my-project@1:",
-                            "  me/other-project@5"),
+                            "The projects that should be updated to use me/my-project@1 will be written to " + dependentsFile + "."),
                         process.getOutputWriteStream());
                     test.assertLinesEqual(
                         Iterable.create(),
                         process.getErrorWriteStream());
                     test.assertEqual(0, exitCode);
+                    test.assertEqual(1, backgroundActions.getCount());
+                    test.assertFalse(dependentsFile.exists().await());
 
+                    backgroundActions.first().run();
                     test.assertEqual(
                         Iterable.create(
-                            "Content Files:",
-                            "A.class"),
-                        Strings.getLines(projectVersionFolder.getCompiledSourcesFile().await().getContentsAsString().await()));
+                            "me/other-project@5"),
+                        Strings.getLines(dependentsFile.getContentsAsString().await()));
+                });
+
+                runner.test("with deferred dependents and the default background executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writePackedOutputs(currentFolder,
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("me", "other-project", "5"), ProjectSignature.create("me", "my-project", "1"));
+                    final QubProjectFolder projectFolder = qubFolder.getProjectFolder("me", "my-project").await();
+                    final Folder dependentsFolder = projectFolder.getProjectDataFolder().await().getFolder("dependents").await();
+                    final File dependentsFile = dependentsFolder.getFile("1.txt").await();
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setDeferDependents(true);
+
+                    final int exitCode = QubPublish.run(parameters);
+
+                    test.assertEqual(0, exitCode);
+                    final long timeoutMilliseconds = System.currentTimeMillis() + 10_000;
+                    // Wait for the background scan to move its temporary file into place.
+                    while (!(dependentsFile.exists().await() && dependentsFolder.iterateFilesRecursively().toList().getCount() == 1) && System.currentTimeMillis() < timeoutMilliseconds)
+                    {
+                        try
+                        {
+                            Thread.sleep(10);
+                        }
+                        catch (InterruptedException error)
+                        {
+                            throw Exceptions.asRuntime(error);
+                        }
+                    }
                     test.assertEqual(
                         Iterable.create(
-                            "Content Files:",
-                            "A.java"),
-                        Strings.getLines(projectVersionFolder.getSourcesFile().await().getContentsAsString().await()));
+                            "me/other-project@5"),
+                        Strings.getLines(dependentsFile.getContentsAsString().await()));
+                    test.assertEqual(Iterable.create(dependentsFile), dependentsFolder.iterateFilesRecursively().toList());
+                    test.assertLinesEqual(
+                        Iterable.create(),
+                        process.getErrorWriteStream());
+                });
+            });
+
+            runner.testGroup("writeProjectShortcut(QubPublishParameters,QubProjectVersionFolder,ProjectJSON,Iterable<ProjectSignature>,boolean)", () ->
+            {
+                final Action2<QubFolder,QubProjectVersionFolder> writePreviousVersion = (QubFolder qubFolder, QubProjectVersionFolder meLib3Folder) ->
+                {
+                    final QubProjectVersionFolder meTool1Folder = qubFolder.getProjectVersionFolder("me", "tool", "1").await();
+                    meTool1Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("tool")
+                                .setVersion("1")
+                                .setJava(ProjectJSONJava.create()
+                                    .setMainClass("Tool")
+                                    .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())))
+                                .toString())
+                        .await();
+                    QubPublishClasspath.create(qubFolder, Iterable.create(
+                            meTool1Folder.getCompiledSourcesFile().await(),
+                            meLib3Folder.getCompiledSourcesFile().await(),
+                            qubFolder.getCompiledSourcesFile("me", "extra", "1").await()))
+                        .setConflictStrategy(DependencyConflictStrategy.Nearest)
+                        .writeTo(meTool1Folder)
+                        .await();
+                };
+
+                runner.test("with previous version with the same dependencies and reusePreviousClasspath",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder meLib3Folder = qubFolder.getProjectVersionFolder("me", "lib", "3").await();
+                    writePreviousVersion.run(qubFolder, meLib3Folder);
+                    final QubProjectVersionFolder meTool2Folder = qubFolder.getProjectVersionFolder("me", "tool", "2").await();
+                    final ProjectJSON projectJSON = ProjectJSON.create()
+                        .setPublisher("me")
+                        .setProject("tool")
+                        .setVersion("2")
+                        .setJava(ProjectJSONJava.create()
+                            .setMainClass("Tool")
+                            .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())));
+                    meTool2Folder.getProjectJSONFile().await().setContentsAsString(projectJSON.toString()).await();
+
+                    test.assertTrue(QubPublish.writeProjectShortcut(QubPublishTests.getParameters(process), meTool2Folder, projectJSON, null, true).await());
+
+                    test.assertEqual(
+                        Iterable.create(
+                            "@echo OFF",
+                            "java -classpath %~dp0me/tool/versions/2/tool.jar;%~dp0me/lib/versions/3/lib.jar;%~dp0me/extra/versions/1/extra.jar Tool %*"),
+                        Strings.getLines(qubFolder.getFileContentsAsString("tool.cmd").await()));
+                    final QubPublishClasspath classpath = QubPublishClasspath.parse(meTool2Folder.getFile(QubPublishClasspath.fileName).await()).await();
+                    test.assertEqual(
+                        Iterable.create(
+                            "me/tool/versions/2/tool.jar",
+                            "me/lib/versions/3/lib.jar",
+                            "me/extra/versions/1/extra.jar"),
+                        classpath.getRelativePaths());
+                    test.assertEqual(DependencyConflictStrategy.Nearest, classpath.getConflictStrategy());
+                });
+
+                runner.test("with previous version with the same dependencies and not reusePreviousClasspath",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final QubProjectVersionFolder meLib3Folder = qubFolder.getProjectVersionFolder("me", "lib", "3").await();
+                    meLib3Folder.getProjectJSONFile().await()
+                        .setContentsAsString(
+                            ProjectJSON.create()
+                                .setPublisher("me")
+                                .setProject("lib")
+                                .setVersion("3")
+                                .setJava(ProjectJSONJava.create())
+                                .toString())
+                        .await();
+                    writePreviousVersion.run(qubFolder, meLib3Folder);
+                    final QubProjectVersionFolder meTool2Folder = qubFolder.getProjectVersionFolder("me", "tool", "2").await();
+                    final ProjectJSON projectJSON = ProjectJSON.create()
+                        .setPublisher("me")
+                        .setProject("tool")
+                        .setVersion("2")
+                        .setJava(ProjectJSONJava.create()
+                            .setMainClass("Tool")
+                            .setDependencies(Iterable.create(meLib3Folder.getProjectSignature().await())));
+                    meTool2Folder.getProjectJSONFile().await().setContentsAsString(projectJSON.toString()).await();
+
+                    test.assertTrue(QubPublish.writeProjectShortcut(QubPublishTests.getParameters(process), meTool2Folder, projectJSON, null, false).await());
+
+                    final QubPublishClasspath classpath = QubPublishClasspath.parse(meTool2Folder.getFile(QubPublishClasspath.fileName).await()).await();
                     test.assertEqual(
+                        Iterable.create(
+                            "me/tool/versions/2/tool.jar",
+                            "me/lib/versions/3/lib.jar"),
+                        classpath.getRelativePaths());
+                });
+            });
+
+            runner.testGroup("isTestJsonTrusted(QubPublishParameters)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> QubPublish.isTestJsonTrusted(null),
+                        new PreConditionFailure("parameters cannot be null."));
+                });
+
+                runner.test("with no test.json file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    QubPublishTests.writeTestedOutputs(currentFolder,
                         ProjectJSON.create()
                             .setPublisher("me")
                             .setProject("my-project")
                             .setVersion("1")
-                            .setJava(ProjectJSONJava.create())
-                            .toString(),
-                        projectVersionFolder.getProjectJSONFile().await().getContentsAsString().await());
-                    test.assertFalse(qubFolder.fileExists("my-project.cmd").await());
+                            .setJava(ProjectJSONJava.create()));
+                    currentFolder.getFile("outputs/test.json").await().delete().await();
+
+                    test.assertFalse(QubPublish.isTestJsonTrusted(QubPublishTests.getParameters(process)));
+                });
+
+                runner.test("with a trusted test.json file",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    QubPublishTests.writeTestedOutputs(process.getCurrentFolder(),
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+
+                    test.assertTrue(QubPublish.isTestJsonTrusted(QubPublishTests.getParameters(process)));
+                });
+
+                runner.test("with coverage",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    QubPublishTests.writeTestedOutputs(process.getCurrentFolder(),
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setCoverage(Coverage.Sources);
+
+                    test.assertFalse(QubPublish.isTestJsonTrusted(parameters));
+                });
+
+                runner.test("with pattern",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    QubPublishTests.writeTestedOutputs(process.getCurrentFolder(),
+                        ProjectJSON.create()
+                            .setPublisher("me")
+                            .setProject("my-project")
+                            .setVersion("1")
+                            .setJava(ProjectJSONJava.create()));
+                    final QubPublishParameters parameters = QubPublishTests.getParameters(process)
+                        .setPattern("A");
+
+                    test.assertFalse(QubPublish.isTestJsonTrusted(parameters));
+                });
+
+                runner.test("with project.json modified after test.json",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final ProjectJSON projectJSON = ProjectJSON.create()
+                        .setPublisher("me")
+                        .setProject("my-project")
+                        .setVersion("1")
+                        .setJava(ProjectJSONJava.create());
+                    QubPublishTests.writeTestedOutputs(currentFolder, projectJSON);
+                    final DateTime testJsonLastModified = currentFolder.getFile("outputs/test.json").await().getLastModified().await();
+                    final File projectJsonFile = currentFolder.getFile("project.json").await();
+                    final long timeoutMilliseconds = System.currentTimeMillis() + 10_000;
+                    // Rewrite project.json until the file system's clock has moved past test.json.
+                    do
+                    {
+                        try
+                        {
+                            Thread.sleep(10);
+                        }
+                        catch (InterruptedException error)
+                        {
+                            throw Exceptions.asRuntime(error);
+                        }
+                        projectJsonFile.setContentsAsString(
+                            projectJSON
+                                .setJava(ProjectJSONJava.create()
+                                    .setDependencies(Iterable.create(ProjectSignature.create("you", "stuff", "2"))))
+                                .toString())
+                            .await();
+                    }
+                    while (projectJsonFile.getLastModified().await().compareTo(testJsonLastModified) <= 0 && System.currentTimeMillis() < timeoutMilliseconds);
+
+                    test.assertFalse(QubPublish.isTestJsonTrusted(QubPublishTests.getParameters(process)));
+                });
+            });
+
+            runner.testGroup("copyArtifacts(Iterable<File>,Iterable<File>,Folder,QubPublishJournal,QubArtifactCopier,QubPublishArtifactCache,QubPublishEvents,Executor)", () ->
+            {
+                runner.test("with thread pool executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final Folder currentFolder = process.getCurrentFolder();
+                    final Folder versionFolder = currentFolder.getFolder("version").await();
+                    versionFolder.create().await();
+                    final List<File> requiredArtifacts = List.create();
+                    long expectedByteCount = 0;
+                    for (int i = 0; i < 20; ++i)
+                    {
+                        final File artifact = currentFolder.getFile("outputs/artifact" + i + ".jar").await();
+                        final String contents = "contents of artifact " + i;
+                        artifact.setContentsAsString(contents).await();
+                        requiredArtifacts.add(artifact);
+                        expectedByteCount += contents.length();
+                    }
+                    final Iterable<File> optionalArtifacts = Iterable.create(currentFolder.getFile("outputs/missing.jar").await());
+
+                    final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(4);
+                    final long byteCount;
+                    try
+                    {
+                        byteCount = QubPublish.copyArtifacts(requiredArtifacts, optionalArtifacts, versionFolder, QubPublishJournal.create(), FileSystemQubArtifactCopier.create(), QubPublishArtifactCache.create(), QubPublishEvents.create(), executor).await();
+                    }
+                    finally
+                    {
+                        executor.shutdown();
+                    }
+
+                    test.assertEqual(expectedByteCount, byteCount);
+                    for (final File artifact : requiredArtifacts)
+                    {
+                        test.assertEqual(artifact.getContentsAsString().await(), versionFolder.getFileContentsAsString(artifact.getName()).await());
+                    }
+                    test.assertFalse(versionFolder.fileExists("missing.jar").await());
+                });
+            });
+
+            runner.testGroup("findDependents(QubFolder,String,String,Executor,Action1<ProjectSignature>)", () ->
+            {
+                runner.test("with dependent found before the scan ends",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature myProject = ProjectSignature.create("me", "my-project", "1");
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("a", "dependent", "1"), myProject);
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("b", "other", "1"));
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("c", "other", "1"));
+                    final java.util.concurrent.atomic.AtomicInteger scanCount = new java.util.concurrent.atomic.AtomicInteger();
+                    final List<String> dependents = List.create();
+
+                    QubPublish.findDependents(qubFolder, "me", "my-project",
+                        (Runnable scan) ->
+                        {
+                            scanCount.incrementAndGet();
+                            scan.run();
+                        },
+                        (ProjectSignature dependent) ->
+                        {
+                            dependents.add(dependent + " after " + scanCount.get() + " scan(s)");
+                        });
+
+                    test.assertEqual(Iterable.create("a/dependent@1 after 1 scan(s)"), dependents);
+                    test.assertEqual(3, scanCount.get());
+                });
+
+                runner.test("with version index that is missing the latest version",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature myProject = ProjectSignature.create("me", "my-project", "1");
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("you", "stuff", "1"));
+                    QubProjectVersionIndex.create(Iterable.create("1")).writeTo(qubFolder.getProjectFolder("you", "stuff").await()).await();
+                    QubDependencyGraphTests.publish(qubFolder, ProjectSignature.create("you", "stuff", "2"), myProject);
+                    final List<ProjectSignature> dependents = List.create();
+
+                    QubPublish.findDependents(qubFolder, "me", "my-project", Runnable::run, dependents::add);
+
+                    test.assertEqual(Iterable.create(ProjectSignature.create("you", "stuff", "2")), dependents);
+                });
+
+                runner.test("with thread pool executor",
+                    (TestResources resources) -> Tuple.create(resources.createFakeDesktopProcess()),
+                    (Test test, FakeDesktopProcess process) ->
+                {
+                    final QubFolder qubFolder = process.getQubFolder().await();
+                    final ProjectSignature myProject = ProjectSignature.create("me", "my-project", "1");
+                    final List<ProjectSignature> expectedDependents = List.create();
+                    for (int i = 100; i < 300; ++i)
+                    {
+                        final ProjectSignature publishedProject = ProjectSignature.create("p" + i, "project", "1");
+                        if (i % 3 == 0)
+                        {
+                            QubDependencyGraphTests.publish(qubFolder, publishedProject, myProject);
+                            expectedDependents.add(publishedProject);
+                        }
+                        else
+                        {
+                            QubDependencyGraphTests.publish(qubFolder, publishedProject);
+                        }
+                    }
+                    final List<ProjectSignature> dependents = List.create();
+
+                    final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(4);
+                    try
+                    {
+                        QubPublish.findDependents(qubFolder, "me", "my-project", executor, dependents::add);
+                    }
+                    finally
+                    {
+                        executor.shutdown();
+                    }
+
+                    test.assertEqual(expectedDependents, dependents);
                 });
             });
         });
     }
 
+    static void writePackedOutputs(Folder folderToPublish, ProjectJSON projectJSON)
+    {
+        QubPublishTests.writePackedOutputs(folderToPublish, projectJSON, "compiled sources".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    static void writePackedOutputs(Folder folderToPublish, ProjectJSON projectJSON, byte[] compiledSourcesJarBytes)
+    {
+        PreCondition.assertNotNull(folderToPublish, "folderToPublish");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+        PreCondition.assertNotNull(compiledSourcesJarBytes, "compiledSourcesJarBytes");
+
+        final String project = projectJSON.getProject();
+        folderToPublish.getFile("project.json").await().setContentsAsString(projectJSON.toString()).await();
+        final Folder outputsFolder = folderToPublish.getFolder("outputs").await();
+        outputsFolder.getFile(project + ".jar").await().setContents(compiledSourcesJarBytes).await();
+        outputsFolder.getFile(project + ".sources.jar").await().setContentsAsString("sources").await();
+
+        final QubPublishArtifactCache artifactCache = QubPublishArtifactCache.create();
+        final QubPublishJournal journal = QubPublishJournal.create()
+            .completeStage(QubPublishJournal.packStage);
+        for (final File artifact : QubPublish.getArtifacts(folderToPublish, project))
+        {
+            final String contentHash = artifactCache.getContentHash(artifact)
+                .catchError(FileNotFoundException.class)
+                .await();
+            if (contentHash != null)
+            {
+                journal.setArtifactHash(artifact.getName(), contentHash);
+            }
+        }
+        journal.writeTo(outputsFolder).await();
+    }
+
+    static void writeTestedOutputs(Folder folderToPublish, ProjectJSON projectJSON)
+    {
+        PreCondition.assertNotNull(folderToPublish, "folderToPublish");
+        PreCondition.assertNotNull(projectJSON, "projectJSON");
+
+        final String project = projectJSON.getProject();
+        folderToPublish.getFile("project.json").await().setContentsAsString(projectJSON.toString()).await();
+        folderToPublish.getFile("sources/A.java").await().setContentsAsString("A.java source").await();
+        final Folder outputsFolder = folderToPublish.getFolder("outputs").await();
+        final File aClassFile = outputsFolder.getFile("A.class").await();
+        aClassFile.setContentsAsString("A.class bytecode").await();
+        outputsFolder.getFile("test.json").await().setContentsAsString(
+            TestJSON.create()
+                .setClassFiles(Iterable.create(
+                    TestJSONClassFile.create(aClassFile.relativeTo(outputsFolder))
+                        .setLastModified(aClassFile.getLastModified().await())
+                        .setPassedTestCount(1)))
+                .toString())
+            .await();
+        outputsFolder.getFile(project + ".jar").await().setContentsAsString("compiled sources").await();
+        outputsFolder.getFile(project + ".sources.jar").await().setContentsAsString("sources").await();
+    }
+
+    static void writeConflictingDependencies(QubFolder qubFolder, Folder folderToPublish)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+        PreCondition.assertNotNull(folderToPublish, "folderToPublish");
+
+        final ProjectSignature a1 = ProjectSignature.create("you", "a", "1");
+        final ProjectSignature c1 = ProjectSignature.create("you", "c", "1");
+        final ProjectSignature c2 = ProjectSignature.create("you", "c", "2");
+        QubDependencyGraphTests.publish(qubFolder, a1, c2);
+        QubDependencyGraphTests.publish(qubFolder, c1);
+        QubDependencyGraphTests.publish(qubFolder, c2);
+        for (final ProjectSignature dependency : Iterable.create(a1, c1, c2))
+        {
+            qubFolder.getCompiledSourcesFile(dependency.getPublisher(), dependency.getProject(), dependency.getVersion()).await()
+                .create().await();
+        }
+
+        QubPublishTests.writePackedOutputs(folderToPublish,
+            ProjectJSON.create()
+                .setPublisher("me")
+                .setProject("my-project")
+                .setVersion("1")
+                .setJava(ProjectJSONJava.create()
+                    .setMainClass("A")
+                    .setDependencies(Iterable.create(c1, a1))));
+    }
+
     static QubPublishParameters getParameters(FakeDesktopProcess process)
     {
         PreCondition.assertNotNull(process, "process");
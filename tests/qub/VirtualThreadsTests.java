@@ -0,0 +1,34 @@
+package qub;
+
+public interface VirtualThreadsTests
+{
+    static void test(TestRunner runner)
+    {
+        runner.testGroup(VirtualThreads.class, () ->
+        {
+            runner.test("createExecutor()", (Test test) ->
+            {
+                if (VirtualThreads.isSupported())
+                {
+                    final java.util.concurrent.ExecutorService executor = VirtualThreads.createExecutor().await();
+                    test.assertNotNull(executor);
+                    try
+                    {
+                        final java.util.concurrent.CompletableFuture<Thread> thread = java.util.concurrent.CompletableFuture.supplyAsync(Thread::currentThread, executor);
+                        test.assertNotSame(Thread.currentThread(), thread.join());
+                    }
+                    finally
+                    {
+                        executor.shutdown();
+                    }
+                    test.assertTrue(executor.isShutdown());
+                }
+                else
+                {
+                    test.assertThrows(() -> VirtualThreads.createExecutor().await(),
+                        new UnsupportedOperationException("Virtual threads aren't supported by this Java runtime (" + System.getProperty("java.version") + ")."));
+                }
+            });
+        });
+    }
+}